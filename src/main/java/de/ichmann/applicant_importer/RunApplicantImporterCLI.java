@@ -0,0 +1,596 @@
+package de.ichmann.applicant_importer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ichmann.applicant_importer.exporter.BbsPlanungExporter;
+import de.ichmann.applicant_importer.importer.BuiltInSchedulingPolicy;
+import de.ichmann.applicant_importer.importer.PdfFormImporter;
+import de.ichmann.applicant_importer.importer.QuarantinedFile;
+import de.ichmann.applicant_importer.importer.ValueDictionary;
+import de.ichmann.applicant_importer.model.Applicant;
+import de.ichmann.applicant_importer.model.ApplicantStore;
+import de.ichmann.applicant_importer.model.DataField;
+
+/**
+ * Runs the Applicant Importer without user interface. All PDF files in one or more directories are
+ * imported and the applicants are exported to a single file for BBS-Planung. Optionally a summary
+ * of the import is written as JSON file, so that the run can be evaluated by other programs.
+ * <p>
+ * No Swing classes are used, so the importer can run on a server with
+ * <code>java.awt.headless=true</code>.
+ *
+ * @author Christian Wichmann
+ */
+public final class RunApplicantImporterCLI {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunApplicantImporterCLI.class);
+
+    /**
+     * Exit code if all directories have been imported and exported.
+     */
+    static final int EXIT_SUCCESS = 0;
+
+    /**
+     * Exit code if the command line arguments are invalid.
+     */
+    static final int EXIT_USAGE = 1;
+
+    /**
+     * Exit code if a directory could not be imported or the export file or the summary could not be
+     * written.
+     */
+    static final int EXIT_FAILURE = 2;
+
+    /**
+     * File name for the summary that writes it to the standard output instead of a file.
+     */
+    private static final String STANDARD_OUTPUT = "-";
+
+    private static final String USAGE = "Aufruf: RunApplicantImporterCLI [Optionen] "
+            + "-o <Ausgabedatei> <Verzeichnis>...\n"
+            + "  -o, --output <Datei>       Datei, in die die Bewerber exportiert werden\n"
+            + "  -t, --threads <Anzahl>     Anzahl der Threads zum Einlesen der PDF-Dateien\n"
+            + "  -w, --workers <Anzahl>     PDF-Dateien in <Anzahl> eigenen Prozessen einlesen "
+            + "(Standard: 0)\n"
+            + "  -i, --invalid              auch Bewerber mit ungültigen Daten exportieren\n"
+            + "  -e, --encoding <Kodierung> Zeichenkodierung der Ausgabedatei (Standard: "
+            + BbsPlanungExporter.DEFAULT_CHARSET.name() + ")\n"
+            + "  -s, --summary <Datei>      Zusammenfassung als JSON-Datei schreiben "
+            + "('-' für Standardausgabe)\n"
+            + "  -r, --recursive            auch alle Unterverzeichnisse einlesen\n"
+            + "      --include <Muster>     nur passende Dateien einlesen (z.B. '*.pdf', "
+            + "mehrfach möglich)\n"
+            + "      --exclude <Muster>     passende Dateien und Verzeichnisse überspringen "
+            + "(mehrfach möglich)\n"
+            + "  -c, --cache <Verzeichnis>  bereits eingelesene Dateien zwischenspeichern, damit "
+            + "ein\n                             abgebrochener Import fortgesetzt werden kann\n"
+            + "      --scheduling <Regel>   Reihenfolge beim Einlesen: LARGEST_FIRST (Standard) "
+            + "oder LISTING_ORDER\n"
+            + "  -h, --help                 diese Hilfe anzeigen";
+
+    /**
+     * Private constructor of utility class.
+     */
+    private RunApplicantImporterCLI() {
+    }
+
+    /**
+     * Contains all options given on the command line.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class Options {
+
+        private Path outputFile;
+        private final List<Path> directories = new ArrayList<>();
+        private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        private int workerProcesses = 0;
+        private boolean exportInvalidApplicants = false;
+        private Charset encoding = BbsPlanungExporter.DEFAULT_CHARSET;
+        private String summaryFile;
+        private Path cacheDirectory;
+        private boolean recursive = false;
+        private final List<String> includePatterns = new ArrayList<>();
+        private final List<String> excludePatterns = new ArrayList<>();
+        private BuiltInSchedulingPolicy schedulingPolicy = BuiltInSchedulingPolicy.LARGEST_FIRST;
+        private boolean showHelp = false;
+
+        /**
+         * Parses the given command line arguments.
+         *
+         * @param args
+         *            command line arguments
+         * @return options from the command line
+         * @throws IllegalArgumentException
+         *             if the arguments are invalid
+         */
+        private static Options parse(final String[] args) {
+            final Options options = new Options();
+            int i = 0;
+            while (i < args.length) {
+                final String arg = args[i];
+                switch (arg) {
+                case "-o":
+                case "--output":
+                    options.outputFile = Paths.get(getValue(args, ++i, arg));
+                    break;
+                case "-t":
+                case "--threads":
+                    options.numberOfThreads = parseNumberOfThreads(getValue(args, ++i, arg));
+                    break;
+                case "-w":
+                case "--workers":
+                    options.workerProcesses = parseNumberOfWorkers(getValue(args, ++i, arg));
+                    break;
+                case "-i":
+                case "--invalid":
+                    options.exportInvalidApplicants = true;
+                    break;
+                case "-e":
+                case "--encoding":
+                    options.encoding = parseEncoding(getValue(args, ++i, arg));
+                    break;
+                case "-s":
+                case "--summary":
+                    options.summaryFile = getValue(args, ++i, arg);
+                    break;
+                case "-r":
+                case "--recursive":
+                    options.recursive = true;
+                    break;
+                case "--include":
+                    options.includePatterns.add(parsePattern(getValue(args, ++i, arg)));
+                    break;
+                case "--exclude":
+                    options.excludePatterns.add(parsePattern(getValue(args, ++i, arg)));
+                    break;
+                case "-c":
+                case "--cache":
+                    options.cacheDirectory = Paths.get(getValue(args, ++i, arg));
+                    break;
+                case "--scheduling":
+                    options.schedulingPolicy = parseSchedulingPolicy(getValue(args, ++i, arg));
+                    break;
+                case "-h":
+                case "--help":
+                    options.showHelp = true;
+                    break;
+                default:
+                    if (arg.startsWith("-")) {
+                        throw new IllegalArgumentException("Unbekannte Option: " + arg);
+                    }
+                    options.directories.add(Paths.get(arg));
+                }
+                i++;
+            }
+            if (!options.showHelp) {
+                if (options.outputFile == null) {
+                    throw new IllegalArgumentException("Keine Ausgabedatei angegeben.");
+                }
+                if (options.directories.isEmpty()) {
+                    throw new IllegalArgumentException("Kein Verzeichnis angegeben.");
+                }
+            }
+            return options;
+        }
+
+        /**
+         * Returns the value of an option.
+         *
+         * @param args
+         *            command line arguments
+         * @param index
+         *            index of the value
+         * @param option
+         *            name of the option
+         * @return value of the option
+         * @throws IllegalArgumentException
+         *             if the value is missing
+         */
+        private static String getValue(final String[] args, final int index, final String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Fehlender Wert für Option " + option);
+            }
+            return args[index];
+        }
+
+        /**
+         * Parses the number of threads.
+         *
+         * @param value
+         *            value of the option
+         * @return number of threads
+         * @throws IllegalArgumentException
+         *             if the value is not a positive number
+         */
+        private static int parseNumberOfThreads(final String value) {
+            try {
+                final int numberOfThreads = Integer.parseInt(value);
+                if (numberOfThreads > 0) {
+                    return numberOfThreads;
+                }
+            } catch (final NumberFormatException e) {
+                // handled below
+            }
+            throw new IllegalArgumentException("Ungültige Anzahl an Threads: " + value);
+        }
+
+        /**
+         * Parses the number of worker processes.
+         *
+         * @param value
+         *            value of the option
+         * @return number of worker processes
+         * @throws IllegalArgumentException
+         *             if the value is not a number or negative
+         */
+        private static int parseNumberOfWorkers(final String value) {
+            try {
+                final int workerProcesses = Integer.parseInt(value);
+                if (workerProcesses >= 0) {
+                    return workerProcesses;
+                }
+            } catch (final NumberFormatException e) {
+                // handled below
+            }
+            throw new IllegalArgumentException("Ungültige Anzahl an Prozessen: " + value);
+        }
+
+        /**
+         * Checks whether a glob pattern is valid.
+         *
+         * @param value
+         *            value of the option
+         * @return glob pattern
+         * @throws IllegalArgumentException
+         *             if the pattern is not a valid glob pattern
+         */
+        private static String parsePattern(final String value) {
+            try {
+                FileSystems.getDefault().getPathMatcher("glob:" + value);
+                return value;
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException("Ungültiges Muster: " + value);
+            }
+        }
+
+        /**
+         * Parses the scheduling policy.
+         *
+         * @param value
+         *            value of the option
+         * @return scheduling policy
+         * @throws IllegalArgumentException
+         *             if the policy is unknown
+         */
+        private static BuiltInSchedulingPolicy parseSchedulingPolicy(final String value) {
+            try {
+                return BuiltInSchedulingPolicy.valueOf(value);
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unbekannte Reihenfolge: " + value);
+            }
+        }
+
+        /**
+         * Parses the encoding of the output file.
+         *
+         * @param value
+         *            value of the option
+         * @return encoding
+         * @throws IllegalArgumentException
+         *             if the encoding is not supported
+         */
+        private static Charset parseEncoding(final String value) {
+            try {
+                return Charset.forName(value);
+            } catch (final IllegalCharsetNameException | UnsupportedCharsetException e) {
+                throw new IllegalArgumentException("Unbekannte Zeichenkodierung: " + value);
+            }
+        }
+    }
+
+    /**
+     * Contains the results of the import of a single directory.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class DirectoryResult {
+
+        private final Path directory;
+        private final int numberOfFiles;
+        private final int numberOfApplicants;
+        private final List<String> invalidFiles;
+        private final List<QuarantinedFile> quarantinedFiles;
+        private final Map<String, String> invalidFileReasons;
+        private final long importTime;
+
+        /**
+         * Stores the results of a finished import.
+         *
+         * @param directory
+         *            imported directory
+         * @param importer
+         *            importer that has finished
+         * @param importTime
+         *            duration of the import in milliseconds
+         */
+        private DirectoryResult(final Path directory, final PdfFormImporter importer,
+                final long importTime) {
+            this.directory = directory;
+            this.numberOfFiles = importer.getNumberOfPdfFiles();
+            this.numberOfApplicants = importer.getListOfStudents().size();
+            this.invalidFiles = new ArrayList<>(importer.getListOfInvalidPdfFiles());
+            this.quarantinedFiles = new ArrayList<>(importer.getListOfQuarantinedFiles());
+            this.invalidFileReasons = new TreeMap<>(importer.getReasonsForInvalidPdfFiles());
+            this.importTime = importTime;
+        }
+    }
+
+    /**
+     * Starts the import and export with the given command line arguments and exits the VM with the
+     * resulting exit code.
+     *
+     * @param args
+     *            command line arguments
+     */
+    public static void main(final String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Imports all given directories and exports the applicants.
+     *
+     * @param args
+     *            command line arguments
+     * @param out
+     *            stream for messages and the summary
+     * @param err
+     *            stream for error messages
+     * @return exit code
+     */
+    static int run(final String[] args, final PrintStream out, final PrintStream err) {
+        final Options options;
+        try {
+            options = Options.parse(args);
+        } catch (final IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (options.showHelp) {
+            out.println(USAGE);
+            return EXIT_SUCCESS;
+        }
+
+        // check all paths before the first directory is imported
+        for (final Path directory : options.directories) {
+            if (!Files.exists(directory)) {
+                err.println("Verzeichnis nicht gefunden: " + directory);
+                return EXIT_FAILURE;
+            }
+        }
+        final Path outputDirectory = options.outputFile.toAbsolutePath().getParent();
+        if (outputDirectory != null && !Files.isDirectory(outputDirectory)) {
+            err.println("Verzeichnis für Ausgabedatei nicht gefunden: " + outputDirectory);
+            return EXIT_FAILURE;
+        }
+
+        final long startTime = System.nanoTime();
+        // applicants of all directories are stored column by column to keep large imports small
+        final ApplicantStore applicants = new ApplicantStore();
+        // row views of the stored applicants sorted by file name within every directory
+        final List<Applicant> exportedApplicants = new ArrayList<>();
+        final ValueDictionary valueDictionary = new ValueDictionary();
+        final List<DirectoryResult> results = new ArrayList<>();
+        for (final Path directory : options.directories) {
+            logger.info("Importing applicants from " + directory);
+            final long importStart = System.nanoTime();
+            final PdfFormImporter importer = new PdfFormImporter.ImporterBuilder(directory)
+                    .setNumberOfThreads(options.numberOfThreads).setApplicantStore(applicants)
+                    .setValueDictionary(valueDictionary)
+                    .setWorkerProcesses(options.workerProcesses)
+                    .setSchedulingPolicy(options.schedulingPolicy)
+                    .setCacheDirectory(options.cacheDirectory).setRecursive(options.recursive)
+                    .setIncludePatterns(options.includePatterns)
+                    .setExcludePatterns(options.excludePatterns).build();
+            try {
+                importer.getImportHandle().get();
+            } catch (final ExecutionException e) {
+                logger.error("Import of directory " + directory + " failed: " + e.getCause());
+                err.println("Import aus " + directory + " fehlgeschlagen: " + e.getCause());
+                return EXIT_FAILURE;
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return EXIT_FAILURE;
+            } finally {
+                importer.disposeImporter();
+            }
+            results.add(new DirectoryResult(directory, importer, elapsedMillis(importStart)));
+            exportedApplicants.addAll(importer.getListOfStudents());
+        }
+
+        final long exportStart = System.nanoTime();
+        final BbsPlanungExporter exporter = new BbsPlanungExporter(options.outputFile,
+                exportedApplicants, options.exportInvalidApplicants, options.encoding);
+        final long exportTime = elapsedMillis(exportStart);
+        if (!exporter.isFileWritten()) {
+            logger.error("Could not write export file " + options.outputFile);
+            err.println("Ausgabedatei konnte nicht geschrieben werden: " + options.outputFile);
+            return EXIT_FAILURE;
+        }
+        out.println(String.format("%d von %d Bewerbern nach %s exportiert.",
+                exporter.getNumberExportedApplicants(), applicants.size(), options.outputFile));
+
+        if (options.summaryFile != null) {
+            final String summary = buildSummary(options, results, applicants, valueDictionary,
+                    exporter, exportTime, elapsedMillis(startTime));
+            if (STANDARD_OUTPUT.equals(options.summaryFile)) {
+                out.println(summary);
+            } else {
+                try {
+                    Files.write(Paths.get(options.summaryFile),
+                            summary.getBytes(StandardCharsets.UTF_8));
+                } catch (final IOException e) {
+                    logger.error("Could not write summary: " + e.getMessage());
+                    err.println("Zusammenfassung konnte nicht geschrieben werden: "
+                            + options.summaryFile);
+                    return EXIT_FAILURE;
+                }
+            }
+        }
+        return EXIT_SUCCESS;
+    }
+
+    /**
+     * Returns the milliseconds since a given start time.
+     *
+     * @param startTime
+     *            start time from System.nanoTime()
+     * @return elapsed time in milliseconds
+     */
+    private static long elapsedMillis(final long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Builds the summary of the whole run as JSON object.
+     *
+     * @param options
+     *            options from the command line
+     * @param results
+     *            results of all imported directories
+     * @param applicants
+     *            store containing the applicants of all directories
+     * @param valueDictionary
+     *            dictionary used to deduplicate the values of all directories
+     * @param exporter
+     *            exporter that has written the output file
+     * @param exportTime
+     *            duration of the export in milliseconds
+     * @param totalTime
+     *            duration of the whole run in milliseconds
+     * @return summary as JSON string
+     */
+    private static String buildSummary(final Options options, final List<DirectoryResult> results,
+            final ApplicantStore applicants, final ValueDictionary valueDictionary,
+            final BbsPlanungExporter exporter, final long exportTime, final long totalTime) {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("{\n");
+        builder.append("  \"outputFile\": ").append(quote(options.outputFile.toString()));
+        builder.append(",\n  \"encoding\": ").append(quote(options.encoding.name()));
+        builder.append(",\n  \"schedulingPolicy\": ");
+        builder.append(quote(options.schedulingPolicy.name()));
+        builder.append(",\n  \"directories\": [");
+        for (int i = 0; i < results.size(); i++) {
+            final DirectoryResult result = results.get(i);
+            builder.append(i == 0 ? "\n" : ",\n");
+            builder.append("    {\n      \"directory\": ");
+            builder.append(quote(result.directory.toString()));
+            builder.append(",\n      \"files\": ").append(result.numberOfFiles);
+            builder.append(",\n      \"applicants\": ").append(result.numberOfApplicants);
+            builder.append(",\n      \"invalidFiles\": [");
+            for (int j = 0; j < result.invalidFiles.size(); j++) {
+                builder.append(j == 0 ? "" : ", ").append(quote(result.invalidFiles.get(j)));
+            }
+            builder.append("],\n      \"invalidFileReasons\": {");
+            boolean first = true;
+            for (final Map.Entry<String, String> entry : result.invalidFileReasons.entrySet()) {
+                builder.append(first ? "" : ", ").append(quote(entry.getKey()));
+                builder.append(": ").append(quote(entry.getValue()));
+                first = false;
+            }
+            builder.append("},\n      \"quarantinedFiles\": [");
+            for (int j = 0; j < result.quarantinedFiles.size(); j++) {
+                final QuarantinedFile file = result.quarantinedFiles.get(j);
+                builder.append(j == 0 ? "" : ", ");
+                builder.append("{\"file\": ").append(quote(file.getFileName()));
+                builder.append(", \"reason\": ").append(quote(file.getReason())).append("}");
+            }
+            builder.append("],\n      \"importMillis\": ").append(result.importTime);
+            builder.append("\n    }");
+        }
+        builder.append(results.isEmpty() ? "]" : "\n  ]");
+        // the validation results are read column by column without creating row views
+        builder.append(",\n  \"invalidApplicants\": ").append(applicants.countInvalidApplicants());
+        builder.append(",\n  \"invalidValues\": {");
+        boolean first = true;
+        for (final DataField dataField : DataField.values()) {
+            final int numberOfRows = applicants.findInvalidValues(dataField).length;
+            if (numberOfRows > 0) {
+                builder.append(first ? "" : ", ").append(quote(dataField.name()));
+                builder.append(": ").append(numberOfRows);
+                first = false;
+            }
+        }
+        builder.append("}");
+        builder.append(",\n  \"deduplicationHitRatio\": ");
+        builder.append(String.format(Locale.ROOT, "%.3f", valueDictionary.getTotalHitRatio()));
+        builder.append(",\n  \"exportedApplicants\": ");
+        builder.append(exporter.getNumberExportedApplicants());
+        builder.append(",\n  \"exportErrors\": ").append(exporter.getListOfExportErrors().size());
+        builder.append(",\n  \"exportMillis\": ").append(exportTime);
+        builder.append(",\n  \"totalMillis\": ").append(totalTime);
+        builder.append("\n}");
+        return builder.toString();
+    }
+
+    /**
+     * Quotes a string for a JSON document.
+     *
+     * @param s
+     *            string to be quoted
+     * @return quoted and escaped string
+     */
+    private static String quote(final String s) {
+        final StringBuilder builder = new StringBuilder(s.length() + 2);
+        builder.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            switch (c) {
+            case '"':
+                builder.append("\\\"");
+                break;
+            case '\\':
+                builder.append("\\\\");
+                break;
+            case '\n':
+                builder.append("\\n");
+                break;
+            case '\r':
+                builder.append("\\r");
+                break;
+            case '\t':
+                builder.append("\\t");
+                break;
+            default:
+                if (c < ' ') {
+                    builder.append(String.format("\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+        }
+        builder.append('"');
+        return builder.toString();
+    }
+}
@@ -7,7 +7,10 @@ import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
@@ -15,6 +18,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.ichmann.applicant_importer.model.Applicant;
+import de.ichmann.applicant_importer.model.ApplicantStore;
+import de.ichmann.applicant_importer.model.ColumnScanner;
 import de.ichmann.applicant_importer.model.DataField;
 import de.ichmann.applicant_importer.model.DateHelper;
 import de.ichmann.applicant_importer.model.Degree;
@@ -36,6 +41,12 @@ public class BbsPlanungExporter {
     private static final char FIELD_DELIMITER = ';';
     private static final String DEFAULT_ENCODING = "ISO-8859-15";
 
+    /**
+     * Default encoding of the exported file. BBS-Planung runs under MS Windows and expects Latin
+     * characters.
+     */
+    public static final Charset DEFAULT_CHARSET = Charset.forName(DEFAULT_ENCODING);
+
     // set all header for fields in CSV file
     private static final Object[] FILE_HEADER = {"SNR", "KL_NAME", "LFD", "STATUS", "NR_SCHÜLER",
             "NNAME", "VNAME", "GEBDAT", "GEBORT", "STR", "PLZ", "ORT", "TEL", "FAX", "LDK",
@@ -112,7 +123,9 @@ public class BbsPlanungExporter {
         }
     }
 
+    private final Charset encoding;
     private int numberExportedApplicants = 0;
+    private boolean fileWritten = false;
     private final List<ExportError> listOfExportErrors = new ArrayList<>();
 
     /**
@@ -121,32 +134,55 @@ public class BbsPlanungExporter {
      * @param file
      *            file to which export the applicants data
      * @param listOfApplicants
-     *            list containing all applicants
+     *            all applicants to be exported, e.g. a list, an ApplicantStore or an
+     *            ApplicantQueue of a running import
      * @param exportInvalidApplicants
      *            whether to export applicants with invalid data fields
      */
-    public BbsPlanungExporter(final Path file, final List<Applicant> listOfApplicants,
+    public BbsPlanungExporter(final Path file, final Iterable<Applicant> listOfApplicants,
             final boolean exportInvalidApplicants) {
+        this(file, listOfApplicants, exportInvalidApplicants, DEFAULT_CHARSET);
+    }
 
-        if (file == null || listOfApplicants == null) {
+    /**
+     * Instantiates a new exporter object that writes the file in a given encoding. Applicants
+     * whose data can not be encoded are not exported but reported as export errors.
+     *
+     * @param file
+     *            file to which export the applicants data
+     * @param listOfApplicants
+     *            all applicants to be exported, e.g. a list, an ApplicantStore or an
+     *            ApplicantQueue of a running import
+     * @param exportInvalidApplicants
+     *            whether to export applicants with invalid data fields
+     * @param encoding
+     *            encoding of the exported file
+     */
+    public BbsPlanungExporter(final Path file, final Iterable<Applicant> listOfApplicants,
+            final boolean exportInvalidApplicants, final Charset encoding) {
+
+        if (file == null || listOfApplicants == null || encoding == null) {
             throw new IllegalArgumentException(
-                    "Parameter file and listOfApplicants must not be null");
+                    "Parameter file, listOfApplicants and encoding must not be null");
         }
+        this.encoding = encoding;
 
         exportApplicantData(file, listOfApplicants, exportInvalidApplicants);
     }
 
     /**
-     * Exports all applicants from a given list to a given file.
+     * Exports all applicants from a given list to a given file. If the applicants are stored in
+     * an ApplicantStore, their validation results and the zip codes are read by scanning single
+     * columns of the store instead of reading them from every row view.
      *
      * @param file
      *            file name to export data to
      * @param listOfApplicants
-     *            list of applicants to be exported
+     *            applicants to be exported
      * @param exportInvalidApplicants
      *            whether to export applicants with invalid data
      */
-    private void exportApplicantData(final Path file, final List<Applicant> listOfApplicants,
+    private void exportApplicantData(final Path file, final Iterable<Applicant> listOfApplicants,
             final boolean exportInvalidApplicants) {
         // clear all errors from previous exports
         listOfExportErrors.clear();
@@ -159,19 +195,44 @@ public class BbsPlanungExporter {
                 .withDelimiter(FIELD_DELIMITER);
 
         try {
-            // open file to write to (in Latin encoding because BBS-Planung runs under MS Windows)
+            // open file to write to (by default in Latin encoding for BBS-Planung)
             final FileOutputStream fos = new FileOutputStream(file.toFile());
-            osw = new OutputStreamWriter(fos, Charset.forName(DEFAULT_ENCODING).newEncoder());
+            osw = new OutputStreamWriter(fos, encoding.newEncoder());
 
             csvFilePrinter = new CSVPrinter(osw, csvFileFormat);
 
             // create CSV file header
             csvFilePrinter.printRecord(FILE_HEADER);
 
+            BitSet invalidRows = null;
+            String[] countyIDs = null;
+            if (listOfApplicants instanceof ApplicantStore) {
+                final ApplicantStore store = (ApplicantStore) listOfApplicants;
+                invalidRows = exportInvalidApplicants ? null : store.findInvalidApplicants();
+                countyIDs = findCountyIDs(store);
+            }
+
             // write a new student object list to the CSV file
             int index = 1;
+            int row = 0;
             for (final Applicant applicant : listOfApplicants) {
-                if (exportInvalidApplicants || applicant.checkPlausibility()) {
+                final boolean exported;
+                if (exportInvalidApplicants) {
+                    exported = true;
+                } else if (invalidRows != null) {
+                    exported = !invalidRows.get(row);
+                } else {
+                    exported = applicant.checkPlausibility();
+                }
+                final String countyID;
+                if (countyIDs != null) {
+                    countyID = countyIDs[row];
+                } else {
+                    final String zipCode = DataField.ZIP_CODE.getFrom(applicant);
+                    countyID = findCountyID(zipCode);
+                }
+                row++;
+                if (exported) {
                     final List<String> applicantDataRecord = new ArrayList<>();
 
                     applicantDataRecord.add("72679"); // Schulnummer
@@ -180,7 +241,7 @@ public class BbsPlanungExporter {
                     applicantDataRecord.add(""); // Status
                     applicantDataRecord.add(String.valueOf(index)); // Schülernummer
 
-                    filloutApplicantData(applicant, applicantDataRecord);
+                    filloutApplicantData(applicant, countyID, applicantDataRecord);
 
                     filloutSchoolData(applicant, applicantDataRecord);
 
@@ -204,6 +265,7 @@ public class BbsPlanungExporter {
             }
 
             numberExportedApplicants = index - 1;
+            fileWritten = true;
             logger.info(String.format("%d applicants sucessfully exported to CSV file.", index - 1));
 
         } catch (final IOException e) {
@@ -220,6 +282,7 @@ public class BbsPlanungExporter {
                 }
             } catch (final IOException e) {
                 logger.error("Error while flushing/closing fileWriter/csvPrinter !!!");
+                fileWritten = false;
             }
         }
     }
@@ -239,7 +302,7 @@ public class BbsPlanungExporter {
     private boolean canApplicantDataBeEncoded(final Applicant applicant,
             final List<String> applicantDataRecord) {
 
-        final CharsetEncoder encoder = Charset.forName(DEFAULT_ENCODING).newEncoder();
+        final CharsetEncoder encoder = encoding.newEncoder();
         for (final String s : applicantDataRecord) {
             if (!encoder.canEncode(s)) {
                 // register error for later output in the user interface
@@ -250,15 +313,62 @@ public class BbsPlanungExporter {
         return true;
     }
 
+    /**
+     * Looks up the county IDs of all applicants in a store by scanning the column of the zip
+     * codes. Every distinct zip code is converted only once.
+     *
+     * @param store
+     *            store containing the applicants
+     * @return county IDs by the row of the applicant, null for zip codes that are not a number
+     */
+    private static String[] findCountyIDs(final ApplicantStore store) {
+        final String[] countyIDs = new String[store.size()];
+        final Map<Object, String> countyIDsByZipCode = new HashMap<>();
+        store.scanColumn(DataField.ZIP_CODE, new ColumnScanner() {
+            @Override
+            public void scan(final int row, final Object value) {
+                String countyID = countyIDsByZipCode.get(value);
+                if (countyID == null && !countyIDsByZipCode.containsKey(value)) {
+                    countyID = findCountyID((String) value);
+                    countyIDsByZipCode.put(value, countyID);
+                }
+                countyIDs[row] = countyID;
+            }
+        });
+        return countyIDs;
+    }
+
+    /**
+     * Looks up the ID of the county of a given zip code.
+     *
+     * @param zipCode
+     *            zip code of an applicant
+     * @return county ID, an empty string for unknown zip codes or null, if the zip code is not a
+     *         number
+     */
+    private static String findCountyID(final String zipCode) {
+        if (zipCode == null) {
+            return "";
+        }
+        try {
+            final Integer zipCodeAsNumber = Integer.valueOf(zipCode.trim());
+            return Zip2CountyConverter.getInstance().convertZipCode(zipCodeAsNumber);
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Fill out the applicants data like her name, address and so on.
      *
      * @param applicant
      *            applicants data to be exported
+     * @param countyID
+     *            ID of the county of the applicant or null, if the zip code is not a number
      * @param applicantDataRecord
      *            list of all data to be exported in the correct order
      */
-    private void filloutApplicantData(final Applicant applicant,
+    private void filloutApplicantData(final Applicant applicant, final String countyID,
             final List<String> applicantDataRecord) {
         applicantDataRecord.add(String.valueOf(applicant.getValue(DataField.LAST_NAME))); // Nachname
         applicantDataRecord.add(String.valueOf(applicant.getValue(DataField.FIRST_NAME))); // Vorname
@@ -271,25 +381,19 @@ public class BbsPlanungExporter {
         applicantDataRecord.add(String.valueOf(applicant.getValue(DataField.PHONE))); // Telefon
         applicantDataRecord.add(""); // Fax
 
-        // parse zip code and corresponding county ID
-        String countyID = "";
-        try {
-            final String zipCode = DataField.ZIP_CODE.getFrom(applicant);
-            if (zipCode != null) {
-                final Integer zipCodeAsNumber = Integer.valueOf(zipCode.trim());
-                countyID = Zip2CountyConverter.getInstance().convertZipCode(zipCodeAsNumber);
-            } else {
-                countyID = "";
-            }
-        } catch (final NumberFormatException e) {
+        String county = countyID;
+        if (county == null) {
             logger.warn("Could not parse zip code of applicant " + applicant + " while exporting!");
+            county = "";
         }
-        applicantDataRecord.add(countyID); // LDK
+        applicantDataRecord.add(county); // LDK
         applicantDataRecord.add(""); // LDK_Z
-        applicantDataRecord.add(countyID); // Landkreis
+        applicantDataRecord.add(county); // Landkreis
         applicantDataRecord.add(String.valueOf(applicant.getValue(DataField.EMAIL))); // E-Mail-Adresse
 
-        final String gender = "m".equals(applicant.getValue(DataField.GENDER)) ? "1" : "2";
+        // the "empty" value of the gender is 'm', so applicants without gender are checked first
+        final String gender = applicant.wasImported(DataField.GENDER)
+                && Character.valueOf('m').equals(applicant.getValue(DataField.GENDER)) ? "1" : "2";
         applicantDataRecord.add(gender); // Geschlecht
         final Religion r = DataField.RELIGION.getFrom(applicant);
         if (r != null) {
@@ -581,8 +685,19 @@ public class BbsPlanungExporter {
     }
 
     /**
-     * Returns a list with all errors that occured during the last export. If the list is empty, the
-     * export was completely successful.
+     * Returns whether the export file has been completely written. If the file could not be opened,
+     * written or closed, no applicants should be considered exported regardless of the value of
+     * {@link #getNumberExportedApplicants()}.
+     *
+     * @return true, if and only if the export file has been completely written
+     */
+    public final boolean isFileWritten() {
+        return fileWritten;
+    }
+
+    /**
+     * Returns a list with all errors that occured during the last export. If the list is empty and
+     * the file has been written, the export was completely successful.
      *
      * @return list with all errors of last export
      */
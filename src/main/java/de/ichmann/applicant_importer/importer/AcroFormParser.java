@@ -0,0 +1,211 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.pdfparser.NonSequentialPDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * Opens a PDF file with only those objects parsed that are needed to read its form fields. The
+ * trailer and the catalog are read through the cross reference table, just like the preflight
+ * check does. Starting at the AcroForm entry of the catalog, only the field objects and their
+ * values are parsed by their offsets in the cross reference table. Pages, their contents, fonts
+ * and other resources are never read. Appearances are only read for buttons, whose on state is
+ * stored as a key of their appearance dictionary, but even for them the appearance streams are
+ * not parsed.
+ * <p>
+ * The non-sequential parser of PDFBox 1.8 parses all objects reachable from the catalog, unless
+ * the system property for a minimal catalog is set when it is created. This class therefore sets
+ * the property, if it has not been set otherwise.
+ *
+ * @author Christian Wichmann
+ */
+final class AcroFormParser extends NonSequentialPDFParser {
+
+    static {
+        if (System.getProperty(SYSPROP_PARSEMINIMAL) == null) {
+            System.setProperty(SYSPROP_PARSEMINIMAL, "true");
+        }
+    }
+
+    /**
+     * Entries of field dictionaries that are needed to read the names and values of all fields.
+     * All other entries (e.g. the page of a widget or its actions) are never parsed.
+     */
+    private static final Set<COSName> FIELD_ENTRIES = new HashSet<>(Arrays.asList(
+            COSName.FIELDS, COSName.KIDS, COSName.PARENT, COSName.T, COSName.TU,
+            COSName.getPDFName("TM"), COSName.FT, COSName.FF, COSName.V, COSName.DV, COSName.OPT,
+            COSName.AS));
+
+    /**
+     * Entries of appearance dictionaries whose keys contain the states of check boxes and radio
+     * buttons. The appearance streams themselves are not needed.
+     */
+    private static final Set<COSName> APPEARANCE_ENTRIES = new HashSet<>(Arrays.asList(
+            COSName.N, COSName.D, COSName.R));
+
+    private static final COSName BUTTON = COSName.getPDFName("Btn");
+
+    /**
+     * Maximum number of parents that are followed to find the inherited type of a field, so that
+     * broken files with cyclic parents are handled.
+     */
+    private static final int MAX_FIELD_DEPTH = 32;
+
+    private final Set<COSBase> resolvedObjects = Collections
+            .newSetFromMap(new IdentityHashMap<COSBase, Boolean>());
+
+    /**
+     * Initializes a new parser for a PDF file.
+     *
+     * @param file
+     *            PDF file to be parsed
+     * @param scratch
+     *            scratch file for decoded stream data or null, if data should be kept in memory
+     * @throws IOException
+     *             if the file could not be opened
+     */
+    AcroFormParser(final File file, final RandomAccess scratch) throws IOException {
+        super(file, scratch);
+    }
+
+    /**
+     * Parses the trailer, the catalog and all form fields of the file. The file stays open until
+     * the returned document is closed.
+     *
+     * @return document containing the parsed catalog and form fields
+     * @throws IOException
+     *             if the file could not be parsed
+     */
+    PDDocument parseForm() throws IOException {
+        boolean parsed = false;
+        try {
+            parseHeader();
+            pdfSource.seek(0);
+            initialParse();
+            final COSObject catalog = document.getCatalog();
+            if (catalog != null && catalog.getObject() instanceof COSDictionary) {
+                final COSDictionary root = (COSDictionary) catalog.getObject();
+                resolveField(root.getItem(COSName.ACRO_FORM));
+            }
+            final PDDocument pdfDocument = getPDDocument();
+            parsed = true;
+            return pdfDocument;
+        } finally {
+            if (!parsed) {
+                if (document != null) {
+                    document.close();
+                }
+                clearResources();
+            }
+        }
+    }
+
+    /**
+     * Parses an object, if it is a reference to an object that has not been parsed yet.
+     *
+     * @param base
+     *            direct object or reference
+     * @return parsed object or null, if the referenced object does not exist
+     * @throws IOException
+     *             if the object could not be parsed
+     */
+    private COSBase resolve(final COSBase base) throws IOException {
+        if (base instanceof COSObject) {
+            final COSObject object = (COSObject) base;
+            if (object.getObject() == null) {
+                parseObjectDynamically(object, false);
+            }
+            return object.getObject();
+        }
+        return base;
+    }
+
+    /**
+     * Parses the AcroForm dictionary, a field or a value of a field together with all objects
+     * referenced by entries that are needed to read the fields.
+     *
+     * @param base
+     *            direct object or reference
+     * @throws IOException
+     *             if an object could not be parsed
+     */
+    private void resolveField(final COSBase base) throws IOException {
+        final COSBase object = resolve(base);
+        if (object == null || !resolvedObjects.add(object)) {
+            return;
+        }
+        if (object instanceof COSArray) {
+            final COSArray array = (COSArray) object;
+            for (int i = 0; i < array.size(); i++) {
+                resolveField(array.get(i));
+            }
+        } else if (object instanceof COSDictionary && !(object instanceof COSStream)) {
+            final COSDictionary dictionary = (COSDictionary) object;
+            for (final COSName key : dictionary.keySet()) {
+                if (FIELD_ENTRIES.contains(key)) {
+                    resolveField(dictionary.getItem(key));
+                }
+            }
+            // the on state of check boxes and radio buttons is only stored in their appearance
+            if (dictionary.containsKey(COSName.AP) && isButton(dictionary)) {
+                resolveAppearance(dictionary.getItem(COSName.AP));
+            }
+        }
+    }
+
+    /**
+     * Checks whether a field is a button. The field type can be inherited from the parent fields,
+     * which have been parsed before their kids.
+     *
+     * @param field
+     *            field dictionary
+     * @return true, if the field is a check box, a radio button or a push button
+     */
+    private static boolean isButton(final COSDictionary field) {
+        COSDictionary current = field;
+        for (int depth = 0; current != null && depth < MAX_FIELD_DEPTH; depth++) {
+            final COSBase fieldType = current.getDictionaryObject(COSName.FT);
+            if (fieldType != null) {
+                return BUTTON.equals(fieldType);
+            }
+            final COSBase parent = current.getDictionaryObject(COSName.PARENT);
+            current = parent instanceof COSDictionary ? (COSDictionary) parent : null;
+        }
+        return false;
+    }
+
+    /**
+     * Parses the appearance dictionary of a widget and its sub dictionaries, but not the
+     * appearance streams.
+     *
+     * @param base
+     *            direct object or reference
+     * @throws IOException
+     *             if an object could not be parsed
+     */
+    private void resolveAppearance(final COSBase base) throws IOException {
+        final COSBase object = resolve(base);
+        if (object instanceof COSDictionary) {
+            final COSDictionary dictionary = (COSDictionary) object;
+            for (final COSName key : dictionary.keySet()) {
+                if (APPEARANCE_ENTRIES.contains(key)) {
+                    resolve(dictionary.getItem(key));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.pdfbox.io.RandomAccessFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens PDF files with PDFBox and reads the values of their form fields. It is used by the parser
+ * threads of the PdfFormImporter and by the worker processes of a WorkerProcessPool.
+ *
+ * @author Christian Wichmann
+ */
+final class AcroFormReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(AcroFormReader.class);
+
+    /**
+     * Private constructor of utility class.
+     */
+    private AcroFormReader() {
+    }
+
+    /**
+     * Opens a PDF file for reading its form fields. Only the trailer, the catalog and the objects
+     * of the form fields are parsed by their offsets in the cross reference table, so pages, fonts
+     * and other resources are never read (see AcroFormParser). If the cross reference table of a
+     * file is broken, the file is parsed completely as fallback.
+     *
+     * @param path
+     *            path describing the PDF file to be opened
+     * @param scratch
+     *            scratch file for decoded stream data or null, if data should be kept in memory
+     * @return opened PDF document
+     * @throws IOException
+     *             if the file could not be opened by any parser
+     */
+    static PDDocument open(final Path path, final RandomAccessFile scratch) throws IOException {
+        try {
+            return new AcroFormParser(path.toFile(), scratch).parseForm();
+        } catch (final FileNotFoundException e) {
+            throw e;
+        } catch (final IOException e) {
+            logger.debug("Could not open PDF file lazily, parsing whole file: " + path);
+            return PDDocument.load(path.toFile(), scratch);
+        }
+    }
+
+    /**
+     * Opens a PDF file that has been read into memory for reading its form fields. The content is
+     * parsed by the sequential parser, which reads it directly from memory. The non-sequential
+     * parser of PDFBox 1.8 can only read its source from a file and would copy the content into a
+     * temporary file, which would undo reading the file ahead.
+     *
+     * @param content
+     *            complete content of the PDF file
+     * @param scratch
+     *            scratch file for decoded stream data or null, if data should be kept in memory
+     * @return opened PDF document
+     * @throws IOException
+     *             if the content could not be parsed
+     */
+    static PDDocument open(final byte[] content, final RandomAccessFile scratch)
+            throws IOException {
+        return PDDocument.load(new ByteArrayInputStream(content), scratch);
+    }
+
+    /**
+     * Opens a PDF document from a stream for reading its form fields. This is used for entries of
+     * an archive, which can not be opened as file. The non-sequential parser of PDFBox copies a
+     * stream into a temporary file before parsing it, so the stream is parsed completely by the
+     * sequential parser instead. The stream is closed afterwards.
+     *
+     * @param in
+     *            stream containing the PDF file
+     * @param scratch
+     *            scratch file for decoded stream data or null, if data should be kept in memory
+     * @return opened PDF document
+     * @throws IOException
+     *             if the stream could not be parsed
+     */
+    static PDDocument open(final InputStream in, final RandomAccessFile scratch)
+            throws IOException {
+        try (InputStream bufferedIn = new BufferedInputStream(in)) {
+            return PDDocument.load(bufferedIn, scratch);
+        }
+    }
+
+    /**
+     * Reads the values of all form fields of an opened PDF document. The values are stored by the
+     * fully qualified name of their form field in the order in which the fields are stored in the
+     * PDF file.
+     *
+     * @param pdfDocument
+     *            opened PDF document
+     * @return map with all form field values or null, if the document contains no form
+     * @throws IOException
+     *             if the form fields could not be read
+     */
+    static Map<String, String> readFields(final PDDocument pdfDocument) throws IOException {
+        final PDDocumentCatalog docCatalog = pdfDocument.getDocumentCatalog();
+        final PDAcroForm acroForm = docCatalog.getAcroForm();
+        if (acroForm == null) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final List<PDField> formFields = acroForm.getFields();
+
+        final Map<String, String> formFieldValues = new LinkedHashMap<>();
+        for (final PDField pdField : formFields) {
+            final String value = pdField.getValue();
+            formFieldValues.put(pdField.getFullyQualifiedName(), value);
+
+            logger.debug(pdField.getFieldType() + " - " + pdField.getFullyQualifiedName() + " - "
+                    + pdField.getPartialName() + " - " + value);
+        }
+        return formFieldValues;
+    }
+
+    /**
+     * Reads the values of all form fields from a PDF file on disk. The file is checked by the
+     * preflight check first. Files larger than the given threshold are opened with a scratch file.
+     * Files that can be read but not be parsed are handled like files without a form.
+     *
+     * @param path
+     *            path describing the PDF file to be read
+     * @param scratchFileThreshold
+     *            size in bytes above which a scratch file is used
+     * @return map with all form field values or null, if the file could not be parsed or
+     *         contains no form
+     * @throws IOException
+     *             if the file could not be read
+     * @throws RejectedFileException
+     *             if the file has been rejected by the preflight check
+     */
+    static Map<String, String> readFile(final Path path, final long scratchFileThreshold)
+            throws IOException, RejectedFileException {
+        final String rejection = PdfPreflight.check(path);
+        if (rejection != null) {
+            throw new RejectedFileException(rejection);
+        }
+        Path scratchFile = null;
+        RandomAccessFile scratch = null;
+        PDDocument pdfDocument = null;
+        try {
+            if (Files.size(path) > scratchFileThreshold) {
+                scratchFile = Files.createTempFile("pdf_scratch_", null);
+                scratch = new RandomAccessFile(scratchFile.toFile(), "rw");
+            }
+            pdfDocument = open(path, scratch);
+            return readFields(pdfDocument);
+        } catch (final FileNotFoundException | FileSystemException e) {
+            // the file could not be opened at all, so it has not been parsed
+            throw e;
+        } catch (final IOException e) {
+            logger.debug("Could not parse PDF file: " + path);
+            return null;
+        } finally {
+            if (pdfDocument != null) {
+                pdfDocument.close();
+            }
+            if (scratch != null) {
+                scratch.close();
+            }
+            if (scratchFile != null) {
+                Files.deleteIfExists(scratchFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package de.ichmann.applicant_importer.importer;
+
+import de.ichmann.applicant_importer.model.Applicant;
+
+/**
+ * Receives every applicant as soon as its PDF file has been parsed by the PdfFormImporter. Because
+ * PDF files are parsed in parallel, the methods of this interface are called by different threads
+ * and in the order in which the parser threads finish, not in the order of the file names.
+ * Implementations therefore have to be thread-safe.
+ * <p>
+ * The importer holds no lock while calling applicantImported(). An implementation may block to
+ * slow down the import, which only holds up the calling parser thread. When the import is
+ * cancelled, blocked parser threads are interrupted.
+ *
+ * @author Christian Wichmann
+ */
+public interface ApplicantListener {
+
+    /**
+     * Is called for every applicant that has been successfully read from a PDF file.
+     *
+     * @param applicant
+     *            newly imported applicant
+     */
+    void applicantImported(Applicant applicant);
+
+    /**
+     * Is called once after all PDF files have been parsed. No further applicants will follow.
+     */
+    void importFinished();
+}
@@ -0,0 +1,151 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import de.ichmann.applicant_importer.model.Applicant;
+
+/**
+ * Provides the applicants of a running import as a blocking iterator. When this queue is given as
+ * ApplicantListener to a PdfFormImporter, every applicant can be taken from the iterator as soon as
+ * its PDF file has been parsed. The methods hasNext() and next() block until the next applicant is
+ * available or the import has been finished.
+ * <p>
+ * All applicants can be iterated only once, because they are removed from the queue when they are
+ * returned by the iterator.
+ * <p>
+ * The queue holds only a limited number of applicants. When it is full, the parser threads wait
+ * until the consumer has taken applicants from the iterator, so that a slow consumer slows down
+ * the import instead of letting the whole list of applicants pile up in memory. Therefore the
+ * queue has to be consumed while the import is running.
+ *
+ * @author Christian Wichmann
+ */
+public final class ApplicantQueue implements ApplicantListener, Iterable<Applicant> {
+
+    /**
+     * Marks the end of the import inside the queue. Because a BlockingQueue can not contain null
+     * values, an empty applicant is used instead.
+     */
+    private static final Applicant END_OF_IMPORT = new Applicant.ApplicantBuilder().build();
+
+    /**
+     * Default maximum number of applicants that have been imported but not yet been taken.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final BlockingQueue<Applicant> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Free places for applicants in the queue. The end of the import does not take a place, so that
+     * it can always be added without waiting for the consumer.
+     */
+    private final Semaphore freePlaces;
+
+    /**
+     * Iterates over all applicants in the queue and waits for new applicants as long as the import
+     * has not been finished.
+     *
+     * @author Christian Wichmann
+     */
+    private final class BlockingIterator implements Iterator<Applicant> {
+
+        private Applicant nextApplicant = null;
+        private boolean isFinished = false;
+
+        @Override
+        public boolean hasNext() {
+            if (nextApplicant == null && !isFinished) {
+                try {
+                    nextApplicant = queue.take();
+                    if (nextApplicant != END_OF_IMPORT) {
+                        freePlaces.release();
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    nextApplicant = END_OF_IMPORT;
+                }
+                if (nextApplicant == END_OF_IMPORT) {
+                    nextApplicant = null;
+                    isFinished = true;
+                }
+            }
+            return nextApplicant != null;
+        }
+
+        @Override
+        public Applicant next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("All imported applicants have been returned");
+            }
+            final Applicant a = nextApplicant;
+            nextApplicant = null;
+            return a;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Applicants can not be removed from queue");
+        }
+    }
+
+    /**
+     * Initializes a new queue with the default capacity.
+     */
+    public ApplicantQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initializes a new queue that holds at most a given number of applicants.
+     *
+     * @param capacity
+     *            maximum number of applicants that have been imported but not yet been taken
+     * @throws IllegalArgumentException
+     *             if parameter capacity is not positive
+     */
+    public ApplicantQueue(final int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Parameter capacity must be positive");
+        }
+        this.freePlaces = new Semaphore(capacity);
+    }
+
+    /**
+     * Puts an applicant into the queue and waits while the queue is full. If the parser thread is
+     * interrupted because the import has been cancelled, the applicant is dropped.
+     *
+     * @param applicant
+     *            newly imported applicant
+     */
+    @Override
+    public void applicantImported(final Applicant applicant) {
+        try {
+            freePlaces.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        queue.add(applicant);
+    }
+
+    @Override
+    public void importFinished() {
+        queue.add(END_OF_IMPORT);
+    }
+
+    /**
+     * Returns an iterator over all imported applicants. Calls to hasNext() block until the next
+     * applicant has been imported or the import is finished. If the waiting thread is interrupted,
+     * the iteration ends and the interrupt flag is set again.
+     *
+     * @return blocking iterator over all imported applicants
+     */
+    @Override
+    public Iterator<Applicant> iterator() {
+        return new BlockingIterator();
+    }
+}
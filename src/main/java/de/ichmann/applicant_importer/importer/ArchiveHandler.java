@@ -0,0 +1,141 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.ProviderNotFoundException;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Opens ZIP archives of an import with the zip file system provider, so that the files inside an
+ * archive are read directly without extracting them. The entries are named like
+ * "archive.zip!/entry.pdf". All opened archives stay open until all their entries have been parsed
+ * and are closed together at the end of the import.
+ * <p>
+ * Archives are only opened by the thread listing the import directory.
+ *
+ * @author Christian Wichmann
+ */
+final class ArchiveHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveHandler.class);
+
+    private static final PathMatcher ZIP_FILE_MATCHER = FileSystems.getDefault().getPathMatcher(
+            "glob:*.zip");
+
+    /**
+     * Separates the name of an archive from the name of an entry inside the archive.
+     */
+    private static final String ARCHIVE_ENTRY_SEPARATOR = "!";
+
+    private final List<FileSystem> openedArchives = new ArrayList<>();
+
+    /**
+     * Receives all files containing form data that have been found inside an archive.
+     *
+     * @author Christian Wichmann
+     */
+    interface EntryHandler {
+
+        /**
+         * Is called for every file containing form data inside an archive.
+         *
+         * @param entry
+         *            path of the entry inside the file system of the archive
+         * @param name
+         *            name of the entry including the name of the archive
+         * @param attributes
+         *            attributes of the entry
+         */
+        void entryFound(Path entry, String name, BasicFileAttributes attributes);
+    }
+
+    /**
+     * Checks whether a file is a ZIP archive.
+     *
+     * @param fileName
+     *            name of the file
+     * @return true, if the file is a ZIP archive
+     */
+    static boolean isArchive(final Path fileName) {
+        return ZIP_FILE_MATCHER.matches(fileName);
+    }
+
+    /**
+     * Checks whether a given path describes an entry of an archive instead of a file.
+     *
+     * @param path
+     *            path to be checked
+     * @return true, if path is inside an archive
+     */
+    static boolean isArchiveEntry(final Path path) {
+        return path.getFileSystem() != FileSystems.getDefault();
+    }
+
+    /**
+     * Opens a ZIP archive and passes all files containing form data inside the archive to a given
+     * handler.
+     *
+     * @param archivePath
+     *            ZIP archive to be opened
+     * @param archiveName
+     *            name of the archive used in the names of its entries
+     * @param formFilePattern
+     *            pattern for the names of all files containing form data
+     * @param handler
+     *            handler receiving all found entries
+     * @return true, if the archive has been read, false if it could not be opened
+     */
+    boolean listEntries(final Path archivePath, final String archiveName,
+            final String formFilePattern, final EntryHandler handler) {
+        logger.info("Found archive: " + archivePath);
+        try {
+            final FileSystem archive = FileSystems.newFileSystem(archivePath, (ClassLoader) null);
+            openedArchives.add(archive);
+            final PathMatcher pdfEntryMatcher = archive.getPathMatcher(formFilePattern);
+            for (final Path root : archive.getRootDirectories()) {
+                Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(final Path entry,
+                            final BasicFileAttributes attributes) {
+                        final Path entryName = entry.getFileName();
+                        if (attributes.isRegularFile() && entryName != null
+                                && pdfEntryMatcher.matches(entryName)) {
+                            handler.entryFound(entry, archiveName + ARCHIVE_ENTRY_SEPARATOR
+                                    + entry, attributes);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+            return true;
+        } catch (final IOException | ProviderNotFoundException e) {
+            logger.warn("Could not read archive " + archivePath + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Closes all opened archives. This must only be called after all entries have been parsed.
+     */
+    void closeAll() {
+        for (final FileSystem archive : openedArchives) {
+            try {
+                archive.close();
+            } catch (final IOException e) {
+                logger.warn("Could not close archive.");
+            }
+        }
+        openedArchives.clear();
+    }
+}
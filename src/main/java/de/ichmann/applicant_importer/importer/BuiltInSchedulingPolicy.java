@@ -0,0 +1,36 @@
+package de.ichmann.applicant_importer.importer;
+
+/**
+ * Contains the scheduling policies provided by this application. They can be chosen by their name
+ * on the command line.
+ *
+ * @author Christian Wichmann
+ */
+public enum BuiltInSchedulingPolicy implements SchedulingPolicy {
+
+    /**
+     * Parses the files in the order in which they have been found in the directory.
+     */
+    LISTING_ORDER {
+        @Override
+        public int compare(final long size1, final long sequence1, final long size2,
+                final long sequence2) {
+            return Long.compare(sequence1, sequence2);
+        }
+    },
+
+    /**
+     * Parses the largest files first (longest processing time first). Large files picked up at the
+     * end of an import would keep a single parser thread busy while all others are idle. Starting
+     * them first lets the small files fill the gaps, which shortens the total time of the import.
+     * Files of the same size are parsed in the order of the directory listing.
+     */
+    LARGEST_FIRST {
+        @Override
+        public int compare(final long size1, final long sequence1, final long size2,
+                final long sequence2) {
+            final int result = Long.compare(size2, size1);
+            return result != 0 ? result : Long.compare(sequence1, sequence2);
+        }
+    };
+}
@@ -0,0 +1,27 @@
+package de.ichmann.applicant_importer.importer;
+
+/**
+ * Receives the progress of a recursive import for every single directory in addition to the
+ * progress of the whole import. Directories are named by their path relative to the import
+ * directory, the import directory itself is named by an empty string.
+ * <p>
+ * The progress of a directory is only reported when it has changed since the last report. Before
+ * the end of the import is reported, the final progress of all changed directories is reported.
+ *
+ * @author Christian Wichmann
+ */
+public interface DirectoryProgressListener extends ImportProgressListener {
+
+    /**
+     * Is called when the progress of a single directory has changed. Files inside archives are
+     * counted for the directory containing the archive.
+     *
+     * @param directory
+     *            path of the directory relative to the import directory
+     * @param numberOfFiles
+     *            number of files found so far in this directory
+     * @param numberOfFinishedFiles
+     *            number of files in this directory that have already been parsed
+     */
+    void directoryProgressChanged(String directory, int numberOfFiles, int numberOfFinishedFiles);
+}
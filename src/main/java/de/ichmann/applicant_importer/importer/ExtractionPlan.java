@@ -0,0 +1,171 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.ichmann.applicant_importer.importer.FieldMapping.FieldHandler;
+import de.ichmann.applicant_importer.model.Applicant.ApplicantBuilder;
+
+/**
+ * Contains all steps to extract the applicants data from a single version of the PDF form. A
+ * version of the form is identified by the names of all its form fields. For logging and
+ * statistics every version has a fingerprint, a hash of the sorted names of all form fields, which
+ * is only calculated when the plan is resolved. The plan is resolved once for every version and
+ * contains only the form fields that are mapped to a data field, so that all PDF files of the same
+ * version can be handled without looking up any unknown fields.
+ *
+ * @author Christian Wichmann
+ */
+public final class ExtractionPlan {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /**
+     * Values of control buttons inside the PDF form that are ignored.
+     */
+    private static final String PRINT_BUTTON = "Formular drucken";
+    private static final String SEND_BUTTON = "Senden";
+
+    private final String fingerprint;
+    private final int numberOfFields;
+    private final String[] fieldNames;
+    private final FieldHandler[] handlers;
+    private final List<String> unmappedFieldNames;
+
+    /**
+     * Resolves a new extraction plan for a given version of the PDF form.
+     *
+     * @param fingerprint
+     *            fingerprint of the form version
+     * @param formFieldNames
+     *            names of all form fields in the order in which they are stored in the form
+     * @param fieldMapping
+     *            mapping from form fields to data fields
+     */
+    ExtractionPlan(final String fingerprint, final Collection<String> formFieldNames,
+            final FieldMapping fieldMapping) {
+        this.fingerprint = fingerprint;
+        this.numberOfFields = formFieldNames.size();
+        final List<String> mappedNames = new ArrayList<>();
+        final List<FieldHandler> mappedHandlers = new ArrayList<>();
+        final List<String> unmappedNames = new ArrayList<>();
+        for (final String fieldName : formFieldNames) {
+            final FieldHandler handler = fieldMapping.getHandler(fieldName);
+            if (handler != null) {
+                mappedNames.add(fieldName);
+                mappedHandlers.add(handler);
+            } else {
+                unmappedNames.add(fieldName);
+            }
+        }
+        this.fieldNames = mappedNames.toArray(new String[mappedNames.size()]);
+        this.handlers = mappedHandlers.toArray(new FieldHandler[mappedHandlers.size()]);
+        this.unmappedFieldNames = Collections.unmodifiableList(unmappedNames);
+    }
+
+    /**
+     * Calculates the fingerprint of a form version from the names of its form fields.
+     *
+     * @param sortedFieldNames
+     *            sorted names of all form fields
+     * @return fingerprint as hex string
+     */
+    static String calculateFingerprint(final Collection<String> sortedFieldNames) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            for (final String fieldName : sortedFieldNames) {
+                digest.update(fieldName.getBytes(StandardCharsets.UTF_8));
+                // separate names so that e.g. "ab","c" and "a","bc" differ
+                digest.update((byte) 0);
+            }
+            final StringBuilder builder = new StringBuilder();
+            for (final byte b : digest.digest()) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Hash algorithm " + HASH_ALGORITHM + " not available");
+        }
+    }
+
+    /**
+     * Stores the values of all mapped form fields inside a given ApplicantBuilder. The fields are
+     * applied in the order in which they were stored in the form, so if two fields are mapped to
+     * the same data field, the value of the latter field is stored.
+     *
+     * @param formFields
+     *            values of all form fields by their fully qualified names
+     * @param builder
+     *            builder object for Applicant data
+     */
+    public void apply(final Map<String, String> formFields, final ApplicantBuilder builder) {
+        apply(formFields, builder, null);
+    }
+
+    /**
+     * Stores the values of all mapped form fields inside a given ApplicantBuilder like
+     * apply(formFields, builder), but replaces all string values by their shared instance from a
+     * given dictionary.
+     *
+     * @param formFields
+     *            values of all form fields by their fully qualified names
+     * @param builder
+     *            builder object for Applicant data
+     * @param dictionary
+     *            dictionary for deduplicating string values or null, if values should be stored
+     *            as they are
+     */
+    public void apply(final Map<String, String> formFields, final ApplicantBuilder builder,
+            final ValueDictionary dictionary) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            final String value = formFields.get(fieldNames[i]);
+            // ignore useless fields in PDF file
+            if (PRINT_BUTTON.equals(value) || SEND_BUTTON.equals(value)) {
+                continue;
+            }
+            handlers[i].apply(value, builder, dictionary);
+        }
+    }
+
+    /**
+     * Returns the fingerprint of the form version.
+     *
+     * @return fingerprint as hex string
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the number of form fields in this form version.
+     *
+     * @return number of form fields
+     */
+    public int getNumberOfFields() {
+        return numberOfFields;
+    }
+
+    /**
+     * Returns the number of form fields that are mapped to a data field.
+     *
+     * @return number of mapped form fields
+     */
+    public int getNumberOfMappedFields() {
+        return handlers.length;
+    }
+
+    /**
+     * Returns the names of all form fields that are not mapped to any data field.
+     *
+     * @return names of unmapped form fields
+     */
+    public List<String> getUnmappedFieldNames() {
+        return unmappedFieldNames;
+    }
+}
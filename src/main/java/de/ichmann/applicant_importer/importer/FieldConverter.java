@@ -0,0 +1,250 @@
+package de.ichmann.applicant_importer.importer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ichmann.applicant_importer.exporter.NationalityConverter;
+import de.ichmann.applicant_importer.model.Degree;
+import de.ichmann.applicant_importer.model.Religion;
+import de.ichmann.applicant_importer.model.School;
+
+/**
+ * Converts the value of a PDF form field into the value that is stored for a data field of an
+ * applicant. Every entry of a FieldMapping names one of these converters.
+ *
+ * @author Christian Wichmann
+ */
+public enum FieldConverter {
+
+    /**
+     * Stores the value as string. Missing values and values only containing a byte order mark are
+     * stored as empty string.
+     */
+    STRING {
+        @Override
+        public Object convert(final String value) {
+            // TODO Should all string be trimmed before they are stored?!
+            if (value == null || BYTE_ORDER_MARK.equals(value)) {
+                return "";
+            }
+            return value;
+        }
+    },
+
+    /**
+     * Parses the value as integer. Missing values and values that are not a number are not stored.
+     */
+    INTEGER {
+        @Override
+        public Object convert(final String value) {
+            if (value == null || "".equals(value.trim()) || BYTE_ORDER_MARK.equals(value)) {
+                return null;
+            }
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (final NumberFormatException e) {
+                logger.warn("Invalid number: " + value);
+                return null;
+            }
+        }
+    },
+
+    /**
+     * Parses the duration of the training in years as decimal number and stores it in months.
+     */
+    DURATION {
+        @Override
+        public Object convert(final String value) {
+            if (value != null && !NOT_CHOSEN.equals(value)) {
+                final Double d = Double.valueOf(value.replace(",", ".")) * MONTHS_IN_YEAR;
+                return d.intValue();
+            }
+            return 0;
+        }
+    },
+
+    /**
+     * Stores the ID of the nationality. If the value is not a number, the ID is guessed from the
+     * name of the nationality.
+     */
+    NATIONALITY {
+        @Override
+        public Object convert(final String value) {
+            if (value == null) {
+                return Integer.valueOf(0);
+            }
+            try {
+                return Integer.valueOf(value);
+            } catch (final NumberFormatException e) {
+                return NationalityConverter.getInstance().convertNationality(value);
+            }
+        }
+    },
+
+    /**
+     * Stores the religion chosen in a combo box.
+     */
+    RELIGION {
+        @Override
+        public Object convert(final String value) {
+            if (value == null || "".equals(value) || NOT_CHOSEN.equals(value)) {
+                // no religion chosen in the form
+                return Religion.OHNE_ANGABE;
+            }
+            try {
+                return Religion.fromInteger(Integer.valueOf(value));
+            } catch (final NumberFormatException e) {
+                /*
+                 * Sometimes the value of a combo box field is not the integer value stored inside
+                 * the PDF file. Instead of the integer the value of the field is the string
+                 * representation of that field. E.g. "katholisch" instead of the integer value 3.
+                 *
+                 * The valueOf method of the enum Religion allows the conversion from string to
+                 * enum constant. The string has to be trimmed and upper case to allow comparation
+                 * with the enum constants. If the string does not contain a valid enum value, a
+                 * default value is set.
+                 */
+                try {
+                    return Religion.valueOf(value.trim().toUpperCase());
+                } catch (final IllegalArgumentException e2) {
+                    return Religion.OHNE_ANGABE;
+                }
+            }
+        }
+    },
+
+    /**
+     * Stores whether the applicant is in a retraining.
+     */
+    RETRAINING {
+        @Override
+        public Object convert(final String value) {
+            return "UmschuelerJa".equals(value);
+        }
+    },
+
+    /**
+     * Stores the gender as character 'm' or 'w'. Other values are ignored.
+     */
+    GENDER {
+        @Override
+        public Object convert(final String value) {
+            if ("m".equals(value) || "w".equals(value)) {
+                return Character.valueOf(value.charAt(0));
+            }
+            // TODO Check whether to add a non-chosen gender type or to assign a best guess.
+            logger.warn("Invalid gender!");
+            return null;
+        }
+    },
+
+    /**
+     * Stores the type of the attended school.
+     */
+    SCHOOL {
+        @Override
+        public Object convert(final String value) {
+            School schoolType = School.SONSTIGES;
+            if (value != null) {
+                switch (value) {
+                case "RS":
+                    schoolType = School.REALSCHULE;
+                    break;
+                case "HS":
+                    schoolType = School.HAUPTSCHULE;
+                    break;
+                case "GY":
+                    schoolType = School.GYMNASIUM_OBERSTUFE;
+                    break;
+                case "B1": // TODO Check which Berufsfachschule should be default.
+                    schoolType = School.BERUFSFACHSCHULE_ZWEIJAEHRIG_RS;
+                    break;
+                case "BS":
+                    schoolType = School.BERUFSSCHULE;
+                    break;
+                case "IG":
+                    schoolType = School.GESAMTSCHULE;
+                    break;
+                case "Oberschule":
+                    schoolType = School.OBERSCHULE;
+                    break;
+                case "FO":
+                    schoolType = School.FACHOBERSCHULE;
+                    break;
+                case "SA":
+                    schoolType = School.FOERDERSCHULE;
+                    break;
+                case "XS":
+                    schoolType = School.SONSTIGES;
+                    break;
+                default:
+                    logger.warn("Invalid school type: " + value);
+                    assert false : "No attended school chosen!";
+                }
+            }
+            return schoolType;
+        }
+    },
+
+    /**
+     * Stores the last achieved degree.
+     */
+    DEGREE {
+        @Override
+        public Object convert(final String value) {
+            Degree degree = Degree.SONSTIGER_ABSCHLUSS;
+            if (value != null) {
+                switch (value) {
+                case "HA":
+                    degree = Degree.SEKUNDAR_I_HAUPTSCHULE;
+                    break;
+                case "SI":
+                    degree = Degree.SEKUNDAR_I_REALSCHULE;
+                    break;
+                case "EI":
+                    degree = Degree.ERWEITERTER_SEKUNDAR_I;
+                    break;
+                case "FH":
+                    degree = Degree.FACHHOCHSCHULREIFE;
+                    break;
+                case "AH":
+                    degree = Degree.ALLGEMEINE_HOCHSCHULEREIFE;
+                    break;
+                case "OA":
+                    degree = Degree.OHNE_ABSCHLUSS;
+                    break;
+                case "XS":
+                    degree = Degree.SONSTIGER_ABSCHLUSS;
+                    break;
+                default:
+                    logger.warn("Invalid degree type: " + value);
+                    assert false : "No attended school chosen!";
+                }
+            }
+            return degree;
+        }
+    };
+
+    private static final Logger logger = LoggerFactory.getLogger(FieldConverter.class);
+
+    /**
+     * Value of a text field that only contains the byte order mark of an UTF-16 string.
+     */
+    private static final String BYTE_ORDER_MARK = "þÿ";
+
+    /**
+     * Value of a combo box in which no entry has been chosen.
+     */
+    private static final String NOT_CHOSEN = "-1";
+
+    private static final int MONTHS_IN_YEAR = 12;
+
+    /**
+     * Converts the value of a PDF form field.
+     *
+     * @param value
+     *            value of the PDF form field, may be null
+     * @return converted value or null, if no value should be stored
+     */
+    public abstract Object convert(String value);
+}
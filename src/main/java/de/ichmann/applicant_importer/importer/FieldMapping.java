@@ -0,0 +1,287 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ichmann.applicant_importer.model.Applicant.ApplicantBuilder;
+import de.ichmann.applicant_importer.model.DataField;
+
+/**
+ * Maps the names of PDF form fields to the data fields of an applicant. For every form field a
+ * FieldConverter is given that converts the value of the form field before it is stored.
+ * <p>
+ * The mapping is read from a CSV file with the columns "Feldname", "Datenfeld" and "Konverter".
+ * Lines starting with '#' are ignored. The default mapping is stored in the resource file
+ * /data/Formularfelder.csv. To support new versions of the PDF form, a different mapping can be
+ * read from a file and given to the ImporterBuilder.
+ * <p>
+ * All entries are compiled into a map from form field name to handler when the mapping is read, so
+ * that every form field only needs a single lookup while importing. Additionally an ExtractionPlan
+ * is resolved and cached for every version of the form, identified by the set of names of its
+ * fields. The set is used directly as key, so finding the plan of a form only costs one hash
+ * lookup per form field. Only a limited number of plans is cached, so that forms with changing
+ * field names can not fill the heap of a long running application.
+ *
+ * @author Christian Wichmann
+ */
+public final class FieldMapping {
+
+    private static final Logger logger = LoggerFactory.getLogger(FieldMapping.class);
+
+    /**
+     * Singleton instance of the default mapping.
+     */
+    private static FieldMapping sDefaultMapping = null;
+
+    private static final String FIELD_NAME = "Feldname";
+    private static final String DATA_FIELD = "Datenfeld";
+    private static final String CONVERTER = "Konverter";
+    private static final char FIELD_DELIMITER = ';';
+    private static final char COMMENT_MARKER = '#';
+
+    /**
+     * Maximum number of form versions whose extraction plans are cached.
+     */
+    private static final int MAXIMUM_NUMBER_OF_PLANS = 64;
+
+    private final Map<String, FieldHandler> handlers;
+
+    /**
+     * Contains the extraction plans of all known form versions by the names of their form fields.
+     */
+    private final ConcurrentMap<Set<String>, ExtractionPlan> extractionPlans =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Stores the value of a single PDF form field into an applicant.
+     *
+     * @author Christian Wichmann
+     */
+    public static final class FieldHandler {
+
+        private final DataField dataField;
+        private final FieldConverter converter;
+
+        /**
+         * Initializes a new handler.
+         *
+         * @param dataField
+         *            data field in which the value is stored
+         * @param converter
+         *            converter for the value of the form field
+         */
+        private FieldHandler(final DataField dataField, final FieldConverter converter) {
+            this.dataField = dataField;
+            this.converter = converter;
+        }
+
+        /**
+         * Converts the value of a form field and stores it inside a given ApplicantBuilder.
+         *
+         * @param value
+         *            value of the PDF form field
+         * @param builder
+         *            builder object for Applicant data
+         */
+        public void apply(final String value, final ApplicantBuilder builder) {
+            apply(value, builder, null);
+        }
+
+        /**
+         * Converts the value of a form field and stores it inside a given ApplicantBuilder. String
+         * values are replaced by their shared instance from a given dictionary.
+         *
+         * @param value
+         *            value of the PDF form field
+         * @param builder
+         *            builder object for Applicant data
+         * @param dictionary
+         *            dictionary for deduplicating string values or null, if values should be
+         *            stored as they are
+         */
+        public void apply(final String value, final ApplicantBuilder builder,
+                final ValueDictionary dictionary) {
+            Object convertedValue = converter.convert(value);
+            if (dictionary != null && convertedValue instanceof String) {
+                convertedValue = dictionary.deduplicate(dataField, (String) convertedValue);
+            }
+            if (convertedValue != null) {
+                builder.setValue(dataField, convertedValue);
+            }
+        }
+
+        /**
+         * Returns the data field in which the value is stored.
+         *
+         * @return data field
+         */
+        public DataField getDataField() {
+            return dataField;
+        }
+
+        /**
+         * Returns the converter for the value of the form field.
+         *
+         * @return converter
+         */
+        public FieldConverter getConverter() {
+            return converter;
+        }
+    }
+
+    /**
+     * Reads a new mapping from a given reader.
+     *
+     * @param reader
+     *            reader for the CSV data
+     * @throws IOException
+     *             if the data could not be read
+     * @throws IllegalArgumentException
+     *             if an entry names an unknown data field or converter
+     */
+    private FieldMapping(final Reader reader) throws IOException {
+        final Map<String, FieldHandler> map = new HashMap<>();
+        final CSVFormat csvFileFormat = CSVFormat.DEFAULT.withHeader()
+                .withDelimiter(FIELD_DELIMITER).withCommentMarker(COMMENT_MARKER);
+        try (CSVParser csvFileParser = new CSVParser(reader, csvFileFormat)) {
+            for (final CSVRecord csvRecord : csvFileParser) {
+                final String fieldName = csvRecord.get(FIELD_NAME);
+                final DataField dataField = DataField.valueOf(csvRecord.get(DATA_FIELD).trim());
+                final FieldConverter converter = FieldConverter.valueOf(csvRecord.get(CONVERTER)
+                        .trim());
+                if (map.put(fieldName, new FieldHandler(dataField, converter)) != null) {
+                    logger.warn("Form field is mapped more than once: " + fieldName);
+                }
+            }
+        }
+        handlers = Collections.unmodifiableMap(map);
+        logger.info(String.format("Read mapping for %d form fields.", handlers.size()));
+    }
+
+    /**
+     * Gets the default mapping for the current PDF form. The mapping is only read once at the
+     * first call.
+     *
+     * @return default mapping
+     * @throws IllegalStateException
+     *             if the default mapping could not be read
+     */
+    public static synchronized FieldMapping getDefaultMapping() {
+        if (sDefaultMapping == null) {
+            final InputStream in = FieldMapping.class
+                    .getResourceAsStream("/data/Formularfelder.csv");
+            if (in == null) {
+                throw new IllegalStateException("Default field mapping not found");
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                sDefaultMapping = new FieldMapping(reader);
+            } catch (final IOException e) {
+                throw new IllegalStateException("Could not read default field mapping", e);
+            }
+        }
+        return sDefaultMapping;
+    }
+
+    /**
+     * Reads a mapping from a CSV file encoded as UTF-8.
+     *
+     * @param file
+     *            CSV file containing the mapping
+     * @return mapping read from file
+     * @throws IOException
+     *             if the file could not be read
+     * @throws IllegalArgumentException
+     *             if parameter file is {@code null} or an entry names an unknown data field or
+     *             converter
+     */
+    public static FieldMapping fromFile(final Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Parameter file must not be null");
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return new FieldMapping(reader);
+        }
+    }
+
+    /**
+     * Returns the handler for a given form field.
+     *
+     * @param fieldName
+     *            fully qualified name of the PDF form field
+     * @return handler for the form field or null, if the form field is not mapped
+     */
+    public FieldHandler getHandler(final String fieldName) {
+        return handlers.get(fieldName);
+    }
+
+    /**
+     * Returns the extraction plan for a form with the given form fields. The plan is only resolved
+     * for the first form of every version and reused for all other forms of the same version. If
+     * the maximum number of cached plans has been reached, plans of new versions are resolved for
+     * every form.
+     *
+     * @param formFieldNames
+     *            names of all form fields in the order in which they are stored in the form
+     * @return extraction plan for the form version
+     */
+    public ExtractionPlan getExtractionPlan(final Collection<String> formFieldNames) {
+        // the key set of a map of form fields can be used for the lookup without copying it
+        final Set<String> fieldNameSet;
+        if (formFieldNames instanceof Set) {
+            fieldNameSet = (Set<String>) formFieldNames;
+        } else {
+            fieldNameSet = new HashSet<>(formFieldNames);
+        }
+        ExtractionPlan plan = extractionPlans.get(fieldNameSet);
+        if (plan == null) {
+            final List<String> sortedFieldNames = new ArrayList<>(fieldNameSet);
+            Collections.sort(sortedFieldNames);
+            final ExtractionPlan newPlan = new ExtractionPlan(
+                    ExtractionPlan.calculateFingerprint(sortedFieldNames), formFieldNames, this);
+            if (extractionPlans.size() >= MAXIMUM_NUMBER_OF_PLANS) {
+                logger.debug("Too many form versions, extraction plan is not cached.");
+                return newPlan;
+            }
+            plan = extractionPlans.putIfAbsent(
+                    Collections.unmodifiableSet(new HashSet<>(fieldNameSet)), newPlan);
+            if (plan == null) {
+                plan = newPlan;
+                logger.info(String.format("Found new form version %s with %d fields (%d mapped).",
+                        plan.getFingerprint(), plan.getNumberOfFields(),
+                        plan.getNumberOfMappedFields()));
+                logger.debug("Unmapped form fields: " + plan.getUnmappedFieldNames());
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the number of mapped form fields.
+     *
+     * @return number of mapped form fields
+     */
+    public int size() {
+        return handlers.size();
+    }
+}
@@ -0,0 +1,260 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.pdfbox.pdmodel.common.PDTextStream;
+import org.apache.pdfbox.pdmodel.fdf.FDFDocument;
+import org.apache.pdfbox.pdmodel.fdf.FDFField;
+
+/**
+ * Reads the values of form fields from files that only contain the data of a PDF form. Many PDF
+ * viewers can export the form data as FDF file (Forms Data Format) or XFDF file (XML Forms Data
+ * Format). These files are much smaller than the PDF file with the form, so they can be read
+ * nearly as fast as they are read from disk.
+ * <p>
+ * The values are returned by the fully qualified names of their form fields just like the values
+ * read from a PDF file, so that they can be evaluated by the same FieldMapping.
+ *
+ * @author Christian Wichmann
+ */
+final class FormDataReader {
+
+    private static final String FDF_SUFFIX = ".fdf";
+    private static final String XFDF_SUFFIX = ".xfdf";
+
+    private static final String FIELD_ELEMENT = "field";
+    private static final String VALUE_ELEMENT = "value";
+    private static final String NAME_ATTRIBUTE = "name";
+    private static final String NAME_SEPARATOR = ".";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    /**
+     * Private constructor to prevent instances of this utility class.
+     */
+    private FormDataReader() {
+    }
+
+    /**
+     * Creates a factory for StAX parsers that do not read any DTD or external entities.
+     *
+     * @return factory for StAX parsers
+     */
+    private static XMLInputFactory createXmlInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Checks whether a given file contains only form data.
+     *
+     * @param path
+     *            file to be checked
+     * @return true, if file is a FDF or XFDF file
+     */
+    static boolean isFormDataFile(final Path path) {
+        final Path fileName = path.getFileName();
+        if (fileName == null) {
+            return false;
+        }
+        final String name = fileName.toString();
+        return name.endsWith(FDF_SUFFIX) || name.endsWith(XFDF_SUFFIX);
+    }
+
+    /**
+     * Reads the values of all form fields from a FDF or XFDF file.
+     *
+     * @param path
+     *            file from which the data is read, used to determine its format
+     * @param in
+     *            stream containing the content of the file
+     * @return values of all form fields by their fully qualified names
+     * @throws IOException
+     *             if the file could not be read or parsed
+     */
+    static Map<String, String> readFormFields(final Path path, final InputStream in)
+            throws IOException {
+        if (path.getFileName().toString().endsWith(XFDF_SUFFIX)) {
+            return readXfdf(in);
+        }
+        return readFdf(in);
+    }
+
+    /**
+     * Reads the values of all form fields from a FDF file.
+     *
+     * @param in
+     *            stream containing the FDF file
+     * @return values of all form fields by their fully qualified names
+     * @throws IOException
+     *             if the file could not be parsed
+     */
+    static Map<String, String> readFdf(final InputStream in) throws IOException {
+        final Map<String, String> formFields = new LinkedHashMap<>();
+        FDFDocument fdfDocument = null;
+        try {
+            fdfDocument = FDFDocument.load(in);
+            @SuppressWarnings("unchecked")
+            final List<FDFField> fields = fdfDocument.getCatalog().getFDF().getFields();
+            if (fields != null) {
+                for (final FDFField field : fields) {
+                    addFdfField(field, null, formFields);
+                }
+            }
+        } finally {
+            if (fdfDocument != null) {
+                fdfDocument.close();
+            }
+        }
+        return formFields;
+    }
+
+    /**
+     * Adds the value of a single FDF field and of all its kids to a map.
+     *
+     * @param field
+     *            FDF field
+     * @param parentName
+     *            fully qualified name of the parent field or null, if it is a top level field
+     * @param formFields
+     *            map to which the values are added
+     * @throws IOException
+     *             if the value could not be read
+     */
+    private static void addFdfField(final FDFField field, final String parentName,
+            final Map<String, String> formFields) throws IOException {
+        final String name = buildName(parentName, field.getPartialFieldName());
+        final List<FDFField> kids = field.getKids();
+        if (kids != null && !kids.isEmpty()) {
+            for (final FDFField kid : kids) {
+                addFdfField(kid, name, formFields);
+            }
+        } else {
+            formFields.put(name, convertFdfValue(field.getValue()));
+        }
+    }
+
+    /**
+     * Converts the value of a FDF field into a string. Names of chosen buttons are returned as
+     * string. If more than one value has been chosen, only the first value is returned.
+     *
+     * @param value
+     *            value of a FDF field
+     * @return value as string or null, if the field has no value
+     * @throws IOException
+     *             if the value could not be read
+     */
+    private static String convertFdfValue(final Object value) throws IOException {
+        if (value instanceof PDTextStream) {
+            return ((PDTextStream) value).getAsString();
+        } else if (value instanceof List) {
+            final List<?> values = (List<?>) value;
+            return values.isEmpty() ? null : String.valueOf(values.get(0));
+        } else if (value != null) {
+            return value.toString();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the values of all form fields from a XFDF file. The file is read by a StAX parser, so
+     * it is never stored completely in memory.
+     *
+     * @param in
+     *            stream containing the XFDF file
+     * @return values of all form fields by their fully qualified names
+     * @throws IOException
+     *             if the file could not be parsed
+     */
+    static Map<String, String> readXfdf(final InputStream in) throws IOException {
+        final Map<String, String> formFields = new LinkedHashMap<>();
+        // fully qualified names of all currently opened fields
+        final Deque<String> fieldNames = new ArrayDeque<>();
+        // whether the currently opened fields contain other fields or a value
+        final Deque<Boolean> fieldHasContent = new ArrayDeque<>();
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    final String element = reader.getLocalName();
+                    if (FIELD_ELEMENT.equals(element)) {
+                        markContent(fieldHasContent);
+                        fieldNames.push(buildName(fieldNames.peek(),
+                                reader.getAttributeValue(null, NAME_ATTRIBUTE)));
+                        fieldHasContent.push(Boolean.FALSE);
+                    } else if (VALUE_ELEMENT.equals(element) && !fieldNames.isEmpty()) {
+                        final String value = reader.getElementText();
+                        // if more than one value has been chosen, store only the first one
+                        if (!fieldHasContent.peek()) {
+                            formFields.put(fieldNames.peek(), value);
+                        }
+                        markContent(fieldHasContent);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT
+                        && FIELD_ELEMENT.equals(reader.getLocalName()) && !fieldNames.isEmpty()) {
+                    final String name = fieldNames.pop();
+                    if (!fieldHasContent.pop()) {
+                        // field without value
+                        formFields.put(name, null);
+                    }
+                }
+            }
+        } catch (final XMLStreamException e) {
+            throw new IOException("Could not parse XFDF file: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (final XMLStreamException e) {
+                    // nothing to do because all data has already been read
+                }
+            }
+        }
+        return formFields;
+    }
+
+    /**
+     * Marks the innermost opened field as having content.
+     *
+     * @param fieldHasContent
+     *            content flags of all opened fields
+     */
+    private static void markContent(final Deque<Boolean> fieldHasContent) {
+        if (!fieldHasContent.isEmpty()) {
+            fieldHasContent.pop();
+            fieldHasContent.push(Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Builds the fully qualified name of a field.
+     *
+     * @param parentName
+     *            fully qualified name of the parent field or null, if it is a top level field
+     * @param partialName
+     *            partial name of the field
+     * @return fully qualified name of the field
+     */
+    private static String buildName(final String parentName, final String partialName) {
+        if (parentName == null) {
+            return partialName;
+        }
+        return parentName + NAME_SEPARATOR + partialName;
+    }
+}
@@ -0,0 +1,662 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stores the form field values of already imported PDF files on disk, so that unchanged files do
+ * not have to be parsed again when the same directory is imported another time. For every import
+ * directory a separate cache file is written into the cache directory.
+ * <p>
+ * A PDF file is regarded as unchanged if its size and its modification time are the same as when
+ * it was stored. If only the modification time differs (e.g. because the file was copied again), a
+ * hash of the file content decides whether the cached values can be used. The hash is only stored
+ * for files whose content has already been read into memory, so that storing an entry never reads
+ * the file again. Files that could not be parsed or did not contain a form are stored as negative
+ * entries so that they are not parsed again. Files rejected by the preflight check are stored
+ * together with the reason for the rejection. Files that could not be read at all must not be
+ * stored, because the error may be gone with the next import.
+ * <p>
+ * Every stored entry is appended to a journal file at once, while the cache file itself is only
+ * written by save() at the end of an import. If the application dies during an import, load()
+ * replays the journal, so that a restarted import only parses the files that are still missing.
+ * Each journal record carries a checksum, and an incomplete record at the end of the journal is
+ * dropped. After the cache file has been written, the journal is deleted.
+ * <p>
+ * All methods except load() and save() can be called concurrently by the parser threads.
+ *
+ * @author Christian Wichmann
+ */
+public final class ImportCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportCache.class);
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String CACHE_FILE_PREFIX = "import_cache_";
+    private static final String CACHE_FILE_SUFFIX = ".ser";
+    private static final String JOURNAL_FILE_SUFFIX = ".journal";
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Maximum size of a single journal record. Larger lengths can only be read from a damaged
+     * journal.
+     */
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+
+    private final Path importDirectory;
+    private final Path cacheFile;
+    private final Path journalFile;
+
+    // guards the journal
+    private final Object journalLock = new Object();
+    private DataOutputStream journal;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> usedEntries = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final AtomicInteger numberOfHits = new AtomicInteger(0);
+    private final AtomicInteger numberOfMisses = new AtomicInteger(0);
+
+    /**
+     * Contains the cached form field values of a single PDF file together with the information
+     * needed to decide whether the file has been changed since.
+     *
+     * @author Christian Wichmann
+     */
+    public static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 3140865719234475718L;
+
+        private final long size;
+        private volatile long lastModified;
+        private final String contentHash;
+        private final LinkedHashMap<String, String> formFields;
+        private final String rejection;
+
+        /**
+         * Initializes a new cache entry.
+         *
+         * @param size
+         *            size of the PDF file in bytes
+         * @param lastModified
+         *            modification time of the PDF file in milliseconds
+         * @param contentHash
+         *            hash of the content of the PDF file
+         * @param formFields
+         *            form field values of the PDF file or null, if the file is invalid
+         * @param rejection
+         *            reason why the file has been rejected by the preflight check or null
+         */
+        private Entry(final long size, final long lastModified, final String contentHash,
+                final Map<String, String> formFields, final String rejection) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.contentHash = contentHash;
+            if (formFields != null) {
+                this.formFields = new LinkedHashMap<>(formFields);
+            } else {
+                this.formFields = null;
+            }
+            this.rejection = rejection;
+        }
+
+        /**
+         * Returns the cached form field values by their fully qualified names. If the PDF file was
+         * invalid when it was stored, null is returned.
+         *
+         * @return form field values or null, if the PDF file is invalid
+         */
+        public Map<String, String> getFormFields() {
+            return formFields;
+        }
+
+        /**
+         * Returns whether the PDF file contained a valid form when it was stored.
+         *
+         * @return true, if the PDF file contained a valid form
+         */
+        public boolean isValid() {
+            return formFields != null;
+        }
+
+        /**
+         * Returns the reason why the PDF file has been rejected by the preflight check when it was
+         * stored. Entries written before rejections were stored return null.
+         *
+         * @return reason for the rejection or null, if the file has not been rejected
+         */
+        public String getRejection() {
+            return rejection;
+        }
+    }
+
+    /**
+     * Initializes a new import cache for a given import directory. The cache is empty until load()
+     * is called.
+     *
+     * @param cacheDirectory
+     *            directory in which all cache files are stored
+     * @param importDirectory
+     *            directory from which PDF files are imported
+     * @throws IllegalArgumentException
+     *             if a parameter is {@code null}
+     */
+    public ImportCache(final Path cacheDirectory, final Path importDirectory) {
+        if (cacheDirectory == null || importDirectory == null) {
+            throw new IllegalArgumentException(
+                    "Parameters cacheDirectory and importDirectory must not be null");
+        }
+        this.importDirectory = importDirectory.toAbsolutePath().normalize();
+        final String directoryName = this.importDirectory.toString();
+        final String cacheFileName = CACHE_FILE_PREFIX
+                + hashBytes(directoryName.getBytes(StandardCharsets.UTF_8));
+        this.cacheFile = cacheDirectory.resolve(cacheFileName + CACHE_FILE_SUFFIX);
+        this.journalFile = cacheDirectory.resolve(cacheFileName + JOURNAL_FILE_SUFFIX);
+    }
+
+    /**
+     * Reads all entries from the cache file and replays the journal of an interrupted import. If
+     * the cache file does not exist or could not be read, the cache only contains the entries from
+     * the journal.
+     */
+    @SuppressWarnings("unchecked")
+    public void load() {
+        if (Files.exists(cacheFile)) {
+            try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(cacheFile))) {
+                entries.putAll((Map<String, Entry>) in.readObject());
+                logger.info(String.format("Read %d entries from import cache %s.",
+                        entries.size(), cacheFile));
+            } catch (final IOException | ClassNotFoundException | ClassCastException e) {
+                logger.warn("Could not read import cache " + cacheFile
+                        + ", starting with empty cache.");
+                entries.clear();
+            }
+        }
+        replayJournal();
+    }
+
+    /**
+     * Reads all complete records from the journal into the cache. Records that have been written
+     * later replace earlier entries for the same file. If the journal ends with an incomplete or
+     * damaged record, it is truncated after the last complete record, so that new records can be
+     * appended.
+     */
+    private void replayJournal() {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        long validLength = 0;
+        int numberOfRecords = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(journalFile)))) {
+            while (true) {
+                final int length = in.readInt();
+                if (length < 0 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                final byte[] record = new byte[length];
+                in.readFully(record);
+                final long checksum = in.readLong();
+                if (checksum != calculateChecksum(record)) {
+                    break;
+                }
+                readRecord(record);
+                validLength += 4 + length + 8;
+                numberOfRecords++;
+            }
+        } catch (final EOFException e) {
+            // end of journal or incomplete last record
+        } catch (final IOException e) {
+            logger.warn("Could not read journal " + journalFile + ".");
+        }
+        logger.info(String.format("Replayed %d entries from journal %s.", numberOfRecords,
+                journalFile));
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                logger.warn("Dropping incomplete record from journal " + journalFile + ".");
+                channel.truncate(validLength);
+            }
+        } catch (final IOException e) {
+            logger.warn("Could not truncate journal " + journalFile + ".");
+        }
+    }
+
+    /**
+     * Writes the entries of the cache to the cache file. After an import of a whole directory,
+     * entries of files that have not been seen during the import can be dropped, so that the cache
+     * does not grow without limit. The file is first written completely and then moved to its
+     * place, so an interrupted write does not destroy the old cache file.
+     *
+     * @param removeUnusedEntries
+     *            whether to drop all entries that have not been used since the cache was loaded
+     */
+    public void save(final boolean removeUnusedEntries) {
+        final Map<String, Entry> usedEntriesMap = new HashMap<>();
+        if (removeUnusedEntries) {
+            for (final String key : usedEntries) {
+                final Entry entry = entries.get(key);
+                if (entry != null) {
+                    usedEntriesMap.put(key, entry);
+                }
+            }
+        } else {
+            usedEntriesMap.putAll(entries);
+        }
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            final Path tempFile = Files.createTempFile(cacheFile.getParent(), CACHE_FILE_PREFIX,
+                    null);
+            try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(tempFile))) {
+                out.writeObject(usedEntriesMap);
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+            // all entries of the journal are contained in the cache file now
+            closeJournal();
+            Files.deleteIfExists(journalFile);
+            logger.info(String.format("Wrote %d entries to import cache (%d hits, %d misses).",
+                    usedEntriesMap.size(), numberOfHits.get(), numberOfMisses.get()));
+        } catch (final IOException e) {
+            logger.warn("Could not write import cache " + cacheFile + ".");
+        }
+    }
+
+    /**
+     * Looks up the cached entry for a given PDF file. If no entry exists or the file has been
+     * changed since the entry was stored, null is returned.
+     *
+     * @param path
+     *            PDF file to look up
+     * @param attributes
+     *            current attributes of the PDF file
+     * @return cached entry or null, if the file has to be parsed
+     */
+    public Entry lookup(final Path path, final BasicFileAttributes attributes) {
+        return lookup(path, attributes, null);
+    }
+
+    /**
+     * Looks up the cached entry for a given PDF file. If no entry exists or the file has been
+     * changed since the entry was stored, null is returned. The content of the file is only hashed
+     * when its size is unchanged but its modification time differs. If the content has already
+     * been read into memory, it is hashed instead of reading the file again.
+     *
+     * @param path
+     *            PDF file to look up
+     * @param attributes
+     *            current attributes of the PDF file
+     * @param content
+     *            content of the PDF file or null, if it has not been read yet
+     * @return cached entry or null, if the file has to be parsed
+     */
+    public Entry lookup(final Path path, final BasicFileAttributes attributes,
+            final byte[] content) {
+        final String key = buildKey(path);
+        usedEntries.add(key);
+        final Entry entry = entries.get(key);
+        boolean isUnchanged = false;
+        if (entry != null && entry.size == attributes.size()) {
+            final long lastModified = attributes.lastModifiedTime().toMillis();
+            if (entry.lastModified == lastModified) {
+                isUnchanged = true;
+            } else if (entry.contentHash != null
+                    && entry.contentHash.equals(content != null ? hashBytes(content)
+                            : hashFile(path))) {
+                // content is the same so the new modification time can be used next time
+                entry.lastModified = lastModified;
+                isUnchanged = true;
+            }
+        }
+        if (isUnchanged) {
+            numberOfHits.incrementAndGet();
+            logger.debug("Found unchanged file in import cache: " + path);
+            return entry;
+        }
+        numberOfMisses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Checks whether the cache contains an entry for a given file with the same size and
+     * modification time. Unlike lookup(), the content of the file is never read and the entry is
+     * not marked as used.
+     *
+     * @param path
+     *            PDF file to look up
+     * @param attributes
+     *            current attributes of the PDF file
+     * @return true, if the file will probably be taken from the cache
+     */
+    public boolean containsUnchanged(final Path path, final BasicFileAttributes attributes) {
+        final Entry entry = entries.get(buildKey(path));
+        return entry != null && entry.size == attributes.size()
+                && entry.lastModified == attributes.lastModifiedTime().toMillis();
+    }
+
+    /**
+     * Stores the form field values of a PDF file in the cache. If the file was invalid, null has
+     * to be given as form field values. The entry is stored without a hash of the content, so it
+     * is only found again while the modification time of the file is unchanged.
+     *
+     * @param path
+     *            PDF file from which the values were read
+     * @param attributes
+     *            attributes of the PDF file read before parsing it
+     * @param formFields
+     *            form field values or null, if the file is invalid
+     */
+    public void store(final Path path, final BasicFileAttributes attributes,
+            final Map<String, String> formFields) {
+        store(path, attributes, formFields, null);
+    }
+
+    /**
+     * Stores the form field values of a PDF file in the cache. If the file was invalid, null has
+     * to be given as form field values. If the content of the file has been read into memory, its
+     * hash is stored, so that the entry is found again after the file has only been touched.
+     *
+     * @param path
+     *            PDF file from which the values were read
+     * @param attributes
+     *            attributes of the PDF file read before parsing it
+     * @param formFields
+     *            form field values or null, if the file is invalid
+     * @param content
+     *            content of the PDF file or null, if it has not been read into memory
+     */
+    public void store(final Path path, final BasicFileAttributes attributes,
+            final Map<String, String> formFields, final byte[] content) {
+        storeEntry(path, attributes, formFields, null, content);
+    }
+
+    /**
+     * Stores a PDF file that has been rejected by the preflight check, so that the file is neither
+     * checked again nor reported without its reason by the next import.
+     *
+     * @param path
+     *            PDF file that has been rejected
+     * @param attributes
+     *            attributes of the PDF file read before checking it
+     * @param rejection
+     *            reason why the file has been rejected
+     * @param content
+     *            content of the PDF file or null, if it has not been read into memory
+     */
+    public void storeRejection(final Path path, final BasicFileAttributes attributes,
+            final String rejection, final byte[] content) {
+        storeEntry(path, attributes, null, rejection, content);
+    }
+
+    /**
+     * Stores an entry for a PDF file in the cache and appends it to the journal.
+     *
+     * @param path
+     *            PDF file from which the entry was created
+     * @param attributes
+     *            attributes of the PDF file read before parsing it
+     * @param formFields
+     *            form field values or null, if the file is invalid
+     * @param rejection
+     *            reason why the file has been rejected or null
+     * @param content
+     *            content of the PDF file or null, if it has not been read into memory
+     */
+    private void storeEntry(final Path path, final BasicFileAttributes attributes,
+            final Map<String, String> formFields, final String rejection, final byte[] content) {
+        final String key = buildKey(path);
+        usedEntries.add(key);
+        final Entry entry = new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(),
+                content != null ? hashBytes(content) : null, formFields, rejection);
+        entries.put(key, entry);
+        appendToJournal(key, entry);
+    }
+
+    /**
+     * Appends a single entry to the journal. Every record is flushed immediately, so that it
+     * survives if the application dies. Records are written as length, content and checksum.
+     *
+     * @param key
+     *            key of the entry
+     * @param entry
+     *            entry to be written
+     */
+    private void appendToJournal(final String key, final Entry entry) {
+        try {
+            final byte[] record = writeRecord(key, entry);
+            synchronized (journalLock) {
+                if (journal == null) {
+                    Files.createDirectories(journalFile.getParent());
+                    journal = new DataOutputStream(new BufferedOutputStream(
+                            Files.newOutputStream(journalFile, StandardOpenOption.CREATE,
+                                    StandardOpenOption.APPEND)));
+                }
+                journal.writeInt(record.length);
+                journal.write(record);
+                journal.writeLong(calculateChecksum(record));
+                journal.flush();
+            }
+        } catch (final IOException e) {
+            logger.warn("Could not write entry for " + key + " to journal " + journalFile + ".");
+        }
+    }
+
+    /**
+     * Closes the journal, if it has been opened.
+     */
+    private void closeJournal() {
+        synchronized (journalLock) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (final IOException e) {
+                    logger.warn("Could not close journal " + journalFile + ".");
+                }
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * Converts an entry into a journal record.
+     *
+     * @param key
+     *            key of the entry
+     * @param entry
+     *            entry to be converted
+     * @return content of the record
+     * @throws IOException
+     *             if the entry could not be written (e.g. because a value is too long)
+     */
+    private static byte[] writeRecord(final String key, final Entry entry) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(key);
+            out.writeLong(entry.size);
+            out.writeLong(entry.lastModified);
+            writeNullableString(out, entry.contentHash);
+            if (entry.formFields == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(entry.formFields.size());
+                for (final Map.Entry<String, String> field : entry.formFields.entrySet()) {
+                    out.writeUTF(field.getKey());
+                    writeNullableString(out, field.getValue());
+                }
+            }
+            writeNullableString(out, entry.rejection);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads an entry from a journal record and puts it into the cache.
+     *
+     * @param record
+     *            content of the record
+     * @throws IOException
+     *             if the record could not be read
+     */
+    private void readRecord(final byte[] record) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            final String key = in.readUTF();
+            final long size = in.readLong();
+            final long lastModified = in.readLong();
+            final String contentHash = readNullableString(in);
+            final int numberOfFields = in.readInt();
+            Map<String, String> formFields = null;
+            if (numberOfFields >= 0) {
+                formFields = new LinkedHashMap<>();
+                for (int i = 0; i < numberOfFields; i++) {
+                    formFields.put(in.readUTF(), readNullableString(in));
+                }
+            }
+            // records written before rejections were stored end after the form fields
+            final String rejection = in.available() > 0 ? readNullableString(in) : null;
+            entries.put(key, new Entry(size, lastModified, contentHash, formFields, rejection));
+        }
+    }
+
+    private static void writeNullableString(final DataOutputStream out, final String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Calculates the checksum of a journal record.
+     *
+     * @param record
+     *            content of the record
+     * @return checksum of the record
+     */
+    private static long calculateChecksum(final byte[] record) {
+        final CRC32 crc = new CRC32();
+        crc.update(record);
+        return crc.getValue();
+    }
+
+    /**
+     * Returns the number of files that have been taken from the cache.
+     *
+     * @return number of cache hits
+     */
+    public int getNumberOfHits() {
+        return numberOfHits.get();
+    }
+
+    /**
+     * Returns the number of files that were not found in the cache or have been changed.
+     *
+     * @return number of cache misses
+     */
+    public int getNumberOfMisses() {
+        return numberOfMisses.get();
+    }
+
+    /**
+     * Builds the key under which a PDF file is stored in the cache. Files inside the import
+     * directory are stored by their relative path, so that files with the same name in different
+     * subdirectories do not collide. For files directly inside the import directory this is their
+     * file name.
+     *
+     * @param path
+     *            PDF file
+     * @return key for the PDF file
+     */
+    private String buildKey(final Path path) {
+        final Path absolutePath = path.toAbsolutePath().normalize();
+        if (absolutePath.startsWith(importDirectory) && !absolutePath.equals(importDirectory)) {
+            return importDirectory.relativize(absolutePath).toString();
+        }
+        final Path fileName = path.getFileName();
+        return fileName != null ? fileName.toString() : path.toString();
+    }
+
+    /**
+     * Calculates the hash of the content of a given file. If the file could not be read, null is
+     * returned.
+     *
+     * @param path
+     *            file to calculate the hash for
+     * @return hash of the file content as hex string or null, if the file could not be read
+     */
+    private String hashFile(final Path path) {
+        try (InputStream in = Files.newInputStream(path)) {
+            final MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, length);
+            }
+            return toHexString(digest.digest());
+        } catch (final IOException | NoSuchAlgorithmException e) {
+            logger.warn("Could not calculate hash of file " + path + ".");
+            return null;
+        }
+    }
+
+    /**
+     * Calculates the hash of a given byte array.
+     *
+     * @param bytes
+     *            data to calculate the hash for
+     * @return hash as hex string
+     */
+    private static String hashBytes(final byte[] bytes) {
+        try {
+            return toHexString(MessageDigest.getInstance(HASH_ALGORITHM).digest(bytes));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Hash algorithm " + HASH_ALGORITHM + " not available");
+        }
+    }
+
+    /**
+     * Converts a byte array into a string of hex digits.
+     *
+     * @param bytes
+     *            bytes to convert
+     * @return string of hex digits
+     */
+    private static String toHexString(final byte[] bytes) {
+        final StringBuilder builder = new StringBuilder();
+        for (final byte b : bytes) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+}
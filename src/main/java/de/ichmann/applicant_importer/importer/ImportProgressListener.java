@@ -0,0 +1,45 @@
+package de.ichmann.applicant_importer.importer;
+
+/**
+ * Receives the progress of an import and its end. The progress is not reported for every single
+ * file but coalesced and throttled, so that a listener updating a user interface is not flooded
+ * with events while many files are parsed in parallel.
+ * <p>
+ * All methods are called by the executor given to the ImporterBuilder, e.g. on the Event Dispatch
+ * Thread of Swing. Calls never overlap and the end of the import is always reported last. Either
+ * importFinished() or importFailed() is called exactly once.
+ *
+ * @author Christian Wichmann
+ */
+public interface ImportProgressListener {
+
+    /**
+     * Is called when the progress of the import has changed. While the import is still running the
+     * number of files may grow because the directory listing has not yet been finished.
+     *
+     * @param numberOfFiles
+     *            number of files found so far
+     * @param numberOfFinishedFiles
+     *            number of files that have already been parsed
+     */
+    void progressChanged(int numberOfFiles, int numberOfFinishedFiles);
+
+    /**
+     * Is called after all files have been parsed or the import has been cancelled. All results can
+     * be read from the importer.
+     *
+     * @param importer
+     *            importer that has finished
+     */
+    void importFinished(PdfFormImporter importer);
+
+    /**
+     * Is called if the import could not be finished because of an error.
+     *
+     * @param importer
+     *            importer that has failed
+     * @param cause
+     *            error that stopped the import
+     */
+    void importFailed(PdfFormImporter importer, Exception cause);
+}
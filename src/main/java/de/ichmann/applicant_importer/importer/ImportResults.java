@@ -0,0 +1,227 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ichmann.applicant_importer.model.Applicant;
+import de.ichmann.applicant_importer.model.ApplicantStore;
+
+/**
+ * Collects the results of all parser threads of an import: the parsed applicants, the invalid and
+ * quarantined files with their reasons and the number of files of every form version. Files
+ * inside an archive are named like "archive.zip!/entry.pdf".
+ * <p>
+ * The parser threads add their results concurrently in the order in which they finish. After all
+ * files have been parsed, collect() copies the applicants and the invalid files into the final
+ * lists in the order of the file names, so that they do not depend on the directory listing or
+ * the scheduling of the parser threads.
+ *
+ * @author Christian Wichmann
+ */
+final class ImportResults {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportResults.class);
+
+    private final List<Applicant> listOfStudents = Collections
+            .synchronizedList(new ArrayList<Applicant>());
+    private final List<String> listOfInvalidPdfFiles = Collections
+            .synchronizedList(new ArrayList<String>());
+
+    private final boolean collectApplicants;
+    private final ApplicantStore applicantStore;
+
+    /**
+     * Contains the applicants of all parser threads sorted by the file names of the PDF files. If
+     * an applicant store is used, only the row views of the stored applicants are kept.
+     */
+    private final Map<String, Applicant> parsedApplicants = new ConcurrentSkipListMap<>();
+    private final Set<String> invalidPdfFiles = new ConcurrentSkipListSet<>();
+
+    /**
+     * Contains the number of imported PDF files for every form version by its fingerprint.
+     */
+    private final ConcurrentMap<String, AtomicInteger> formVersionStatistics =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * Contains all files that have been put into quarantine sorted by their file names.
+     */
+    private final Map<String, QuarantinedFile> quarantinedFiles = new ConcurrentSkipListMap<>();
+
+    /**
+     * Contains the reasons for all invalid files whose reason is known sorted by their file names.
+     */
+    private final Map<String, String> reasonsForInvalidPdfFiles = new ConcurrentSkipListMap<>();
+
+    /**
+     * Initializes new empty results of an import.
+     *
+     * @param collectApplicants
+     *            whether all parsed applicants are collected for the final list
+     * @param applicantStore
+     *            store to which all parsed applicants are added or null, if the applicants are
+     *            kept as they are
+     */
+    ImportResults(final boolean collectApplicants, final ApplicantStore applicantStore) {
+        this.collectApplicants = collectApplicants;
+        this.applicantStore = applicantStore;
+    }
+
+    /**
+     * Adds a parsed applicant. If collecting the applicants has been switched off, the applicant
+     * is ignored.
+     *
+     * @param name
+     *            name of the file from which the applicant has been read
+     * @param applicant
+     *            parsed applicant
+     */
+    void addApplicant(final String name, final Applicant applicant) {
+        if (!collectApplicants) {
+            return;
+        }
+        Applicant collectedApplicant = applicant;
+        if (applicantStore != null) {
+            // keep only the row view, so that the parsed values can be collected
+            synchronized (applicantStore) {
+                collectedApplicant = applicantStore.add(applicant);
+            }
+        }
+        parsedApplicants.put(name, collectedApplicant);
+    }
+
+    /**
+     * Adds a file that could not be imported.
+     *
+     * @param name
+     *            name of the invalid file
+     * @param reason
+     *            reason why the file could not be imported or null, if the reason is not known
+     */
+    void addInvalidFile(final String name, final String reason) {
+        if (reason != null) {
+            reasonsForInvalidPdfFiles.put(name, reason);
+        }
+        invalidPdfFiles.add(name);
+    }
+
+    /**
+     * Adds a file that has been put into quarantine. It is added to the invalid files, too.
+     *
+     * @param name
+     *            name of the quarantined file
+     * @param reason
+     *            reason for putting the file into quarantine
+     */
+    void addQuarantinedFile(final String name, final String reason) {
+        quarantinedFiles.put(name, new QuarantinedFile(name, reason));
+        addInvalidFile(name, reason);
+    }
+
+    /**
+     * Counts an imported PDF file for the statistics of form versions.
+     *
+     * @param fingerprint
+     *            fingerprint of the form version of the PDF file
+     */
+    void countFormVersion(final String fingerprint) {
+        AtomicInteger counter = formVersionStatistics.get(fingerprint);
+        if (counter == null) {
+            final AtomicInteger newCounter = new AtomicInteger(0);
+            counter = formVersionStatistics.putIfAbsent(fingerprint, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /**
+     * Stores the applicants and the invalid files in the final lists in the order of the file
+     * names. This must be called only once after all files have been parsed.
+     */
+    void collect() {
+        listOfStudents.addAll(parsedApplicants.values());
+        listOfInvalidPdfFiles.addAll(invalidPdfFiles);
+    }
+
+    /**
+     * Logs all files that could not be imported and the number of files of every form version.
+     */
+    void logResults() {
+        synchronized (listOfInvalidPdfFiles) {
+            for (final String string : listOfInvalidPdfFiles) {
+                final String reason = reasonsForInvalidPdfFiles.get(string);
+                logger.info("Could not import following file: " + string
+                        + (reason != null ? " (" + reason + ")" : ""));
+            }
+        }
+        for (final QuarantinedFile quarantinedFile : quarantinedFiles.values()) {
+            logger.info("Put following file into quarantine: " + quarantinedFile);
+        }
+        for (final Map.Entry<String, AtomicInteger> entry : formVersionStatistics.entrySet()) {
+            logger.info(String.format("Imported %d files of form version %s.", entry.getValue()
+                    .get(), entry.getKey()));
+        }
+    }
+
+    /**
+     * Returns the number of imported PDF files for every form version.
+     *
+     * @return number of PDF files by fingerprint of their form version
+     */
+    Map<String, Integer> getFormVersionStatistics() {
+        final Map<String, Integer> statistics = new LinkedHashMap<>();
+        for (final Map.Entry<String, AtomicInteger> entry : formVersionStatistics.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().get());
+        }
+        return statistics;
+    }
+
+    /**
+     * Returns the final list of all applicants.
+     *
+     * @return list of all applicants data
+     */
+    List<Applicant> getListOfStudents() {
+        return listOfStudents;
+    }
+
+    /**
+     * Returns the final list with the file names of all invalid files.
+     *
+     * @return list with the file names of all invalid files
+     */
+    List<String> getListOfInvalidPdfFiles() {
+        return listOfInvalidPdfFiles;
+    }
+
+    /**
+     * Returns a copy of all quarantined files sorted by their file names.
+     *
+     * @return list of all quarantined files
+     */
+    List<QuarantinedFile> getListOfQuarantinedFiles() {
+        return new ArrayList<>(quarantinedFiles.values());
+    }
+
+    /**
+     * Returns the reasons why files could not be imported by their file names.
+     *
+     * @return map with the reasons for invalid files sorted by their file names
+     */
+    Map<String, String> getReasonsForInvalidPdfFiles() {
+        return reasonsForInvalidPdfFiles;
+    }
+}
@@ -0,0 +1,23 @@
+package de.ichmann.applicant_importer.importer;
+
+/**
+ * Receives every file that could not be imported by a PdfFolderWatcher. The method is called by
+ * the thread of the watcher after the import of a group of files has been finished, so
+ * implementations that update a user interface have to pass the information to the event dispatch
+ * thread.
+ *
+ * @author Christian Wichmann
+ */
+public interface InvalidFileListener {
+
+    /**
+     * Is called for every file that could not be imported.
+     *
+     * @param fileName
+     *            name of the file that could not be imported
+     * @param reason
+     *            description why the file could not be imported or null, if the reason is not
+     *            known
+     */
+    void fileRejected(String fileName, String reason);
+}
@@ -0,0 +1,93 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the amount of memory that is used by PDF documents that are parsed at the same time.
+ * Before a document is opened, the memory it will probably need is reserved from the budget. If the
+ * budget is exhausted, the calling thread waits until other documents have been closed and their
+ * memory has been released. A single document that needs more than the whole budget is admitted
+ * when no other document is in flight.
+ * <p>
+ * Memory is counted in units of kilobytes internally, so that budgets of several gigabytes can be
+ * handled by a semaphore.
+ *
+ * @author Christian Wichmann
+ */
+final class MemoryBudget {
+
+    private static final int BYTES_PER_PERMIT = 1024;
+
+    private final int maximumPermits;
+    private final Semaphore permits;
+
+    /**
+     * Initializes a new memory budget.
+     *
+     * @param budgetInBytes
+     *            number of bytes that can be used by all documents at the same time
+     * @throws IllegalArgumentException
+     *             if budget is not positive
+     */
+    MemoryBudget(final long budgetInBytes) {
+        if (budgetInBytes <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        maximumPermits = (int) Math.min(Integer.MAX_VALUE,
+                Math.max(1, budgetInBytes / BYTES_PER_PERMIT));
+        permits = new Semaphore(maximumPermits, true);
+    }
+
+    /**
+     * Reserves memory from the budget and waits until enough memory is available. The returned
+     * number of permits has to be given to release() after the document has been closed.
+     *
+     * @param bytes
+     *            estimated number of bytes needed for a document
+     * @return number of reserved permits
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting for memory
+     */
+    int acquire(final long bytes) throws InterruptedException {
+        final int neededPermits = (int) Math.min(maximumPermits,
+                Math.max(1, bytes / BYTES_PER_PERMIT));
+        permits.acquire(neededPermits);
+        return neededPermits;
+    }
+
+    /**
+     * Reserves memory from the budget only if it is available at once. Unlike acquire(), memory
+     * larger than the whole budget is never reserved.
+     *
+     * @param bytes
+     *            number of bytes to be reserved
+     * @return number of reserved permits, which has to be given to release(), or zero, if the
+     *         memory is not available
+     */
+    int tryAcquire(final long bytes) {
+        final long neededPermits = Math.max(1, bytes / BYTES_PER_PERMIT);
+        if (neededPermits > maximumPermits || !permits.tryAcquire((int) neededPermits)) {
+            return 0;
+        }
+        return (int) neededPermits;
+    }
+
+    /**
+     * Returns reserved memory to the budget.
+     *
+     * @param reservedPermits
+     *            number of permits returned by acquire()
+     */
+    void release(final int reservedPermits) {
+        permits.release(reservedPermits);
+    }
+
+    /**
+     * Returns the number of bytes that are currently not reserved.
+     *
+     * @return number of available bytes
+     */
+    long getAvailableBytes() {
+        return (long) permits.availablePermits() * BYTES_PER_PERMIT;
+    }
+}
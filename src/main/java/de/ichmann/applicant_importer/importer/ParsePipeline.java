@@ -0,0 +1,388 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+
+import org.apache.pdfbox.io.RandomAccessFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ichmann.applicant_importer.model.Applicant;
+import de.ichmann.applicant_importer.model.Applicant.ApplicantBuilder;
+
+/**
+ * Turns a single file of an import into an applicant. The values of the form fields are taken
+ * from the import cache, if the file is unchanged. Otherwise FDF and XFDF files are read by the
+ * FormDataReader, and PDF files are checked by the preflight check and then parsed either in a
+ * worker process or in the calling thread with memory reserved from the memory budget. Finally the
+ * values are mapped to a new applicant by the field mapping.
+ * <p>
+ * The pipeline is used concurrently by all parser threads of an import. It holds no state of its
+ * own besides the components of the import, which are never changed after it has been created.
+ *
+ * @author Christian Wichmann
+ */
+final class ParsePipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParsePipeline.class);
+
+    /**
+     * Estimated factor between the size of a PDF file and the memory needed to parse it.
+     */
+    private static final int MEMORY_PER_FILE_BYTE = 2;
+
+    private final FieldMapping fieldMapping;
+    private final ValueDictionary valueDictionary;
+    private final ImportCache importCache;
+    private final MemoryBudget memoryBudget;
+    private final long scratchFileThreshold;
+    private final ReadAheadStage readAheadStage;
+    private final WorkerProcessPool workerPool;
+    private final ImportResults results;
+
+    /**
+     * Provides the deadline of a file that is parsed. Time spent waiting for memory or for a free
+     * worker process is not counted towards the parse timeout, so the deadline is stopped while
+     * waiting.
+     *
+     * @author Christian Wichmann
+     */
+    interface Deadline {
+
+        /**
+         * Starts the deadline again with the remaining time.
+         */
+        void startDeadline();
+
+        /**
+         * Stops the deadline and keeps the remaining time.
+         */
+        void stopDeadline();
+    }
+
+    /**
+     * Initializes a new pipeline with the components of an import.
+     *
+     * @param fieldMapping
+     *            mapping of the form fields to the data fields of the applicants
+     * @param valueDictionary
+     *            dictionary for deduplicating string values or null, if values are stored as
+     *            they are
+     * @param importCache
+     *            cache for the form fields of unchanged files or null, if no cache is used
+     * @param memoryBudget
+     *            memory budget from which the memory for parsing is reserved
+     * @param scratchFileThreshold
+     *            size in bytes above which PDF files are opened with a scratch file
+     * @param readAheadStage
+     *            stage reading files ahead of the parser threads or null, if files are not read
+     *            ahead
+     * @param workerPool
+     *            pool of worker processes parsing the PDF files or null, if PDF files are parsed
+     *            in the calling thread
+     * @param results
+     *            results of the import counting the form versions
+     */
+    ParsePipeline(final FieldMapping fieldMapping, final ValueDictionary valueDictionary,
+            final ImportCache importCache, final MemoryBudget memoryBudget,
+            final long scratchFileThreshold, final ReadAheadStage readAheadStage,
+            final WorkerProcessPool workerPool, final ImportResults results) {
+        this.fieldMapping = fieldMapping;
+        this.valueDictionary = valueDictionary;
+        this.importCache = importCache;
+        this.memoryBudget = memoryBudget;
+        this.scratchFileThreshold = scratchFileThreshold;
+        this.readAheadStage = readAheadStage;
+        this.workerPool = workerPool;
+        this.results = results;
+    }
+
+    /**
+     * Starts reading a PDF file into memory ahead of the parser threads. Only regular files that
+     * are not larger than the scratch file threshold and will probably not be taken from the
+     * import cache are read ahead. Entries of archives and files with form data are always read by
+     * the parser thread.
+     *
+     * @param path
+     *            PDF file to be read
+     * @param attributes
+     *            attributes of the file or null, if they could not be read
+     * @param sequence
+     *            position of the file in the directory listing
+     * @return file that is read ahead or null, if the file is read by the parser thread
+     */
+    ReadAheadStage.PrefetchedFile readAhead(final Path path,
+            final BasicFileAttributes attributes, final long sequence) {
+        if (readAheadStage == null || attributes == null || ArchiveHandler.isArchiveEntry(path)
+                || FormDataReader.isFormDataFile(path)) {
+            return null;
+        }
+        if (!attributes.isRegularFile() || attributes.size() > scratchFileThreshold
+                || (importCache != null && importCache.containsUnchanged(path, attributes))) {
+            return null;
+        }
+        return readAheadStage.readAhead(path, attributes.size(), sequence);
+    }
+
+    /**
+     * Parses a single PDF file defined by a given Path. If the PDF file contains no form fields and
+     * has no useable data, null is returned to the caller!
+     * <p>
+     * If an import cache is used, the form fields of unchanged files are taken from the cache
+     * instead of reading the PDF file again. Files that are known to be invalid are not read again,
+     * either, and files rejected by the preflight check are rejected again with their stored
+     * reason. Files that could not be read at all are not stored in the cache, so that they are
+     * read again by the next import. Files inside an archive are always read, because the cache
+     * only stores files by their file name.
+     *
+     * @param path
+     *            path describing the PDF file to be parsed
+     * @param name
+     *            name of the PDF file stored in the applicants data
+     * @param attributes
+     *            attributes of the file read while listing the directory or null, if they could
+     *            not be read
+     * @param prefetched
+     *            file read ahead by the reader thread or null, if it has to be read from disk
+     * @param deadline
+     *            deadline of the file, which is stopped while waiting
+     * @return applicants data or null, if file did not contain any form fields
+     * @throws RejectedFileException
+     *             if the file has been rejected by the preflight check
+     * @throws IOException
+     *             if the file could not be read
+     * @throws InterruptedException
+     *             if parsing has been interrupted by a timeout or a cancellation
+     */
+    Applicant parse(final Path path, final String name, final BasicFileAttributes attributes,
+            final ReadAheadStage.PrefetchedFile prefetched, final Deadline deadline)
+            throws RejectedFileException, IOException, InterruptedException {
+        final byte[] content = prefetched != null ? prefetched.take() : null;
+        Map<String, String> formFields = null;
+        if (importCache != null && !ArchiveHandler.isArchiveEntry(path)) {
+            if (attributes != null) {
+                final ImportCache.Entry entry = importCache.lookup(path, attributes, content);
+                if (entry != null) {
+                    if (entry.getRejection() != null) {
+                        throw new RejectedFileException(entry.getRejection());
+                    }
+                    formFields = entry.getFormFields();
+                } else {
+                    try {
+                        formFields = readFormFields(path, content, deadline);
+                    } catch (final RejectedFileException e) {
+                        checkInterrupted();
+                        importCache.storeRejection(path, attributes, e.getMessage(), content);
+                        throw e;
+                    }
+                    checkInterrupted();
+                    importCache.store(path, attributes, formFields, content);
+                }
+            } else {
+                formFields = readFormFields(path, content, deadline);
+            }
+        } else {
+            formFields = readFormFields(path, content, deadline);
+        }
+
+        Applicant student = null;
+        if (formFields != null) {
+            student = buildApplicant(name, formFields);
+            logger.info("Added student registration: " + student);
+        }
+        return student;
+    }
+
+    /**
+     * Checks whether parsing the current file has been interrupted. A file whose parsing has been
+     * interrupted has not been shown to be invalid, so its result must not be stored in the
+     * import cache.
+     *
+     * @throws InterruptedException
+     *             if the current thread has been interrupted
+     */
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Parsing has been interrupted");
+        }
+    }
+
+    /**
+     * Reads the values of all form fields from a FDF or XFDF file. These files are small, so they
+     * are read without reserving memory from the memory budget. If the file could not be parsed,
+     * null is returned to the caller!
+     *
+     * @param path
+     *            path describing the file to be read
+     * @return map with all form field values or null, if file could not be parsed
+     * @throws IOException
+     *             if the file could not be opened
+     */
+    private static Map<String, String> readFormDataFile(final Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            try {
+                return FormDataReader.readFormFields(path, in);
+            } catch (final IOException e) {
+                logger.warn("Could not read form data file: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reads the values of all form fields from a single PDF file in a worker process. The worker
+     * process has its own heap, so no memory is reserved from the memory budget. If the file
+     * could not be parsed or contains no form, null is returned to the caller!
+     *
+     * @param path
+     *            path describing the PDF file to be read
+     * @param deadline
+     *            deadline of the file, which is stopped while waiting for a worker
+     * @return map with all form field values or null, if file did not contain any form fields
+     * @throws RejectedFileException
+     *             if the file has been rejected by the preflight check
+     * @throws IOException
+     *             if the worker process could not read the file
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting for a worker process
+     */
+    private Map<String, String> readFormFieldsInWorker(final Path path, final Deadline deadline)
+            throws RejectedFileException, IOException, InterruptedException {
+        deadline.stopDeadline();
+        return workerPool.readFormFields(path, new Runnable() {
+            @Override
+            public void run() {
+                deadline.startDeadline();
+            }
+        });
+    }
+
+    /**
+     * Reads the values of all form fields from a single PDF file. The values are stored by the
+     * fully qualified name of their form field in the order in which the fields are stored in the
+     * PDF file. If the file could not be parsed or contains no form, null is returned to the
+     * caller! If the file could not be read at all, an exception is thrown instead, because it has
+     * not been shown that the file is invalid.
+     * <p>
+     * If the file has been read ahead, it is parsed from memory. Otherwise it is read from disk by
+     * this thread. In both cases the memory for parsing is reserved from the memory budget.
+     * <p>
+     * Files that are no PDF files or contain no form are rejected by a preflight check before any
+     * memory is reserved. Entries of archives can not be read at given positions and are always
+     * parsed.
+     *
+     * @param path
+     *            path describing the PDF file to be read
+     * @param content
+     *            content of the file read ahead by the reader thread or null, if it has to be
+     *            read from disk
+     * @param deadline
+     *            deadline of the file, which is stopped while waiting for memory
+     * @return map with all form field values or null, if file did not contain any form fields
+     * @throws RejectedFileException
+     *             if the file has been rejected by the preflight check
+     * @throws IOException
+     *             if the file could not be read
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting for memory or a worker process
+     */
+    private Map<String, String> readFormFields(final Path path, final byte[] content,
+            final Deadline deadline) throws RejectedFileException, IOException,
+            InterruptedException {
+        if (FormDataReader.isFormDataFile(path)) {
+            return readFormDataFile(path);
+        }
+        final boolean archiveEntry = ArchiveHandler.isArchiveEntry(path);
+        if (workerPool != null && !archiveEntry) {
+            return readFormFieldsInWorker(path, deadline);
+        }
+        final String rejection;
+        if (content != null) {
+            rejection = PdfPreflight.check(content);
+        } else {
+            rejection = archiveEntry ? null : PdfPreflight.check(path);
+        }
+        if (rejection != null) {
+            throw new RejectedFileException(rejection);
+        }
+        final long fileSize = content != null ? content.length : Files.size(path);
+
+        PDDocument pdfDocument = null;
+        Map<String, String> formFieldValues = null;
+        Path scratchFile = null;
+        RandomAccessFile scratch = null;
+        final long neededMemory = fileSize * MEMORY_PER_FILE_BYTE;
+        deadline.stopDeadline();
+        // files read ahead are dropped from the buffer, if parsing would have to wait for them
+        final int reservedMemory = readAheadStage != null ? readAheadStage
+                .acquireMemory(neededMemory) : memoryBudget.acquire(neededMemory);
+        deadline.startDeadline();
+        try {
+            if (content != null) {
+                pdfDocument = AcroFormReader.open(content, null);
+            } else {
+                if (fileSize > scratchFileThreshold) {
+                    logger.debug("Opening large PDF file with scratch file: " + path);
+                    scratchFile = Files.createTempFile("pdf_scratch_", null);
+                    scratch = new RandomAccessFile(scratchFile.toFile(), "rw");
+                }
+                if (archiveEntry) {
+                    final InputStream in = Files.newInputStream(path);
+                    pdfDocument = AcroFormReader.open(in, scratch);
+                } else {
+                    pdfDocument = AcroFormReader.open(path, scratch);
+                }
+            }
+            if (pdfDocument != null) {
+                formFieldValues = AcroFormReader.readFields(pdfDocument);
+            }
+        } catch (final FileNotFoundException | FileSystemException e) {
+            // the file could not be opened at all, so it has not been parsed
+            throw e;
+        } catch (final IOException e) {
+            logger.warn("Could not open PDF file.");
+        } finally {
+            try {
+                if (pdfDocument != null) {
+                    pdfDocument.close();
+                }
+                if (scratch != null) {
+                    scratch.close();
+                }
+                if (scratchFile != null) {
+                    Files.deleteIfExists(scratchFile);
+                }
+            } catch (final IOException e) {
+                logger.warn("Could not close PDF file.");
+            }
+            memoryBudget.release(reservedMemory);
+        }
+        return formFieldValues;
+    }
+
+    /**
+     * Creates a new Applicant from the values of the form fields of a PDF file.
+     *
+     * @param fileName
+     *            name of the PDF file from which the values were read
+     * @param formFields
+     *            values of all form fields by their fully qualified names
+     * @return applicants data
+     */
+    private Applicant buildApplicant(final String fileName, final Map<String, String> formFields) {
+        final ApplicantBuilder builder = new ApplicantBuilder();
+        builder.setFileName(fileName);
+        final ExtractionPlan plan = fieldMapping.getExtractionPlan(formFields.keySet());
+        results.countFormVersion(plan.getFingerprint());
+        plan.apply(formFields, builder, valueDictionary);
+        return builder.build();
+    }
+}
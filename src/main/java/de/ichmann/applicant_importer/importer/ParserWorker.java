@@ -0,0 +1,135 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * Main class of a worker process started by a WorkerProcessPool. It reads paths of PDF files from
+ * its standard input, parses them one after another and writes the values of their form fields
+ * to its standard output. The process exits when its standard input is closed.
+ * <p>
+ * All output of the application (e.g. log messages) is redirected to the standard error stream,
+ * so that only results are written to the standard output.
+ *
+ * @author Christian Wichmann
+ */
+final class ParserWorker {
+
+    /**
+     * Exit code after a fatal error like an exhausted heap.
+     */
+    private static final int EXIT_FATAL_ERROR = 3;
+
+    /**
+     * Private constructor of main class.
+     */
+    private ParserWorker() {
+    }
+
+    /**
+     * Parses all files whose paths are read from the standard input.
+     *
+     * @param args
+     *            size in bytes above which a scratch file is used
+     * @throws IOException
+     *             if the standard input or output could not be used
+     */
+    public static void main(final String[] args) throws IOException {
+        // standard output is reserved for the results
+        final OutputStream resultStream = new FileOutputStream(FileDescriptor.out);
+        System.setOut(System.err);
+
+        final long scratchFileThreshold = Long.parseLong(args[0]);
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(resultStream));
+        while (true) {
+            final String path;
+            try {
+                path = in.readUTF();
+            } catch (final EOFException e) {
+                break;
+            }
+            boolean fatal = false;
+            byte[] response;
+            try {
+                response = buildResponse(AcroFormReader.readFile(Paths.get(path),
+                        scratchFileThreshold));
+            } catch (final RejectedFileException e) {
+                response = buildResponse(WorkerProcessPool.RESULT_REJECTED, e.getMessage());
+            } catch (final IOException e) {
+                response = buildResponse(WorkerProcessPool.RESULT_READ_ERROR, e.toString());
+            } catch (final RuntimeException | StackOverflowError e) {
+                response = buildResponse(WorkerProcessPool.RESULT_ERROR, e.toString());
+            } catch (final OutOfMemoryError e) {
+                response = buildResponse(WorkerProcessPool.RESULT_FATAL_ERROR,
+                        "Speicher des Parser-Prozesses erschöpft");
+                fatal = true;
+            }
+            out.write(response);
+            out.flush();
+            if (fatal) {
+                System.exit(EXIT_FATAL_ERROR);
+            }
+        }
+    }
+
+    /**
+     * Builds the response for a parsed file. If the values can not be written (e.g. because a
+     * value is too long), an error is returned instead.
+     *
+     * @param formFields
+     *            values of all form fields or null, if the file contains no form
+     * @return response to be written to the standard output
+     */
+    private static byte[] buildResponse(final Map<String, String> formFields) {
+        if (formFields == null) {
+            return new byte[] { WorkerProcessPool.RESULT_NO_FORM };
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(WorkerProcessPool.RESULT_FORM_FIELDS);
+            out.writeInt(formFields.size());
+            for (final Map.Entry<String, String> field : formFields.entrySet()) {
+                out.writeUTF(field.getKey());
+                out.writeBoolean(field.getValue() != null);
+                if (field.getValue() != null) {
+                    out.writeUTF(field.getValue());
+                }
+            }
+        } catch (final IOException e) {
+            return buildResponse(WorkerProcessPool.RESULT_ERROR, e.toString());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Builds a response consisting of a result and a message.
+     *
+     * @param result
+     *            result of the file
+     * @param message
+     *            message describing the result
+     * @return response to be written to the standard output
+     */
+    private static byte[] buildResponse(final int result, final String message) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(result);
+            // messages are short, but must never break the protocol
+            out.writeUTF(message.length() > 1000 ? message.substring(0, 1000) : message);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Could not build response", e);
+        }
+        return bytes.toByteArray();
+    }
+}
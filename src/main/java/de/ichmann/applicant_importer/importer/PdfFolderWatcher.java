@@ -0,0 +1,312 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.ichmann.applicant_importer.model.Applicant;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches a directory for new or modified PDF files and imports them continuously. Files with
+ * exported form data (FDF and XFDF files) are imported, too. Every PDF file
+ * that is created or modified inside the directory is imported as soon as it has been completely
+ * written. A file is regarded as completely written when its size and modification time have not
+ * changed for a given settle time and it can be opened for reading.
+ * <p>
+ * All files that became ready at the same time are imported together by a PdfFormImporter that
+ * parses only these files. The imported applicants are passed to the given ApplicantListener.
+ * Because a modified file is imported again, the listener can receive more than one applicant for
+ * the same file name. Files that could not be imported are reported to an optional
+ * InvalidFileListener together with the reason, if it is known. When a cache directory is given,
+ * the files are journaled in the same ImportCache as a normal import of the directory, so that
+ * files that have already been rejected are not parsed again.
+ * <p>
+ * After using the watcher the close() method has to be called to stop watching the directory and
+ * to shutdown all threads.
+ *
+ * @author Christian Wichmann
+ */
+public final class PdfFolderWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfFolderWatcher.class);
+
+    /**
+     * Default time in milliseconds a file must stay unchanged before it is imported.
+     */
+    public static final long DEFAULT_SETTLE_TIME = 2000;
+
+    private static final long CHECK_INTERVAL = 500;
+
+    private static final PathMatcher FORM_FILE_MATCHER = FileSystems.getDefault().getPathMatcher(
+            "glob:*.{pdf,fdf,xfdf}");
+
+    private final Path directory;
+    private final ApplicantListener applicantListener;
+    private final InvalidFileListener invalidFileListener;
+    private final Path cacheDirectory;
+    private final long settleTime;
+
+    private final WatchService watchService;
+    private final ScheduledExecutorService scheduler;
+    private final Thread watchThread;
+
+    /**
+     * Contains all files that have been created or modified but are not yet imported.
+     */
+    private final ConcurrentMap<Path, PendingFile> pendingFiles = new ConcurrentHashMap<>();
+
+    /**
+     * Stores the state of a file that has been created or modified but not yet been imported.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class PendingFile {
+        private long size = -1;
+        private long lastModified = -1;
+        private long lastChange = System.currentTimeMillis();
+    }
+
+    /**
+     * Initializes a new watcher for a given directory and starts watching it.
+     *
+     * @param directory
+     *            directory to be watched for new PDF files
+     * @param applicantListener
+     *            listener that receives all imported applicants
+     * @param invalidFileListener
+     *            listener that receives all files that could not be imported or null
+     * @param cacheDirectory
+     *            directory of the import cache or null, if no cache should be used
+     * @param settleTime
+     *            time in milliseconds a file must stay unchanged before it is imported
+     * @throws IOException
+     *             if the directory could not be watched
+     * @throws IllegalArgumentException
+     *             if parameter directory or applicantListener is {@code null}
+     */
+    public PdfFolderWatcher(final Path directory, final ApplicantListener applicantListener,
+            final InvalidFileListener invalidFileListener, final Path cacheDirectory,
+            final long settleTime) throws IOException {
+        if (directory == null || applicantListener == null) {
+            throw new IllegalArgumentException(
+                    "Parameters directory and applicantListener must not be null");
+        }
+        this.directory = directory;
+        this.applicantListener = applicantListener;
+        this.invalidFileListener = invalidFileListener;
+        this.cacheDirectory = cacheDirectory;
+        this.settleTime = settleTime;
+
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    importReadyFiles();
+                } catch (final Exception e) {
+                    logger.error("Could not import new files: " + e.getMessage());
+                }
+            }
+        }, CHECK_INTERVAL, CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+
+        watchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watchDirectory();
+            }
+        }, "PdfFolderWatcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("Started watching directory " + directory);
+    }
+
+    /**
+     * Initializes a new watcher for a given directory without cache and starts watching it. Files
+     * that could not be imported are only logged.
+     *
+     * @param directory
+     *            directory to be watched for new PDF files
+     * @param applicantListener
+     *            listener that receives all imported applicants
+     * @param settleTime
+     *            time in milliseconds a file must stay unchanged before it is imported
+     * @throws IOException
+     *             if the directory could not be watched
+     */
+    public PdfFolderWatcher(final Path directory, final ApplicantListener applicantListener,
+            final long settleTime) throws IOException {
+        this(directory, applicantListener, null, null, settleTime);
+    }
+
+    /**
+     * Initializes a new watcher for a given directory with the default settle time and starts
+     * watching it.
+     *
+     * @param directory
+     *            directory to be watched for new PDF files
+     * @param applicantListener
+     *            listener that receives all imported applicants
+     * @throws IOException
+     *             if the directory could not be watched
+     */
+    public PdfFolderWatcher(final Path directory, final ApplicantListener applicantListener)
+            throws IOException {
+        this(directory, applicantListener, DEFAULT_SETTLE_TIME);
+    }
+
+    /**
+     * Stops watching the directory and shuts down all threads. Files that have not yet been
+     * imported are ignored. Afterwards the importFinished() method of the listener is called.
+     */
+    public void close() {
+        logger.info("Stopped watching directory " + directory);
+        try {
+            watchService.close();
+        } catch (final IOException e) {
+            logger.warn("Could not close watch service.");
+        }
+        scheduler.shutdownNow();
+        applicantListener.importFinished();
+    }
+
+    /**
+     * Waits for changes inside the watched directory and remembers all created or modified PDF
+     * files. This method runs until the watch service is closed.
+     */
+    private void watchDirectory() {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        logger.warn("Some changes in watched directory have been lost!");
+                        continue;
+                    }
+                    final Path fileName = (Path) event.context();
+                    if (fileName != null && FORM_FILE_MATCHER.matches(fileName)) {
+                        final Path path = directory.resolve(fileName);
+                        final PendingFile pendingFile = new PendingFile();
+                        if (pendingFiles.put(path, pendingFile) == null) {
+                            logger.debug("Found new or modified PDF file: " + path);
+                        }
+                    }
+                }
+                if (!key.reset()) {
+                    logger.warn("Watched directory is no longer accessible: " + directory);
+                    break;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ClosedWatchServiceException e) {
+            logger.debug("Watch service has been closed.");
+        }
+    }
+
+    /**
+     * Checks all pending files whether they have been completely written and imports them. A file
+     * is only removed from the pending files, if the watch thread has not replaced its entry in
+     * the meantime. Otherwise it has been modified again and stays pending with its new entry.
+     */
+    private void importReadyFiles() {
+        final List<Path> readyFiles = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        for (final Map.Entry<Path, PendingFile> entry : pendingFiles.entrySet()) {
+            final Path path = entry.getKey();
+            final PendingFile pendingFile = entry.getValue();
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (final IOException e) {
+                // file has been deleted or renamed in the meantime
+                pendingFiles.remove(path, pendingFile);
+                continue;
+            }
+            final long lastModified = attributes.lastModifiedTime().toMillis();
+            if (attributes.size() != pendingFile.size
+                    || lastModified != pendingFile.lastModified) {
+                pendingFile.size = attributes.size();
+                pendingFile.lastModified = lastModified;
+                pendingFile.lastChange = now;
+            } else if (now - pendingFile.lastChange >= settleTime && canBeOpened(path)
+                    && pendingFiles.remove(path, pendingFile)) {
+                readyFiles.add(path);
+            }
+        }
+        if (!readyFiles.isEmpty()) {
+            importFiles(readyFiles);
+        }
+    }
+
+    /**
+     * Checks whether a file can be opened for reading. On some operating systems a file can not be
+     * opened while another program is still writing it.
+     *
+     * @param path
+     *            file to be checked
+     * @return true, if file can be opened for reading
+     */
+    private boolean canBeOpened(final Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.size() > 0;
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Imports a list of files and passes all applicants to the listener. Afterwards all files that
+     * could not be imported are passed to the invalid file listener. This method waits until the
+     * import is finished.
+     *
+     * @param files
+     *            files to be imported
+     */
+    private void importFiles(final List<Path> files) {
+        logger.info(String.format("Importing %d new or modified PDF files...", files.size()));
+        final ApplicantQueue queue = new ApplicantQueue();
+        final PdfFormImporter importer = new PdfFormImporter.ImporterBuilder(directory)
+                .setFiles(files).setCacheDirectory(cacheDirectory).setApplicantListener(queue)
+                .setCollectApplicants(false).build();
+        for (final Applicant applicant : queue) {
+            applicantListener.applicantImported(applicant);
+        }
+        final Map<String, String> reasons = importer.getReasonsForInvalidPdfFiles();
+        for (final String fileName : importer.getListOfInvalidPdfFiles()) {
+            final String reason = reasons.get(fileName);
+            logger.warn("Could not import file " + fileName
+                    + (reason != null ? ": " + reason : ""));
+            if (invalidFileListener != null) {
+                invalidFileListener.fileRejected(fileName, reason);
+            }
+        }
+        importer.disposeImporter();
+    }
+}
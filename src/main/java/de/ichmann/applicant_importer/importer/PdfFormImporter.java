@@ -6,33 +6,43 @@ package de.ichmann.applicant_importer.importer;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
+import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
-import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
-import org.apache.pdfbox.pdmodel.interactive.form.PDField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.ichmann.applicant_importer.exporter.NationalityConverter;
 import de.ichmann.applicant_importer.model.Applicant;
-import de.ichmann.applicant_importer.model.Applicant.ApplicantBuilder;
-import de.ichmann.applicant_importer.model.DataField;
-import de.ichmann.applicant_importer.model.Degree;
-import de.ichmann.applicant_importer.model.Religion;
-import de.ichmann.applicant_importer.model.School;
+import de.ichmann.applicant_importer.model.ApplicantStore;
 
 /**
  * Imports and evaluates data from PDF forms and creates the Applicant objects accordingly. Form
@@ -46,7 +56,70 @@ import de.ichmann.applicant_importer.model.School;
  * <p>
  * Besides the string fields some special fields are evaluated sperately: boolean fields
  * (Umschueler, Geschlecht), fields containing a duration (DauerAusbildung), and enumerated values
- * (SchulbesuchBisher, Schulabschluss).
+ * (SchulbesuchBisher, Schulabschluss). Which form field is stored in which data field and how its
+ * value is converted, is defined by a FieldMapping.
+ * <p>
+ * Besides PDF files, files with form data exported by a PDF viewer (FDF and XFDF files) are
+ * imported. They are evaluated by the same FieldMapping as the fields of PDF files.
+ * <p>
+ * ZIP archives inside the import directory are read without extracting them, and instead of a
+ * directory a single ZIP archive can be imported. The PDF files inside an archive are named like
+ * "archive.zip!/entry.pdf" in the applicants data and in the list of invalid files.
+ * <p>
+ * In recursive mode the whole directory tree below the import directory is imported, e.g. a tree
+ * like "year/branch/week/*.pdf". Files in subdirectories are named by their path relative to the
+ * import directory. Include and exclude patterns restrict which files and directories are
+ * imported, and the progress is reported for every directory to a DirectoryProgressListener.
+ * <p>
+ * Every PDF file is parsed independently by a pool of worker threads. The size of this pool
+ * defaults to the number of available processors and can be set by using the ImporterBuilder.
+ * Regardless of the order in which the workers finish, the results are always sorted by the file
+ * name of the PDF files. The order in which the workers take the files is defined by a
+ * SchedulingPolicy. By default the largest files are parsed first, so that no large file is left
+ * for a single worker at the end of the import.
+ * <p>
+ * To process applicants while the import is still running, an ApplicantListener can be set. It
+ * receives every applicant as soon as its PDF file has been parsed. If the list of all applicants
+ * is not needed afterwards, collecting the applicants can be switched off.
+ * <p>
+ * If a cache directory is given, the values of all form fields are stored in an ImportCache.
+ * Unchanged PDF files are then taken from the cache by later imports of the same directory.
+ * Every parsed file is journaled at once, so that an import that has been interrupted (e.g. because
+ * the application died) only parses the missing files when the directory is imported again.
+ * <p>
+ * The memory used by PDF documents that are parsed at the same time is limited by a memory budget.
+ * Before a file is opened, its estimated memory is reserved from the budget, so that only few
+ * large files are in flight at once. Files larger than a threshold are opened with a scratch file
+ * on disk that holds the decoded stream data instead of the heap.
+ * <p>
+ * Optionally PDF files are parsed in a pool of separate Java processes with their own heap limit,
+ * so that a file exhausting the heap or crashing PDFBox only fails itself. The worker processes
+ * send back the values of the form fields, which are mapped to applicants and cached inside the
+ * application as usual.
+ * <p>
+ * All string values of the applicants are passed through a ValueDictionary, so that values
+ * repeating in many PDF files (e.g. cities or company names) share a single instance.
+ * <p>
+ * While the parser threads are busy, a reader thread reads the next small files into memory, so
+ * that reading files from disk or from a network share overlaps with parsing. The number of files
+ * read ahead is bounded and only files not larger than the scratch file threshold are read ahead.
+ * <p>
+ * Before a PDF file is parsed, a preflight check reads its header and its catalog with a few small
+ * reads. Files that are no PDF files or contain no form are rejected without parsing them, and
+ * the reason is reported together with the invalid files.
+ * <p>
+ * Parsing a single file may take at most a given time. Files that take longer or fail with an
+ * error are put into quarantine together with the reason, and the import goes on with the other
+ * files. The whole import can be cancelled through the handle returned by getImportHandle().
+ * <p>
+ * The progress of the import is reported to an ImportProgressListener. Parser threads only update
+ * atomic counters, and the progress is delivered through a given executor (e.g. on the Event
+ * Dispatch Thread) at most once per interval. The end of the import is signaled by separate calls
+ * for a finished and a failed import.
+ * <p>
+ * The importer itself lists the files and coordinates the parser threads. A ParsePipeline turns a
+ * single file into an applicant, an ArchiveHandler opens the ZIP archives and ImportResults
+ * collects the results of all parser threads.
  * <p>
  * After using the importer the disposeImporter() method has to be called to explicitly shutdown all
  * thread used to import the data.
@@ -57,19 +130,540 @@ public final class PdfFormImporter {
 
     private static final Logger logger = LoggerFactory.getLogger(PdfFormImporter.class);
 
-    private final List<Applicant> listOfStudents = new ArrayList<Applicant>();
-    private final List<String> listOfInvalidPdfFiles = new ArrayList<String>();
+    /**
+     * Pattern for all files containing form data: PDF forms and files with exported form data.
+     */
+    private static final String FORM_FILE_PATTERN = "glob:*.{pdf,fdf,xfdf}";
+
+    private static final PathMatcher FORM_FILE_MATCHER = FileSystems.getDefault().getPathMatcher(
+            FORM_FILE_PATTERN);
+
+    /**
+     * Default size in bytes above which PDF files are opened with a scratch file.
+     */
+    public static final long DEFAULT_SCRATCH_FILE_THRESHOLD = 4 * 1024 * 1024;
+
+    /**
+     * Default time in milliseconds after which parsing a single file is aborted.
+     */
+    public static final long DEFAULT_PARSE_TIMEOUT = 60000;
+
+    /**
+     * Default minimal time in milliseconds between two deliveries of the progress.
+     */
+    public static final long DEFAULT_PROGRESS_INTERVAL = 100;
+
+    /**
+     * Default number of files that are read into memory ahead of the parser threads.
+     */
+    public static final int DEFAULT_READ_AHEAD = 8;
 
     /**
-     * Contains for every data field in the PDF file the associated name of that field.
+     * Default maximum heap size in bytes of every worker process parsing PDF files.
      */
-    private final Map<String, DataField> dataFieldNames = new HashMap<>();
+    public static final long DEFAULT_WORKER_HEAP_SIZE = 256 * 1024 * 1024;
 
     private final ExecutorService threadPool;
-    private final ActionListener importListener;
+    private final ThreadPoolExecutor parserPool;
+    private final ScheduledExecutorService watchdog;
+    private final long parseTimeout;
+    private final ProgressChannel progressChannel;
+    private final ApplicantListener applicantListener;
+    private final ValueDictionary valueDictionary;
+    private final ImportCache importCache;
+    private final ReadAheadStage readAheadStage;
+    private final WorkerProcessPool workerPool;
+    private final SchedulingPolicy schedulingPolicy;
+    private final boolean recursive;
+    private final List<PathMatcher> includeMatchers;
+    private final List<PathMatcher> excludeMatchers;
+    private final ImportResults results;
+    private final ParsePipeline parsePipeline;
+    private final ArchiveHandler archives = new ArchiveHandler();
+
+    /**
+     * Number of files that were handed to the parser pool. It is only used by the thread that
+     * lists the directory.
+     */
+    private int numberOfSubmittedFiles = 0;
+
+    /**
+     * Is released once for every file that has been parsed, timed out or failed.
+     */
+    private final Semaphore finishedFiles = new Semaphore(0);
+
+    /**
+     * Guards the results of all parser threads. After the results have been collected, results of
+     * parser threads that are still running (e.g. after a timeout) are ignored.
+     */
+    private final Object resultLock = new Object();
+    private boolean resultsCollected = false;
 
-    private final AtomicInteger numberOfPdfFiles = new AtomicInteger(0);
-    private final AtomicInteger currentPdfFiles = new AtomicInteger(0);
+    private final ImportHandle importHandle = new ImportHandle();
+    private final CountDownLatch importDone = new CountDownLatch(1);
+    private volatile boolean cancelled = false;
+    private volatile Thread coordinatorThread;
+    private volatile Exception importError;
+
+    /**
+     * Collects all settings for an import and creates a new PdfFormImporter with them. The import
+     * starts as soon as the importer has been built.
+     *
+     * @author Christian Wichmann
+     */
+    public static class ImporterBuilder {
+
+        private final Path directory;
+        private ActionListener importListener;
+        private ImportProgressListener progressListener;
+        private Executor progressExecutor = ProgressChannel.DIRECT_EXECUTOR;
+        private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+        private ApplicantListener applicantListener;
+        private boolean collectApplicants = true;
+        private ApplicantStore applicantStore;
+        private ValueDictionary valueDictionary = new ValueDictionary();
+        private Path cacheDirectory;
+        private Collection<Path> files;
+        private FieldMapping fieldMapping;
+        private int numberOfThreads = Runtime.getRuntime().availableProcessors();
+        private long memoryBudget = Runtime.getRuntime().maxMemory() / 2;
+        private long scratchFileThreshold = DEFAULT_SCRATCH_FILE_THRESHOLD;
+        private long parseTimeout = DEFAULT_PARSE_TIMEOUT;
+        private int readAhead = DEFAULT_READ_AHEAD;
+        private int workerProcesses = 0;
+        private long workerHeapSize = DEFAULT_WORKER_HEAP_SIZE;
+        private SchedulingPolicy schedulingPolicy = BuiltInSchedulingPolicy.LARGEST_FIRST;
+        private boolean recursive = false;
+        private List<PathMatcher> includeMatchers = new ArrayList<>();
+        private List<PathMatcher> excludeMatchers = new ArrayList<>();
+
+        /**
+         * Instantiates a new ImporterBuilder for a given directory.
+         *
+         * @param directory
+         *            directory from which to import the PDF files containing the forms
+         * @throws IllegalArgumentException
+         *             if parameter directory is {@code null}
+         */
+        public ImporterBuilder(final Path directory) {
+            if (directory == null) {
+                throw new IllegalArgumentException("Parameter directory must not be null");
+            }
+            this.directory = directory;
+        }
+
+        /**
+         * Sets the listener that is informed about changes at the import. It receives a
+         * PdfFormImporterEvent for the progress and the end of the import. New code should use an
+         * ImportProgressListener instead.
+         *
+         * @param importListener
+         *            listener for changes at the import
+         * @return this builder itself
+         */
+        public final ImporterBuilder setImportListener(final ActionListener importListener) {
+            this.importListener = importListener;
+            return this;
+        }
+
+        /**
+         * Sets the listener that receives the progress and the end of the import.
+         *
+         * @param progressListener
+         *            listener for the progress of the import
+         * @return this builder itself
+         */
+        public final ImporterBuilder setProgressListener(
+                final ImportProgressListener progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        /**
+         * Sets the executor that calls all progress listeners. By default the listeners are called
+         * directly by the threads of the importer. A user interface should give an executor that
+         * runs the calls on its own thread, e.g. on the Event Dispatch Thread.
+         *
+         * @param progressExecutor
+         *            executor for calling the progress listeners
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter progressExecutor is {@code null}
+         */
+        public final ImporterBuilder setProgressExecutor(final Executor progressExecutor) {
+            if (progressExecutor == null) {
+                throw new IllegalArgumentException("Parameter progressExecutor must not be null");
+            }
+            this.progressExecutor = progressExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the minimal time between two deliveries of the progress. Progress of files that
+         * finish in between is coalesced into the next delivery.
+         *
+         * @param progressInterval
+         *            minimal time between two deliveries in milliseconds, zero to deliver the
+         *            progress after every file
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter progressInterval is negative
+         */
+        public final ImporterBuilder setProgressInterval(final long progressInterval) {
+            if (progressInterval < 0) {
+                throw new IllegalArgumentException(
+                        "Parameter progressInterval must not be negative");
+            }
+            this.progressInterval = progressInterval;
+            return this;
+        }
+
+        /**
+         * Sets the listener that receives every applicant as soon as its PDF file has been parsed.
+         *
+         * @param applicantListener
+         *            listener for newly imported applicants
+         * @return this builder itself
+         */
+        public final ImporterBuilder setApplicantListener(
+                final ApplicantListener applicantListener) {
+            this.applicantListener = applicantListener;
+            return this;
+        }
+
+        /**
+         * Sets whether all imported applicants are collected in a list that can be retrieved by
+         * getListOfStudents() after the import. If applicants are only processed by an
+         * ApplicantListener, collecting them can be switched off to save memory.
+         *
+         * @param collectApplicants
+         *            whether all applicants are collected in a list
+         * @return this builder itself
+         */
+        public final ImporterBuilder setCollectApplicants(final boolean collectApplicants) {
+            this.collectApplicants = collectApplicants;
+            return this;
+        }
+
+        /**
+         * Sets the store in which all collected applicants are stored column by column. Every
+         * applicant is appended as soon as its file has been parsed, so that only the row view is
+         * kept until the end of the import. The rows are appended in the order in which the files
+         * are finished. The list returned by getListOfStudents() contains row views of this store
+         * sorted by file name instead of separate applicant objects, which saves memory for very
+         * large imports. The parser threads append to the store while holding its monitor. The
+         * store must not be used by other importers at the same time and may only be read after
+         * the import has finished.
+         *
+         * @param applicantStore
+         *            store for all collected applicants or null, if no store should be used
+         * @return this builder itself
+         */
+        public final ImporterBuilder setApplicantStore(final ApplicantStore applicantStore) {
+            this.applicantStore = applicantStore;
+            return this;
+        }
+
+        /**
+         * Sets the dictionary through which all string values of the applicants are passed, so
+         * that identical values share a single instance. By default every importer uses its own
+         * dictionary. A dictionary can be shared by several importers to deduplicate values across
+         * imports.
+         *
+         * @param valueDictionary
+         *            dictionary for deduplicating values or null, if values should not be
+         *            deduplicated
+         * @return this builder itself
+         */
+        public final ImporterBuilder setValueDictionary(final ValueDictionary valueDictionary) {
+            this.valueDictionary = valueDictionary;
+            return this;
+        }
+
+        /**
+         * Sets the directory in which the import cache is stored. If a cache directory is set, the
+         * form field values of all PDF files are stored in a cache file, so that unchanged files
+         * are not parsed again by later imports of the same directory. Because every file is
+         * journaled at once, an interrupted import is resumed with the files that are still
+         * missing. By default no cache is used.
+         *
+         * @param cacheDirectory
+         *            directory for cache files or null, if no cache should be used
+         * @return this builder itself
+         */
+        public final ImporterBuilder setCacheDirectory(final Path cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+            return this;
+        }
+
+        /**
+         * Restricts the import to the given PDF files. Instead of listing the whole directory,
+         * only these files are parsed. This is used to import files that have been added to a
+         * directory after it was imported.
+         *
+         * @param files
+         *            PDF files to be imported or null, if all files of the directory should be
+         *            imported
+         * @return this builder itself
+         */
+        public final ImporterBuilder setFiles(final Collection<Path> files) {
+            if (files != null) {
+                this.files = new ArrayList<>(files);
+            } else {
+                this.files = null;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the number of threads that parse PDF files in parallel. By default one thread for
+         * every available processor is used.
+         *
+         * @param numberOfThreads
+         *            number of threads parsing PDF files
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter numberOfThreads is smaller than one
+         */
+        public final ImporterBuilder setNumberOfThreads(final int numberOfThreads) {
+            if (numberOfThreads < 1) {
+                throw new IllegalArgumentException("Parameter numberOfThreads must be positive");
+            }
+            this.numberOfThreads = numberOfThreads;
+            return this;
+        }
+
+        /**
+         * Sets the mapping from PDF form field names to data fields. By default the mapping for
+         * the current version of the PDF form is used.
+         *
+         * @param fieldMapping
+         *            mapping of form fields or null, if the default mapping should be used
+         * @return this builder itself
+         */
+        public final ImporterBuilder setFieldMapping(final FieldMapping fieldMapping) {
+            this.fieldMapping = fieldMapping;
+            return this;
+        }
+
+        /**
+         * Sets the number of bytes that all PDF documents parsed at the same time may use. A
+         * parser thread waits before opening a file until enough memory is available. By default
+         * half of the maximum heap size is used.
+         *
+         * @param memoryBudget
+         *            memory budget for all parser threads in bytes
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter memoryBudget is not positive
+         */
+        public final ImporterBuilder setMemoryBudget(final long memoryBudget) {
+            if (memoryBudget <= 0) {
+                throw new IllegalArgumentException("Parameter memoryBudget must be positive");
+            }
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * Sets the time after which parsing a single file is aborted. The file is then put into
+         * quarantine and the import goes on with the other files. Time spent waiting for the
+         * memory budget or for a free worker process is not counted. By default parsing a file
+         * may take one minute.
+         *
+         * @param parseTimeout
+         *            time in milliseconds or zero, if parsing should never be aborted
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter parseTimeout is negative
+         */
+        public final ImporterBuilder setParseTimeout(final long parseTimeout) {
+            if (parseTimeout < 0) {
+                throw new IllegalArgumentException("Parameter parseTimeout must not be negative");
+            }
+            this.parseTimeout = parseTimeout;
+            return this;
+        }
+
+        /**
+         * Sets the size in bytes above which PDF files are opened with a scratch file on disk
+         * instead of buffering all decoded data in memory.
+         *
+         * @param scratchFileThreshold
+         *            file size in bytes above which a scratch file is used
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter scratchFileThreshold is negative
+         */
+        public final ImporterBuilder setScratchFileThreshold(final long scratchFileThreshold) {
+            if (scratchFileThreshold < 0) {
+                throw new IllegalArgumentException(
+                        "Parameter scratchFileThreshold must not be negative");
+            }
+            this.scratchFileThreshold = scratchFileThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the number of files that are read into memory ahead of the parser threads. Only
+         * files not larger than the scratch file threshold are read ahead. The content of the
+         * buffered files is reserved from the memory budget. If the budget is exhausted, files are
+         * not read ahead but read by the parser threads themselves.
+         *
+         * @param readAhead
+         *            maximum number of files read ahead, zero to let every parser thread read its
+         *            file itself
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter readAhead is negative
+         */
+        public final ImporterBuilder setReadAhead(final int readAhead) {
+            if (readAhead < 0) {
+                throw new IllegalArgumentException("Parameter readAhead must not be negative");
+            }
+            this.readAhead = readAhead;
+            return this;
+        }
+
+        /**
+         * Sets the number of separate Java processes in which PDF files are parsed. Every process
+         * has its own heap, so that a file exhausting the heap or crashing PDFBox can not take
+         * down the application. If a process crashes or takes longer than the parse timeout, it is
+         * restarted and only the file it was parsing is put into quarantine. Files are not read
+         * ahead when worker processes are used. Entries of archives and files with exported form
+         * data are always parsed inside the application.
+         *
+         * @param workerProcesses
+         *            number of worker processes, zero to parse all files inside the application
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter workerProcesses is negative
+         */
+        public final ImporterBuilder setWorkerProcesses(final int workerProcesses) {
+            if (workerProcesses < 0) {
+                throw new IllegalArgumentException(
+                        "Parameter workerProcesses must not be negative");
+            }
+            this.workerProcesses = workerProcesses;
+            return this;
+        }
+
+        /**
+         * Sets the maximum heap size of every worker process parsing PDF files.
+         *
+         * @param workerHeapSize
+         *            maximum heap size in bytes
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter workerHeapSize is not positive
+         */
+        public final ImporterBuilder setWorkerHeapSize(final long workerHeapSize) {
+            if (workerHeapSize <= 0) {
+                throw new IllegalArgumentException("Parameter workerHeapSize must be positive");
+            }
+            this.workerHeapSize = workerHeapSize;
+            return this;
+        }
+
+        /**
+         * Sets the order in which the parser threads take the files. By default the largest files
+         * are parsed first. Besides the policies of BuiltInSchedulingPolicy, any implementation of
+         * SchedulingPolicy can be given.
+         *
+         * @param schedulingPolicy
+         *            order in which the files are parsed
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if parameter schedulingPolicy is {@code null}
+         */
+        public final ImporterBuilder setSchedulingPolicy(final SchedulingPolicy schedulingPolicy) {
+            if (schedulingPolicy == null) {
+                throw new IllegalArgumentException("Parameter schedulingPolicy must not be null");
+            }
+            this.schedulingPolicy = schedulingPolicy;
+            return this;
+        }
+
+        /**
+         * Sets whether all subdirectories of the import directory are imported, too. By default
+         * only the files directly inside the import directory are imported.
+         *
+         * @param recursive
+         *            whether to import the whole directory tree
+         * @return this builder itself
+         */
+        public final ImporterBuilder setRecursive(final boolean recursive) {
+            this.recursive = recursive;
+            return this;
+        }
+
+        /**
+         * Restricts the import to files matching at least one of the given glob patterns (e.g.
+         * "*.pdf" or "2015/**"). A pattern matches a file, if it matches either its name or its
+         * path relative to the import directory. By default all files are imported.
+         *
+         * @param includePatterns
+         *            glob patterns for files to be imported or null, if all files should be
+         *            imported
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if a pattern is {@code null} or not a valid glob pattern
+         */
+        public final ImporterBuilder setIncludePatterns(final Collection<String> includePatterns) {
+            this.includeMatchers = compilePatterns(includePatterns);
+            return this;
+        }
+
+        /**
+         * Excludes all files and directories matching at least one of the given glob patterns
+         * (e.g. "archiv" or "*_alt.pdf") from the import. A pattern matches a file or directory, if
+         * it matches either its name or its path relative to the import directory. Excluded
+         * directories are not listed at all.
+         *
+         * @param excludePatterns
+         *            glob patterns for files and directories to be skipped or null, if nothing
+         *            should be skipped
+         * @return this builder itself
+         * @throws IllegalArgumentException
+         *             if a pattern is {@code null} or not a valid glob pattern
+         */
+        public final ImporterBuilder setExcludePatterns(final Collection<String> excludePatterns) {
+            this.excludeMatchers = compilePatterns(excludePatterns);
+            return this;
+        }
+
+        /**
+         * Compiles glob patterns for the default file system.
+         *
+         * @param patterns
+         *            glob patterns or null
+         * @return matchers for all patterns
+         * @throws IllegalArgumentException
+         *             if a pattern is {@code null} or not a valid glob pattern
+         */
+        private static List<PathMatcher> compilePatterns(final Collection<String> patterns) {
+            final List<PathMatcher> matchers = new ArrayList<>();
+            if (patterns != null) {
+                for (final String pattern : patterns) {
+                    if (pattern == null) {
+                        throw new IllegalArgumentException("Patterns must not be null");
+                    }
+                    matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+                }
+            }
+            return matchers;
+        }
+
+        /**
+         * Creates a new PdfFormImporter with the settings stored in this builder and starts the
+         * import.
+         *
+         * @return new PdfFormImporter object
+         */
+        public final PdfFormImporter build() {
+            return new PdfFormImporter(this);
+        }
+    }
 
     /**
      * Provides an action event fired when a file was imported.
@@ -87,7 +681,9 @@ public final class PdfFormImporter {
          * files that have been already imported.
          * <p>
          * If both parameters are <code>-1</code>, it indicates an error while importing the PDF
-         * files!
+         * files! If the import has been cancelled, the final event contains the number of files
+         * that have been imported until then as both parameters. An ImportProgressListener
+         * receives these signals by separate methods instead.
          *
          * @param source
          *            source of the event
@@ -104,7 +700,8 @@ public final class PdfFormImporter {
         }
 
         /**
-         * Returns the number of PDF files to be imported from a given directory.
+         * Returns the number of PDF files to be imported from a given directory. As long as the
+         * directory listing has not been finished, this number can increase with later events.
          *
          * @return number of PDF files
          */
@@ -176,26 +773,454 @@ public final class PdfFormImporter {
      *            listener for changes at the import
      */
     public PdfFormImporter(final Path directory, final ActionListener importListener) {
-        this.importListener = importListener;
+        this(new ImporterBuilder(directory).setImportListener(importListener));
+    }
 
-        fillDataFieldNamesDictionary();
+    /**
+     * Initialize an instance of PDF form importer from a given builder and start the import.
+     *
+     * @param builder
+     *            builder containing all settings for the import
+     */
+    private PdfFormImporter(final ImporterBuilder builder) {
+        assert builder != null : "Builder instance should not be null!";
 
-        final int poolSize = 1;
-        threadPool = Executors.newFixedThreadPool(poolSize);
+        final List<ImportProgressListener> progressListeners = new ArrayList<>();
+        if (builder.progressListener != null) {
+            progressListeners.add(builder.progressListener);
+        }
+        if (builder.importListener != null) {
+            progressListeners.add(new ImportEventAdapter(builder.importListener));
+        }
+        watchdog = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+                "PdfParserWatchdog"));
+        this.progressChannel = new ProgressChannel(this, progressListeners,
+                builder.progressExecutor, watchdog, builder.progressInterval);
+        this.applicantListener = builder.applicantListener;
+        this.results = new ImportResults(builder.collectApplicants, builder.applicantStore);
+        this.valueDictionary = builder.valueDictionary;
+        final Path directory = builder.directory;
+        final Collection<Path> files = builder.files;
+        if (builder.cacheDirectory != null) {
+            this.importCache = new ImportCache(builder.cacheDirectory, directory);
+        } else {
+            this.importCache = null;
+        }
+        final MemoryBudget memoryBudget = new MemoryBudget(builder.memoryBudget);
+        this.schedulingPolicy = builder.schedulingPolicy;
+        this.recursive = builder.recursive;
+        this.includeMatchers = builder.includeMatchers;
+        this.excludeMatchers = builder.excludeMatchers;
+        if (builder.workerProcesses > 0) {
+            this.workerPool = new WorkerProcessPool(builder.workerProcesses,
+                    builder.workerHeapSize, builder.scratchFileThreshold);
+        } else {
+            this.workerPool = null;
+        }
+        if (builder.readAhead > 0 && workerPool == null) {
+            this.readAheadStage = new ReadAheadStage(builder.readAhead, schedulingPolicy,
+                    memoryBudget, new DaemonThreadFactory("PdfReader"));
+        } else {
+            this.readAheadStage = null;
+        }
+
+        final FieldMapping fieldMapping;
+        if (builder.fieldMapping != null) {
+            fieldMapping = builder.fieldMapping;
+        } else {
+            fieldMapping = FieldMapping.getDefaultMapping();
+        }
+        this.parsePipeline = new ParsePipeline(fieldMapping, valueDictionary, importCache,
+                memoryBudget, builder.scratchFileThreshold, readAheadStage, workerPool, results);
+
+        this.parseTimeout = builder.parseTimeout;
+
+        // parser threads are daemon threads, because a thread stuck in a file can not be stopped
+        // and waiting files are ordered by the scheduling policy
+        parserPool = new ThreadPoolExecutor(builder.numberOfThreads, builder.numberOfThreads, 0L,
+                TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(),
+                new DaemonThreadFactory("PdfParser"));
+        threadPool = Executors.newSingleThreadExecutor();
         threadPool.submit(new Runnable() {
             @Override
             public void run() {
+                coordinatorThread = Thread.currentThread();
                 try {
-                    parseFiles(directory);
+                    parseFiles(directory, files);
                 } catch (final Exception ex) {
                     logger.error("Import could not be finished because an exception was thrown: "
                             + ex.getMessage());
-                    fireImportEvent(new PdfFormImporterEvent(this, -1, -1));
+                    importError = ex;
+                    if (applicantListener != null) {
+                        applicantListener.importFinished();
+                    }
+                    progressChannel.failed(ex);
+                } finally {
+                    watchdog.shutdownNow();
+                    coordinatorThread = null;
+                    // clear a possible interrupt of a cancellation
+                    Thread.interrupted();
+                    importDone.countDown();
                 }
             }
         });
     }
 
+    /**
+     * Creates named daemon threads for the thread pools of the importer.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        /**
+         * Initializes a new thread factory.
+         *
+         * @param name
+         *            prefix for the names of all created threads
+         */
+        private DaemonThreadFactory(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, name + "-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Provides a handle to wait for the end of an import or to cancel it. When the import is
+     * cancelled, no further files are parsed and files that are currently parsed are interrupted.
+     * The importer then finishes the import with the applicants that have been parsed until then
+     * and fires its final event as usual.
+     *
+     * @author Christian Wichmann
+     */
+    private final class ImportHandle implements Future<List<Applicant>> {
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            if (isDone()) {
+                return false;
+            }
+            logger.info("Cancelling import...");
+            cancelled = true;
+            if (mayInterruptIfRunning) {
+                parserPool.shutdownNow();
+            } else {
+                parserPool.shutdown();
+            }
+            if (readAheadStage != null) {
+                readAheadStage.shutdownNow();
+            }
+            if (workerPool != null && mayInterruptIfRunning) {
+                workerPool.shutdown();
+            }
+            final Thread coordinator = coordinatorThread;
+            if (coordinator != null) {
+                coordinator.interrupt();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return importDone.getCount() == 0;
+        }
+
+        @Override
+        public List<Applicant> get() throws InterruptedException, ExecutionException {
+            importDone.await();
+            return getResult();
+        }
+
+        @Override
+        public List<Applicant> get(final long timeout, final TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!importDone.await(timeout, unit)) {
+                throw new TimeoutException("Import has not been finished in time");
+            }
+            return getResult();
+        }
+
+        /**
+         * Returns the result of a finished import.
+         *
+         * @return list of all applicants data
+         * @throws ExecutionException
+         *             if the import could not be finished because of an exception
+         */
+        private List<Applicant> getResult() throws ExecutionException {
+            if (cancelled) {
+                throw new CancellationException("Import has been cancelled");
+            }
+            if (importError != null) {
+                throw new ExecutionException(importError);
+            }
+            return results.getListOfStudents();
+        }
+    }
+
+    /**
+     * Parses a single file on a thread of the parser pool. If a parse timeout has been set, a
+     * watchdog puts the file into quarantine when parsing takes too long and interrupts the parser
+     * thread. Either the parser thread or the watchdog stores the result of a file, whichever
+     * finishes first.
+     * <p>
+     * Time spent waiting for memory from the memory budget or for a free worker process is not
+     * counted towards the parse timeout, because a file queued behind a large file is not stuck.
+     * The deadline is stopped while waiting and started again with the remaining time.
+     *
+     * @author Christian Wichmann
+     */
+    private final class ParseTask implements Runnable, Comparable<ParseTask>,
+            ParsePipeline.Deadline {
+
+        private final Path path;
+        private final String name;
+        private final String directory;
+        private final BasicFileAttributes attributes;
+        private final long size;
+        private final long sequence;
+        private final ReadAheadStage.PrefetchedFile prefetched;
+
+        // all fields are guarded by resultLock
+        private Thread worker;
+        private boolean finished = false;
+        private boolean abandoned = false;
+        private ScheduledFuture<?> deadline;
+        private long remainingTime = TimeUnit.MILLISECONDS.toNanos(parseTimeout);
+        private long deadlineStarted;
+
+        private final Runnable timeoutAction = new Runnable() {
+            @Override
+            public void run() {
+                logger.warn("Parsing file took too long: " + name);
+                finish(null, String.format("Zeitüberschreitung nach %d Sekunden",
+                        TimeUnit.MILLISECONDS.toSeconds(parseTimeout)), null);
+            }
+        };
+
+        /**
+         * Initializes a new task for a single file.
+         *
+         * @param path
+         *            file to be parsed
+         * @param name
+         *            name of the file used for the applicant and for reporting invalid files
+         * @param directory
+         *            relative path of the directory containing the file
+         * @param attributes
+         *            attributes of the file read while listing the directory or null, if they
+         *            could not be read
+         * @param sequence
+         *            position of the file in the directory listing
+         * @param prefetched
+         *            file read ahead by the reader thread or null, if it has to be read from disk
+         */
+        private ParseTask(final Path path, final String name, final String directory,
+                final BasicFileAttributes attributes, final long sequence,
+                final ReadAheadStage.PrefetchedFile prefetched) {
+            this.path = path;
+            this.name = name;
+            this.directory = directory;
+            this.attributes = attributes;
+            // the size is used for scheduling, so unknown sizes are ordered like empty files
+            this.size = attributes != null ? attributes.size() : 0;
+            this.sequence = sequence;
+            this.prefetched = prefetched;
+        }
+
+        @Override
+        public int compareTo(final ParseTask other) {
+            return schedulingPolicy.compare(size, sequence, other.size, other.sequence);
+        }
+
+        @Override
+        public void run() {
+            synchronized (resultLock) {
+                worker = Thread.currentThread();
+            }
+            startDeadline();
+            Applicant applicant = null;
+            String failure = "Unerwarteter Fehler";
+            String rejection = null;
+            try {
+                applicant = parsePipeline.parse(path, name, attributes, prefetched, this);
+                failure = null;
+            } catch (final RejectedFileException e) {
+                logger.info("Rejected file " + name + ": " + e.getMessage());
+                rejection = e.getMessage();
+                failure = null;
+            } catch (final InterruptedException | ClosedByInterruptException e) {
+                // after a timeout or a cancellation the result has already been decided
+                logger.info("Parsing file has been interrupted: " + name);
+                failure = "Einlesen wurde unterbrochen";
+            } catch (final IOException e) {
+                logger.warn("Could not read file " + name + ": " + e);
+                rejection = "Datei konnte nicht gelesen werden: " + e.getMessage();
+                failure = null;
+            } catch (final WorkerProcessPool.WorkerFailedException e) {
+                logger.warn("Worker process could not parse PDF file " + name + ": "
+                        + e.getMessage());
+                failure = e.getMessage();
+            } catch (final RuntimeException | StackOverflowError e) {
+                logger.warn("Could not parse PDF file " + name + ": " + e);
+                failure = "Fehler beim Lesen: " + e;
+            } finally {
+                stopDeadline();
+                if (prefetched != null) {
+                    prefetched.release();
+                }
+                finish(applicant, failure, rejection);
+                // the watchdog can not interrupt this thread any more, so clear a previous one
+                Thread.interrupted();
+                synchronized (resultLock) {
+                    if (abandoned) {
+                        resizeParserPool(-1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Starts the deadline for parsing the file with the remaining time, if a parse timeout
+         * has been set. It is started when the task starts and again after waiting.
+         */
+        @Override
+        public void startDeadline() {
+            if (parseTimeout <= 0) {
+                return;
+            }
+            synchronized (resultLock) {
+                if (finished || deadline != null) {
+                    return;
+                }
+                deadlineStarted = System.nanoTime();
+                try {
+                    deadline = watchdog.schedule(timeoutAction, remainingTime,
+                            TimeUnit.NANOSECONDS);
+                } catch (final RejectedExecutionException e) {
+                    // the watchdog has been shut down at the end of the import
+                    deadline = null;
+                }
+            }
+        }
+
+        /**
+         * Stops the deadline for parsing the file and keeps the remaining time. It is stopped
+         * before waiting for resources and when the task ends.
+         */
+        @Override
+        public void stopDeadline() {
+            synchronized (resultLock) {
+                if (deadline != null && deadline.cancel(false)) {
+                    remainingTime -= System.nanoTime() - deadlineStarted;
+                }
+                deadline = null;
+            }
+        }
+
+        /**
+         * Stores the result of the file, if it has not already been stored. When called by the
+         * watchdog, the parser thread is interrupted and its worker process is stopped.
+         * <p>
+         * Only the decision about the result is made while holding resultLock. A parsed applicant
+         * is handed to the store and the applicant listener after the lock has been released, so
+         * that a slow listener only holds up the parser thread delivering to it but neither the
+         * other parser threads nor the watchdog nor a cancellation.
+         *
+         * @param applicant
+         *            parsed applicant or null, if the file is invalid or failed
+         * @param failure
+         *            reason for putting the file into quarantine or null, if parsing did not fail
+         * @param rejection
+         *            reason for rejecting the file before parsing or null, if it was parsed
+         */
+        private void finish(final Applicant applicant, final String failure,
+                final String rejection) {
+            boolean stored = false;
+            boolean deliver = false;
+            synchronized (resultLock) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                if (worker != Thread.currentThread()) {
+                    if (workerPool != null) {
+                        workerPool.abort(worker);
+                    }
+                    worker.interrupt();
+                    // the worker may never return, so replace it by a new parser thread
+                    abandoned = true;
+                    resizeParserPool(1);
+                }
+                if (!resultsCollected && !cancelled) {
+                    if (failure != null) {
+                        results.addQuarantinedFile(name, failure);
+                    } else if (applicant != null) {
+                        deliver = true;
+                    } else {
+                        results.addInvalidFile(name, rejection);
+                    }
+                    progressChannel.fileFinished(directory);
+                    stored = true;
+                }
+            }
+            if (deliver) {
+                deliverApplicant(applicant);
+            }
+            if (stored) {
+                progressChannel.publishProgress();
+            }
+            finishedFiles.release();
+        }
+
+        /**
+         * Hands a parsed applicant to the applicant store and the applicant listener. This is
+         * called by the parser thread without holding resultLock. The listener may block to slow
+         * down the import; a cancellation interrupts it.
+         *
+         * @param applicant
+         *            parsed applicant
+         */
+        private void deliverApplicant(final Applicant applicant) {
+            results.addApplicant(name, applicant);
+            if (applicantListener != null) {
+                applicantListener.applicantImported(applicant);
+            }
+        }
+    }
+
+    /**
+     * Changes the number of parser threads. Must only be called while holding resultLock.
+     *
+     * @param delta
+     *            number of threads to be added or removed
+     */
+    private void resizeParserPool(final int delta) {
+        final int size = parserPool.getCorePoolSize() + delta;
+        // the maximum size must never be smaller than the core size
+        if (delta > 0) {
+            parserPool.setMaximumPoolSize(size);
+            parserPool.setCorePoolSize(size);
+        } else {
+            parserPool.setCorePoolSize(size);
+            parserPool.setMaximumPoolSize(size);
+        }
+    }
+
     /**
      * Explicitly dispose the importer to exit VM correctly. The importer uses a executor service
      * from the concurrency library that produces non-daemon threads. These thread prevent the VM
@@ -209,464 +1234,378 @@ public final class PdfFormImporter {
     public void disposeImporter() {
         logger.info("Closing thread for importer...");
         threadPool.shutdown();
+        parserPool.shutdown();
+        watchdog.shutdownNow();
+        if (readAheadStage != null) {
+            readAheadStage.shutdownNow();
+        }
+        if (workerPool != null) {
+            workerPool.shutdown();
+        }
+    }
+
+    /**
+     * Returns a handle to wait for the end of the import or to cancel it. The handle returns the
+     * list of all applicants data when the import has been finished.
+     *
+     * @return handle for the running import
+     */
+    public Future<List<Applicant>> getImportHandle() {
+        return importHandle;
     }
 
     /**
-     * Fires a new event signaling a change in the importer.
+     * Passes the progress of the import as PdfFormImporterEvents to an ActionListener.
      *
-     * @param e
-     *            importer event
+     * @author Christian Wichmann
      */
-    private synchronized void fireImportEvent(final PdfFormImporterEvent e) {
-        if (importListener != null) {
-            importListener.actionPerformed(e);
+    private final class ImportEventAdapter implements ImportProgressListener {
+
+        private final ActionListener importListener;
+
+        /**
+         * Initializes a new adapter for a given listener.
+         *
+         * @param importListener
+         *            listener receiving the events
+         */
+        private ImportEventAdapter(final ActionListener importListener) {
+            this.importListener = importListener;
+        }
+
+        @Override
+        public void progressChanged(final int numberOfFiles, final int numberOfFinishedFiles) {
+            // listeners take an event with equal numbers as signal that the import is complete
+            if (numberOfFinishedFiles < numberOfFiles) {
+                importListener.actionPerformed(new PdfFormImporterEvent(PdfFormImporter.this,
+                        numberOfFiles, numberOfFinishedFiles));
+            }
+        }
+
+        @Override
+        public void importFinished(final PdfFormImporter importer) {
+            final int finished = progressChannel.getNumberOfFinishedFiles();
+            // a cancelled import signals its end with the number of files that have been parsed
+            final int total = cancelled ? finished : progressChannel.getNumberOfFiles();
+            importListener.actionPerformed(new PdfFormImporterEvent(PdfFormImporter.this, total,
+                    finished));
+        }
+
+        @Override
+        public void importFailed(final PdfFormImporter importer, final Exception cause) {
+            importListener.actionPerformed(new PdfFormImporterEvent(PdfFormImporter.this, -1, -1));
         }
     }
 
     /**
-     * Finds and parses all PDF files in a given directory (not the subdirectories!).
+     * Finds and parses all PDF files in a given directory. Subdirectories are only searched in
+     * recursive mode. The directory is listed only once and every PDF file is handed to the parser
+     * pool as soon as it has been found. ZIP archives inside the directory are opened and all PDF
+     * files inside them are parsed, too. Instead of a directory a single ZIP archive can be given.
+     * If a list of files has been given, only these files are parsed instead of the whole
+     * directory. The parser threads pass every applicant directly to the applicant listener. After
+     * all files have been parsed, the results are stored in the order of the file names.
      *
      * @param directory
-     *            directory from which to parse PDF files
-     */
-    private synchronized void parseFiles(final Path directory) {
-        // count number of PDF files in directory
-        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:*.pdf");
-        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
-            for (final Path path : directoryStream) {
-                if (matcher.matches(path.getFileName())) {
-                    numberOfPdfFiles.incrementAndGet();
+     *            directory or ZIP archive from which to parse PDF files
+     * @param files
+     *            files to be parsed or null, if all files in the directory should be parsed
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting for the parser threads
+     */
+    private void parseFiles(final Path directory, final Collection<Path> files)
+            throws InterruptedException {
+        final long startTime = System.nanoTime();
+        if (importCache != null) {
+            importCache.load();
+        }
+
+        // find all PDF files and start parsing them immediately
+        if (files != null) {
+            for (final Path path : files) {
+                final Path fileName = path.getFileName();
+                if (fileName != null) {
+                    submitFile(path, fileName.toString(), "", null);
                 }
             }
-        } catch (final IOException e) {
-            logger.warn("Could not read directory listing!");
+        } else if (Files.isRegularFile(directory)) {
+            // a single archive has been given instead of a directory
+            final Path fileName = directory.getFileName();
+            if (fileName != null) {
+                submitFile(directory, fileName.toString(), "", null);
+            }
+        } else {
+            listDirectory(directory);
         }
-        // find all PDF files and parse them
-        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
-            for (final Path path : directoryStream) {
-                if (matcher.matches(path.getFileName())) {
-                    logger.info("Found PDF file: " + path);
-                    // parse every PDF file in given directory and add them to list
-                    final Applicant a = parsePDFFile(path);
-                    if (a != null) {
-                        listOfStudents.add(a);
-                    } else {
-                        final Path invalidPdfFile = path.getFileName();
-                        if (invalidPdfFile != null) {
-                            listOfInvalidPdfFiles.add(invalidPdfFile.toString());
-                        }
-                    }
-                    currentPdfFiles.incrementAndGet();
-                    fireImportEvent(new PdfFormImporterEvent(this, numberOfPdfFiles.get(),
-                            currentPdfFiles.get()));
-                }
+
+        // wait for all files to be parsed, timed out or failed
+        try {
+            finishedFiles.acquire(numberOfSubmittedFiles);
+        } catch (final InterruptedException e) {
+            if (!cancelled) {
+                throw e;
             }
-        } catch (final IOException ex) {
-            logger.warn("Could not open PDF file!");
+            logger.info("Import has been cancelled.");
         }
-        // log all not imported files
-        for (final String string : listOfInvalidPdfFiles) {
-            logger.info("Could not import following file: " + string);
+        parserPool.shutdown();
+        if (readAheadStage != null) {
+            readAheadStage.shutdown();
+        }
+        if (workerPool != null) {
+            // stops worker processes still stuck in files that have timed out
+            workerPool.shutdown();
+        }
+        synchronized (resultLock) {
+            resultsCollected = true;
+        }
+        archives.closeAll();
+        if (importCache != null) {
+            // keep entries for all other files when only some files have been imported
+            importCache.save(files == null && !cancelled);
         }
-    }
 
-    /**
-     * Fills a map with all form field names and the corresponding data fields from the enumeration.
-     */
-    private void fillDataFieldNamesDictionary() {
-        dataFieldNames.put("Vorname", DataField.FIRST_NAME);
-        dataFieldNames.put("Name", DataField.LAST_NAME);
-        dataFieldNames.put("Ausbildungsberuf", DataField.VOCATION);
-        dataFieldNames.put("Fachrichtung", DataField.SPECIALIZATION);
-        dataFieldNames.put("Ausbildungsbeginn", DataField.START_OF_TRAINING);
-        dataFieldNames.put("StraßeNr", DataField.ADDRESS);
-        dataFieldNames.put("Tel", DataField.PHONE);
-        dataFieldNames.put("Fax", DataField.FAX);
-        dataFieldNames.put("PLZ", DataField.ZIP_CODE);
-        dataFieldNames.put("Ort", DataField.CITY);
-        dataFieldNames.put("EMail", DataField.EMAIL);
-        dataFieldNames.put("Staatsangehörigkeit", DataField.NATIONALITY);
-        /*
-         * Because of changes in the names of PDF form fields there are two different ways of
-         * reading birthday and birthplace.
-         */
-        dataFieldNames.put("Geburtsdatum", DataField.BIRTHDAY);
-        dataFieldNames.put("geb am", DataField.BIRTHDAY);
-        dataFieldNames.put("Geburtsort", DataField.BIRTHPLACE);
-        dataFieldNames.put("in", DataField.BIRTHPLACE);
-        dataFieldNames.put("Namen der Erziehungsberechtigten", DataField.NAME_OF_LEGAL_GUARDIAN);
-        dataFieldNames.put("TelEltern", DataField.PHONE_OF_LEGAL_GUARDIAN);
-        dataFieldNames.put("AnschriftEltern", DataField.ADDRESS_OF_LEGAL_GUARDIAN);
-        dataFieldNames.put("BeginnSchulbesuch", DataField.SCHOOL_ATTENDANCE_BEGIN);
-        dataFieldNames.put("EndeSchulbesuch", DataField.SCHOOL_ATTENDANCE_END);
-        dataFieldNames.put("JahreSchulbesuch", DataField.SCHOOL_ATTENDANCE_YEARS);
-        dataFieldNames.put("StraßeNrBetrieb", DataField.COMPANY_ADDRESS);
-        dataFieldNames.put("OrtBetrieb", DataField.COMPANY_CITY);
-        dataFieldNames.put("EMailBetrieb", DataField.COMPANY_CONTACT_MAIL);
-        dataFieldNames.put("TelefonBetrieb", DataField.COMPANY_TELEPHONE);
-        dataFieldNames.put("FaxBetrieb", DataField.COMPANY_FAX);
-        dataFieldNames.put("NameAnsprechpartnerBetrieb", DataField.COMPANY_CONTACT_PERSON);
-        dataFieldNames.put("PLZBetrieb", DataField.COMPANY_ZIP_CODE);
-        dataFieldNames.put("NameBetrieb", DataField.COMPANY_NAME);
-        dataFieldNames.put("Bemerkungen", DataField.NOTES);
-        dataFieldNames.put("SchulabschlussSonstigerErlaeuterung",
-                DataField.DEGREE_ADDITIONAL_INFORMATION);
-        dataFieldNames.put("ErlaeuterungBFS", DataField.SCHOOL_SPECIALIZATION);
-        dataFieldNames.put("SonstigesSchulabschluss", DataField.SCHOOL_OTHER_TYPE);
-
-        /*
-         * The following fields do not contain text strings or have to be evaluated otherwise:
-         *
-         * DauerAusbildung: Has to be parsed as decimal number and multiplicated by 12 to get month.
-         *
-         * Staatsangehörigkeit: A integer number representing the nationality.
-         *
-         * ErlaeuterungBFS - SonstigesSchulabschluss: Stored as additional info in School Enum.
-         *
-         * SchulabschlussSonstigerErlaeuterung: Stored as additional info in Degree Enum.
-         *
-         * Formular drucken - Senden: Ignored because control buttons.
-         *
-         * Umschueler (UmschuelerNein, UmschuelerJa), Geschlecht (m, w): Binary choices that have to be
-         * evaluated.
-         *
-         * SchulbesuchBisher (RS), Schulabschluss(EI)
-         */
+        // store results in order of the file names so that they do not depend on the listing
+        results.collect();
+        if (valueDictionary != null) {
+            logger.info(String.format("Deduplicated values with a hit ratio of %.1f%%",
+                    valueDictionary.getTotalHitRatio() * 100));
+        }
+        if (applicantListener != null) {
+            applicantListener.importFinished();
+        }
+        progressChannel.finished();
+
+        // log all not imported files and how many files of every form version have been imported
+        results.logResults();
+        logger.info(String.format("Parsed %d files in %d ms with scheduling policy %s.",
+                progressChannel.getNumberOfFinishedFiles(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), schedulingPolicy));
     }
 
     /**
-     * Parses a single PDF file defined by a given Path. If the PDF file contains no form fields and
-     * has no useable data, null is returned to the caller!
+     * Lists the import directory and hands all files to the parser pool. In recursive mode all
+     * subdirectories are listed, too. Files and directories matching an exclude pattern and files
+     * not matching any include pattern are skipped. Directories that could not be read are
+     * skipped with a warning.
      *
-     * @param path
-     *            path describing the PDF file to be parsed
-     * @return applicants data or null, if file did not contain any form fields
+     * @param directory
+     *            directory to be listed
      */
-    private synchronized Applicant parsePDFFile(final Path path) {
-        PDDocument pdfDocument = null;
-        Applicant student = null;
-
+    private void listDirectory(final Path directory) {
         try {
-            pdfDocument = PDDocument.load(path.toFile());
-            if (pdfDocument != null) {
-                final PDDocumentCatalog docCatalog = pdfDocument.getDocumentCatalog();
-                final PDAcroForm acroForm = docCatalog.getAcroForm();
-                if (acroForm != null) {
-                    @SuppressWarnings("unchecked")
-                    final List<PDField> formFields = acroForm.getFields();
-
-                    final ApplicantBuilder builder = new ApplicantBuilder();
-                    final Path pdfFileName = path.getFileName();
-                    if (pdfFileName != null) {
-                        builder.setFileName(pdfFileName.toString());
-                    } else {
-                        builder.setFileName("");
-                    }
-                    for (final PDField pdField : formFields) {
-                        // ignore useless fields in PDF file
-                        if ("Formular drucken".equals(pdField.getValue())
-                                || "Senden".equals(pdField.getValue())) {
-                            continue;
+            Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class),
+                    recursive ? Integer.MAX_VALUE : 1, new SimpleFileVisitor<Path>() {
+                        @Override
+                        public FileVisitResult preVisitDirectory(final Path dir,
+                                final BasicFileAttributes attributes) {
+                            if (cancelled) {
+                                return FileVisitResult.TERMINATE;
+                            }
+                            if (!dir.equals(directory)
+                                    && matchesAny(excludeMatchers, directory.relativize(dir))) {
+                                logger.info("Skipping excluded directory: " + dir);
+                                return FileVisitResult.SKIP_SUBTREE;
+                            }
+                            return FileVisitResult.CONTINUE;
                         }
-                        // get religion enumeration
-                        extractReligion(pdField, builder);
-                        // get all plain string elements and store them in builder
-                        extractStringValues(pdField, builder);
-                        // get duration of training and nationality
-                        extractNumericValues(pdField, builder);
-                        // get gender and whether applicant is in a retraining
-                        extractBooleanValues(pdField, builder);
-                        // get attended school
-                        extractAttendedSchool(pdField, builder);
-                        // get last degree
-                        extractLastDegree(pdField, builder);
-
-                        logger.debug(pdField.getFieldType() + " - "
-                                + pdField.getFullyQualifiedName() + " - "
-                                + pdField.getPartialName() + " - " + pdField.getValue());
-                    }
-                    student = builder.build();
-                    logger.info("Added student registration: " + student);
-                }
-            }
+
+                        @Override
+                        public FileVisitResult visitFile(final Path file,
+                                final BasicFileAttributes attributes) {
+                            if (cancelled) {
+                                return FileVisitResult.TERMINATE;
+                            }
+                            // without recursion subdirectories are visited like files
+                            if (attributes.isDirectory()) {
+                                return FileVisitResult.CONTINUE;
+                            }
+                            final Path relativePath = directory.relativize(file);
+                            if (matchesAny(excludeMatchers, relativePath)
+                                    || (!includeMatchers.isEmpty() && !matchesAny(
+                                            includeMatchers, relativePath))) {
+                                return FileVisitResult.CONTINUE;
+                            }
+                            final Path parent = relativePath.getParent();
+                            submitFile(file, relativePath.toString(),
+                                    parent != null ? parent.toString() : "", attributes);
+                            return FileVisitResult.CONTINUE;
+                        }
+
+                        @Override
+                        public FileVisitResult visitFileFailed(final Path file,
+                                final IOException e) {
+                            if (file.equals(directory)) {
+                                logger.warn("Could not read directory listing!");
+                            } else {
+                                logger.warn("Could not read directory listing of " + file + ": "
+                                        + e.getMessage());
+                            }
+                            return FileVisitResult.CONTINUE;
+                        }
+                    });
         } catch (final IOException e) {
-            logger.warn("Could not open PDF file.");
-        } finally {
-            try {
-                if (pdfDocument != null) {
-                    pdfDocument.close();
-                }
-            } catch (final IOException e) {
-                logger.warn("Could not close PDF file.");
-            }
+            logger.warn("Could not read directory listing!");
         }
-        return student;
     }
 
     /**
-     * Extracts the religion from a given PDF form field and stores the data inside a provided
-     * ApplicantBuilder instance.
+     * Checks whether a file or directory matches at least one of the given matchers. A matcher
+     * can match either the relative path or the name of the file.
      *
-     * @param pdField
-     *            PDF form field data
-     * @param builder
-     *            builder object for Applicant data
-     * @throws IOException
-     *             if reading of PDF form data failed
-     */
-    private void extractReligion(final PDField pdField, final ApplicantBuilder builder)
-            throws IOException {
-        if ("Konfession".equals(pdField.getFullyQualifiedName())) {
-            if (pdField.getValue() != null && !("".equals(pdField.getValue()))) {
-                if ("-1".equals(pdField.getValue())) {
-                    // no religion chosen in the form
-                    builder.setValue(DataField.RELIGION, Religion.OHNE_ANGABE);
-                } else {
-                    try {
-                        final Religion religion = Religion.fromInteger(Integer.valueOf(pdField
-                                .getValue()));
-                        builder.setValue(DataField.RELIGION, religion);
-                    } catch (final NumberFormatException e) {
-                        /*
-                         * Sometimes the value of a combo box field is not the integer value stored
-                         * inside the PDF file. Instead of the integer the value of the field is the
-                         * string representation of that field. E.g. "katholisch" instead of the
-                         * integer value 3.
-                         *
-                         * The valueOf method of the enum Religion allows the
-                         * conversion from string to enum constant. The string has to be trimmed and
-                         * upper case to allow comparation with the enum constants. If the string
-                         * does not contain a valid enum value, a default value is set.
-                         */
-                        Religion r;
-                        try {
-                            r = Religion.valueOf(pdField.getValue().trim().toUpperCase());
-                        } catch (final IllegalArgumentException e2) {
-                            r = Religion.OHNE_ANGABE;
-                        }
-                        builder.setValue(DataField.RELIGION, r);
-                    }
-                }
-            } else {
-                builder.setValue(DataField.RELIGION, Religion.OHNE_ANGABE);
+     * @param matchers
+     *            matchers to be checked
+     * @param relativePath
+     *            path of the file relative to the import directory
+     * @return true, if at least one matcher matches
+     */
+    private static boolean matchesAny(final List<PathMatcher> matchers, final Path relativePath) {
+        final Path fileName = relativePath.getFileName();
+        for (final PathMatcher matcher : matchers) {
+            if (matcher.matches(relativePath)
+                    || (fileName != null && matcher.matches(fileName))) {
+                return true;
             }
         }
+        return false;
     }
 
     /**
-     * Extracts all string values from a given PDF form field and stores the data inside a provided
-     * ApplicantBuilder instance.
+     * Hands a single file to the parser pool, if it is a PDF file. If it is a ZIP archive, all PDF
+     * files inside the archive are handed to the parser pool. Other files are ignored.
      *
-     * @param pdField
-     *            PDF form field data
-     * @param builder
-     *            builder object for Applicant data
-     * @throws IOException
-     *             if reading of PDF form data failed
-     */
-    private void extractStringValues(final PDField pdField, final ApplicantBuilder builder)
-            throws IOException {
-        if (dataFieldNames.containsKey(pdField.getFullyQualifiedName())) {
-            final DataField df = dataFieldNames.get(pdField.getFullyQualifiedName());
-            if (pdField.getValue() != null) {
-                // TODO Should all string be trimmed before they are stored?!
-                // TODO When " þÿ" please do not use! (BOM)
-                if ("þÿ".equals(pdField.getValue())) {
-                    builder.setValue(df, "");
-                } else {
-                    builder.setValue(df, pdField.getValue());
-                }
-            } else {
-                builder.setValue(df, "");
-            }
+     * @param path
+     *            file to be parsed
+     * @param name
+     *            name of the file relative to the import directory
+     * @param directoryName
+     *            relative path of the directory containing the file
+     * @param attributes
+     *            attributes of the file from the directory listing or null, if they have to be
+     *            read
+     */
+    private void submitFile(final Path path, final String name, final String directoryName,
+            final BasicFileAttributes attributes) {
+        final Path fileName = path.getFileName();
+        if (fileName == null) {
+            return;
+        }
+        if (FORM_FILE_MATCHER.matches(fileName)) {
+            submitPdfFile(path, name, directoryName, attributes);
+        } else if (ArchiveHandler.isArchive(fileName)) {
+            submitArchive(path, name, directoryName);
         }
     }
 
     /**
-     * Extracts the duration of the training from a given PDF form field, casts it as integer number
-     * and calculates the duration in months. The result is stored inside a provided
-     * ApplicantBuilder instance.
+     * Opens a ZIP archive and hands all PDF files inside the archive to the parser pool. If the
+     * archive could not be opened, it is reported as invalid file.
      *
-     * @param pdField
-     *            PDF form field data
-     * @param builder
-     *            builder object for Applicant data
-     * @throws IOException
-     *             if reading of PDF form data failed
-     */
-    private void extractNumericValues(final PDField pdField, final ApplicantBuilder builder)
-            throws IOException {
-        if ("DauerAusbildung".equals(pdField.getFullyQualifiedName())) {
-            if (pdField.getValue() != null && !"-1".equals(pdField.getValue())) {
-                final int monthsInYear = 12;
-                final Double d = Double.valueOf(pdField.getValue().replace(",", "."))
-                        * monthsInYear;
-                final Integer i = d.intValue();
-                builder.setValue(DataField.DURATION_OF_TRAINING, i);
-            } else {
-                builder.setValue(DataField.DURATION_OF_TRAINING, 0);
+     * @param archivePath
+     *            ZIP archive to be parsed
+     * @param archiveName
+     *            name of the archive used in the names of its entries
+     * @param directoryName
+     *            relative path of the directory containing the archive
+     */
+    private void submitArchive(final Path archivePath, final String archiveName,
+            final String directoryName) {
+        final boolean listed = archives.listEntries(archivePath, archiveName, FORM_FILE_PATTERN,
+                new ArchiveHandler.EntryHandler() {
+                    @Override
+                    public void entryFound(final Path entry, final String name,
+                            final BasicFileAttributes attributes) {
+                        submitPdfFile(entry, name, directoryName, attributes);
+                    }
+                });
+        if (!listed) {
+            results.addInvalidFile(archiveName, null);
+        }
+    }
+
+    /**
+     * Hands a single PDF file to the parser pool. The parser thread passes the applicant directly
+     * to the applicant listener and stores it for the final list of all applicants. The attributes
+     * of the file are only read here, if they have not been supplied by the directory listing.
+     *
+     * @param path
+     *            PDF file to be parsed
+     * @param name
+     *            name of the PDF file used for the applicant and for reporting invalid files
+     * @param directoryName
+     *            relative path of the directory containing the file
+     * @param listedAttributes
+     *            attributes of the file from the directory listing or null, if they have to be
+     *            read
+     */
+    private void submitPdfFile(final Path path, final String name, final String directoryName,
+            final BasicFileAttributes listedAttributes) {
+        if (cancelled) {
+            return;
+        }
+        logger.info("Found PDF file: " + name);
+        progressChannel.fileSubmitted(directoryName);
+        BasicFileAttributes attributes = listedAttributes;
+        if (attributes == null) {
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (final IOException e) {
+                logger.debug("Could not read attributes of file: " + name);
             }
         }
-        if ("Staatsangehörigkeit".equals(pdField.getFullyQualifiedName())) {
-            if (pdField.getValue() != null) {
-                try {
-                    final Integer i = Integer.valueOf(pdField.getValue());
-                    builder.setValue(DataField.NATIONALITY, i);
-                } catch (final NumberFormatException e) {
-                    final Integer i = NationalityConverter.getInstance().convertNationality(
-                            pdField.getValue());
-                    builder.setValue(DataField.NATIONALITY, i);
-                }
-            } else {
-                builder.setValue(DataField.NATIONALITY, new Integer(0));
+        final long sequence = numberOfSubmittedFiles;
+        final ReadAheadStage.PrefetchedFile prefetched = parsePipeline.readAhead(path, attributes,
+                sequence);
+        try {
+            parserPool.execute(new ParseTask(path, name, directoryName, attributes, sequence,
+                    prefetched));
+            numberOfSubmittedFiles++;
+        } catch (final RejectedExecutionException e) {
+            // import has been cancelled in the meantime
+            progressChannel.fileWithdrawn(directoryName);
+            if (prefetched != null) {
+                prefetched.release();
             }
         }
     }
 
     /**
-     * Extracts all boolean values from a given PDF form field, evaluates them and stores the data
-     * inside a provided ApplicantBuilder instance.
+     * Returns the dictionary through which all string values of the applicants have been passed.
+     * It reports the hit ratio of the deduplication for every data field.
      *
-     * @param pdField
-     *            PDF form field data
-     * @param builder
-     *            builder object for Applicant data
-     * @throws IOException
-     *             if reading of PDF form data failed
-     */
-    private void extractBooleanValues(final PDField pdField, final ApplicantBuilder builder)
-            throws IOException {
-        if ("Umschueler".equals(pdField.getFullyQualifiedName())) {
-            boolean retraining = false;
-            if ("UmschuelerNein".equals(pdField.getValue())) {
-                retraining = false;
-            } else if ("UmschuelerJa".equals(pdField.getValue())) {
-                retraining = true;
-            }
-            builder.setValue(DataField.RETRAINING, retraining);
-        }
-        if ("Geschlecht".equals(pdField.getFullyQualifiedName())) {
-            if ("m".equals(pdField.getValue())) {
-                builder.setValue(DataField.GENDER, pdField.getValue());
-            } else if ("w".equals(pdField.getValue())) {
-                builder.setValue(DataField.GENDER, pdField.getValue());
-            } else {
-                // TODO Check whether to add a non-chosen gender type or to assign a best guess.
-                logger.warn("Invalid gender!");
-            }
-        }
+     * @return dictionary of this import or null, if values are not deduplicated
+     */
+    public ValueDictionary getValueDictionary() {
+        return valueDictionary;
     }
 
     /**
-     * Extracts information about the last accieved degree from a given PDF form field and stores
-     * the data inside a provided ApplicantBuilder instance.
+     * Returns the order in which the parser threads take the files.
      *
-     * @param pdField
-     *            PDF form field data
-     * @param builder
-     *            builder object for Applicant data
-     * @throws IOException
-     *             if reading of PDF form data failed
-     */
-    private void extractLastDegree(final PDField pdField, final ApplicantBuilder builder)
-            throws IOException {
-        if ("Schulabschluss".equals(pdField.getFullyQualifiedName())) {
-            Degree degree = Degree.SONSTIGER_ABSCHLUSS;
-            if (pdField.getValue() != null) {
-                switch (pdField.getValue()) {
-                case "HA":
-                    degree = Degree.SEKUNDAR_I_HAUPTSCHULE;
-                    break;
-                case "SI":
-                    degree = Degree.SEKUNDAR_I_REALSCHULE;
-                    break;
-                case "EI":
-                    degree = Degree.ERWEITERTER_SEKUNDAR_I;
-                    break;
-                case "FH":
-                    degree = Degree.FACHHOCHSCHULREIFE;
-                    break;
-                case "AH":
-                    degree = Degree.ALLGEMEINE_HOCHSCHULEREIFE;
-                    break;
-                case "OA":
-                    degree = Degree.OHNE_ABSCHLUSS;
-                    break;
-                case "XS":
-                    degree = Degree.SONSTIGER_ABSCHLUSS;
-                    break;
-                default:
-                    logger.warn("Invalid degree type: " + pdField.getValue());
-                    assert false : "No attended school chosen!";
-                }
-            }
-            builder.setValue(DataField.DEGREE, degree);
-        }
+     * @return scheduling policy of this import
+     */
+    public SchedulingPolicy getSchedulingPolicy() {
+        return schedulingPolicy;
     }
 
     /**
-     * Extracts information about the attended school from a given PDF form field and stores the
-     * data inside a provided ApplicantBuilder instance.
+     * Returns the number of imported PDF files for every form version found during the import. The
+     * form versions are given by their fingerprint. The map is complete after the import has been
+     * finished.
      *
-     * @param pdField
-     *            PDF form field data
-     * @param builder
-     *            builder object for Applicant data
-     * @throws IOException
-     *             if reading of PDF form data failed
-     */
-    private void extractAttendedSchool(final PDField pdField, final ApplicantBuilder builder)
-            throws IOException {
-        if ("SchulbesuchBisher".equals(pdField.getFullyQualifiedName())) {
-            School schoolType = School.SONSTIGES;
-            if (pdField.getValue() != null) {
-                switch (pdField.getValue()) {
-                case "RS":
-                    schoolType = School.REALSCHULE;
-                    break;
-                case "HS":
-                    schoolType = School.HAUPTSCHULE;
-                    break;
-                case "GY":
-                    schoolType = School.GYMNASIUM_OBERSTUFE;
-                    break;
-                case "B1": // TODO Check which Berufsfachschule should be default.
-                    schoolType = School.BERUFSFACHSCHULE_ZWEIJAEHRIG_RS;
-                    break;
-                case "BS":
-                    schoolType = School.BERUFSSCHULE;
-                    break;
-                case "IG":
-                    schoolType = School.GESAMTSCHULE;
-                    break;
-                case "Oberschule":
-                    schoolType = School.OBERSCHULE;
-                    break;
-                case "FO":
-                    schoolType = School.FACHOBERSCHULE;
-                    break;
-                case "SA":
-                    schoolType = School.FOERDERSCHULE;
-                    break;
-                case "XS":
-                    schoolType = School.SONSTIGES;
-                    break;
-                default:
-                    logger.warn("Invalid school type: " + pdField.getValue());
-                    assert false : "No attended school chosen!";
-                }
-            }
-            builder.setValue(DataField.SCHOOL, schoolType);
-        }
+     * @return number of PDF files by fingerprint of their form version
+     */
+    public Map<String, Integer> getFormVersionStatistics() {
+        return results.getFormVersionStatistics();
     }
 
     /**
-     * Returns a list of all applicants data.
+     * Returns a list of all applicants data. The list is filled after all PDF files have been
+     * parsed and stays empty if collecting the applicants has been switched off.
      *
      * @return list of all applicants data
      */
     public List<Applicant> getListOfStudents() {
-        return listOfStudents;
+        return results.getListOfStudents();
     }
 
     /**
@@ -675,24 +1614,47 @@ public final class PdfFormImporter {
      * @return list with the file names of all invalid PDF files
      */
     public List<String> getListOfInvalidPdfFiles() {
-        return listOfInvalidPdfFiles;
+        return results.getListOfInvalidPdfFiles();
+    }
+
+    /**
+     * Returns a list of all files that have been put into quarantine because parsing them took too
+     * long or failed with an error. These files are contained in the list of invalid PDF files,
+     * too. The returned list is a copy sorted by the file names.
+     *
+     * @return list of all quarantined files with the reason for the quarantine
+     */
+    public List<QuarantinedFile> getListOfQuarantinedFiles() {
+        return results.getListOfQuarantinedFiles();
+    }
+
+    /**
+     * Returns the reasons why files could not be imported by their file names. Reasons are known
+     * for files that have been rejected without parsing them (e.g. because they are no PDF files
+     * or contain no form) and for quarantined files. Other invalid files have no entry.
+     *
+     * @return map with the reasons for invalid files sorted by their file names
+     */
+    public Map<String, String> getReasonsForInvalidPdfFiles() {
+        return results.getReasonsForInvalidPdfFiles();
     }
 
     /**
-     * Gets the number of PDF files in the given directory.
+     * Gets the number of PDF files in the given directory. While the directory is still being
+     * listed, this returns the number of PDF files found so far.
      *
      * @return number of PDF files
      */
-    public synchronized int getNumberOfPdfFiles() {
-        return numberOfPdfFiles.get();
+    public int getNumberOfPdfFiles() {
+        return progressChannel.getNumberOfFiles();
     }
 
     /**
-     * Gets the currently imported PDF file.
+     * Gets the number of PDF files that have already been parsed.
      *
-     * @return currently imported PDF file
+     * @return number of already parsed PDF files
      */
-    public synchronized int getCurrentPdfFiles() {
-        return currentPdfFiles.get();
+    public int getCurrentPdfFiles() {
+        return progressChannel.getNumberOfFinishedFiles();
     }
 }
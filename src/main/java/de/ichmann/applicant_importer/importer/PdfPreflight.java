@@ -0,0 +1,461 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks cheaply whether a file can contain a PDF form at all, before it is parsed by PDFBox. Only
+ * a few small blocks at given positions are read: the header at the start of the file, the end of
+ * the file with the offset of the cross reference table, the cross reference entry of the catalog
+ * and the catalog itself.
+ * <p>
+ * A file is rejected if it does not start with the PDF header or if its catalog has no AcroForm
+ * entry. Whenever the structure of a file can not be followed reliably (e.g. cross reference
+ * streams, broken offsets or a catalog inside an object stream), the file is not rejected and has
+ * to be parsed completely. Therefore the check never rejects a file that PDFBox would have read
+ * successfully, but not all files without a form are detected.
+ *
+ * @author Christian Wichmann
+ */
+final class PdfPreflight {
+
+    /**
+     * Reason for rejecting a file that does not start with the PDF header.
+     */
+    static final String NOT_A_PDF_FILE = "Keine PDF-Datei";
+
+    /**
+     * Reason for rejecting a PDF file that does not contain a form.
+     */
+    static final String NO_FORM = "PDF-Datei enthält kein Formular";
+
+    private static final byte[] HEADER = ascii("%PDF-");
+    private static final byte[] START_XREF = ascii("startxref");
+    private static final byte[] XREF = ascii("xref");
+    private static final byte[] TRAILER = ascii("trailer");
+    private static final byte[] OBJ = ascii("obj");
+    private static final byte[] END_OBJ = ascii("endobj");
+    private static final byte[] ACRO_FORM = ascii("/AcroForm");
+    private static final byte[] ROOT = ascii("/Root");
+    private static final byte[] PREV = ascii("/Prev");
+    private static final byte[] XREF_STREAM = ascii("/XRefStm");
+
+    /**
+     * Number of bytes at the start and at the end of a file in which the header and the offset of
+     * the cross reference table have to be found.
+     */
+    private static final int WINDOW_SIZE = 1024;
+
+    /**
+     * Maximum number of bytes read for a single trailer dictionary or catalog object.
+     */
+    private static final int MAX_OBJECT_SIZE = 16384;
+
+    /**
+     * Maximum number of cross reference sections that are followed for incrementally updated
+     * files.
+     */
+    private static final int MAX_SECTIONS = 32;
+
+    /**
+     * Length of a single entry in a cross reference table including its end of line.
+     */
+    private static final int ENTRY_SIZE = 20;
+
+    /**
+     * Reads blocks of a file at given positions.
+     *
+     * @author Christian Wichmann
+     */
+    private abstract static class Source {
+
+        /**
+         * Returns the size of the file.
+         *
+         * @return size in bytes
+         * @throws IOException
+         *             if the size could not be determined
+         */
+        abstract long size() throws IOException;
+
+        /**
+         * Reads a block starting at a given position. The block is shorter than requested, if the
+         * end of the file has been reached.
+         *
+         * @param position
+         *            position of the first byte
+         * @param length
+         *            maximum number of bytes to be read
+         * @return bytes read from the file
+         * @throws IOException
+         *             if the file could not be read
+         */
+        abstract byte[] read(long position, int length) throws IOException;
+    }
+
+    /**
+     * Contains the position and length of a subsection of a cross reference table.
+     */
+    private static final class Subsection {
+
+        private final long firstObject;
+        private final long numberOfObjects;
+        private final long position;
+
+        private Subsection(final long firstObject, final long numberOfObjects,
+                final long position) {
+            this.firstObject = firstObject;
+            this.numberOfObjects = numberOfObjects;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Contains the position and value of a number in a block of bytes.
+     */
+    private static final class Token {
+
+        private final long value;
+        private final int end;
+
+        private Token(final long value, final int end) {
+            this.value = value;
+            this.end = end;
+        }
+    }
+
+    private final Source source;
+    private final long size;
+
+    /**
+     * Initializes a new check for a given source.
+     *
+     * @param source
+     *            source of the file content
+     * @throws IOException
+     *             if the size of the file could not be determined
+     */
+    private PdfPreflight(final Source source) throws IOException {
+        this.source = source;
+        this.size = source.size();
+    }
+
+    /**
+     * Checks a file on disk by positional reads.
+     *
+     * @param path
+     *            file to be checked
+     * @return reason for rejecting the file or null, if the file has to be parsed
+     * @throws IOException
+     *             if the file could not be read
+     */
+    static String check(final Path path) throws IOException {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new PdfPreflight(new Source() {
+                @Override
+                long size() throws IOException {
+                    return channel.size();
+                }
+
+                @Override
+                byte[] read(final long position, final int length) throws IOException {
+                    final ByteBuffer buffer = ByteBuffer.allocate(length);
+                    while (buffer.hasRemaining()) {
+                        if (channel.read(buffer, position + buffer.position()) < 0) {
+                            break;
+                        }
+                    }
+                    final byte[] block = new byte[buffer.position()];
+                    buffer.flip();
+                    buffer.get(block);
+                    return block;
+                }
+            }).check();
+        }
+    }
+
+    /**
+     * Checks a file that has already been read into memory.
+     *
+     * @param content
+     *            content of the file
+     * @return reason for rejecting the file or null, if the file has to be parsed
+     */
+    static String check(final byte[] content) {
+        try {
+            return new PdfPreflight(new Source() {
+                @Override
+                long size() {
+                    return content.length;
+                }
+
+                @Override
+                byte[] read(final long position, final int length) {
+                    final int from = (int) Math.min(position, content.length);
+                    final int to = (int) Math.min(position + length, content.length);
+                    final byte[] block = new byte[to - from];
+                    System.arraycopy(content, from, block, 0, block.length);
+                    return block;
+                }
+            }).check();
+        } catch (final IOException e) {
+            // can not happen when reading from memory
+            return null;
+        }
+    }
+
+    /**
+     * Checks the header and the catalog of the file.
+     *
+     * @return reason for rejecting the file or null, if the file has to be parsed
+     * @throws IOException
+     *             if the file could not be read
+     */
+    private String check() throws IOException {
+        final byte[] head = source.read(0, (int) Math.min(size, WINDOW_SIZE));
+        if (indexOf(head, HEADER, 0) < 0) {
+            return NOT_A_PDF_FILE;
+        }
+        final byte[] catalog = readCatalog();
+        if (catalog == null || indexOf(catalog, ACRO_FORM, 0) >= 0
+                || indexOf(catalog, ascii("#"), 0) >= 0) {
+            // escaped names could hide the AcroForm entry, so only plain catalogs are rejected
+            return null;
+        }
+        return NO_FORM;
+    }
+
+    /**
+     * Reads the catalog object of the file by following the cross reference tables from the end
+     * of the file.
+     *
+     * @return content of the catalog object or null, if it could not be found reliably
+     * @throws IOException
+     *             if the file could not be read
+     */
+    private byte[] readCatalog() throws IOException {
+        final long tailPosition = Math.max(0, size - WINDOW_SIZE);
+        final byte[] tail = source.read(tailPosition, (int) (size - tailPosition));
+        final int startXref = lastIndexOf(tail, START_XREF);
+        if (startXref < 0) {
+            return null;
+        }
+        final Token xrefOffset = readNumber(tail, startXref + START_XREF.length);
+        if (xrefOffset == null) {
+            return null;
+        }
+
+        long sectionPosition = xrefOffset.value;
+        long catalogNumber = -1;
+        for (int i = 0; i < MAX_SECTIONS && sectionPosition >= 0; i++) {
+            final List<Subsection> subsections = new ArrayList<>();
+            final byte[] trailer = readSection(sectionPosition, subsections);
+            if (trailer == null) {
+                return null;
+            }
+            if (catalogNumber < 0) {
+                final int root = indexOf(trailer, ROOT, 0);
+                final Token number = root < 0 ? null : readNumber(trailer, root + ROOT.length);
+                if (number == null) {
+                    return null;
+                }
+                catalogNumber = number.value;
+            }
+            for (final Subsection subsection : subsections) {
+                if (catalogNumber >= subsection.firstObject
+                        && catalogNumber < subsection.firstObject + subsection.numberOfObjects) {
+                    return readObject(subsection.position
+                            + (catalogNumber - subsection.firstObject) * ENTRY_SIZE,
+                            catalogNumber);
+                }
+            }
+            if (indexOf(trailer, XREF_STREAM, 0) >= 0) {
+                // the catalog may be stored in a cross reference stream of a hybrid file
+                return null;
+            }
+            final int prev = indexOf(trailer, PREV, 0);
+            final Token prevOffset = prev < 0 ? null : readNumber(trailer, prev + PREV.length);
+            sectionPosition = prevOffset == null ? -1 : prevOffset.value;
+        }
+        return null;
+    }
+
+    /**
+     * Reads the subsections and the trailer dictionary of a cross reference table.
+     *
+     * @param position
+     *            position of the keyword starting the table
+     * @param subsections
+     *            list to which all subsections of the table are added
+     * @return content of the trailer dictionary or null, if the table is no plain cross reference
+     *         table
+     * @throws IOException
+     *             if the file could not be read
+     */
+    private byte[] readSection(final long position, final List<Subsection> subsections)
+            throws IOException {
+        if (position >= size) {
+            return null;
+        }
+        byte[] block = source.read(position, WINDOW_SIZE);
+        int start = skipWhitespace(block, 0);
+        if (!startsWith(block, XREF, start)) {
+            // cross reference streams are only parsed by PDFBox
+            return null;
+        }
+        long current = position + start + XREF.length;
+        while (true) {
+            block = source.read(current, WINDOW_SIZE);
+            start = skipWhitespace(block, 0);
+            if (startsWith(block, TRAILER, start)) {
+                // objects of later updates follow the trailer, so it ends before startxref
+                final byte[] trailer = source.read(current + start + TRAILER.length,
+                        MAX_OBJECT_SIZE);
+                final int end = indexOf(trailer, START_XREF, 0);
+                if (end < 0) {
+                    return null;
+                }
+                final byte[] dictionary = new byte[end];
+                System.arraycopy(trailer, 0, dictionary, 0, end);
+                return dictionary;
+            }
+            final Token firstObject = readNumber(block, start);
+            final Token numberOfObjects = firstObject == null ? null : readNumber(block,
+                    firstObject.end);
+            if (numberOfObjects == null || numberOfObjects.end >= block.length) {
+                return null;
+            }
+            final long entries = current + skipWhitespace(block, numberOfObjects.end);
+            subsections.add(new Subsection(firstObject.value, numberOfObjects.value, entries));
+            current = entries + numberOfObjects.value * ENTRY_SIZE;
+            if (current >= size) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reads an object by its entry in a cross reference table.
+     *
+     * @param entryPosition
+     *            position of the entry in the cross reference table
+     * @param objectNumber
+     *            number of the object
+     * @return content of the object or null, if the entry or the object are not well formed
+     * @throws IOException
+     *             if the file could not be read
+     */
+    private byte[] readObject(final long entryPosition, final long objectNumber)
+            throws IOException {
+        final byte[] entry = source.read(entryPosition, ENTRY_SIZE);
+        // an entry looks like "0000012345 00000 n" followed by two bytes end of line
+        if (entry.length < ENTRY_SIZE - 2 || entry[10] != ' ' || entry[16] != ' '
+                || entry[17] != 'n') {
+            return null;
+        }
+        final Token offset = readNumber(entry, 0);
+        if (offset == null || offset.end != 10 || offset.value >= size) {
+            return null;
+        }
+        final byte[] object = source.read(offset.value, MAX_OBJECT_SIZE);
+        final Token number = readNumber(object, 0);
+        final Token generation = number == null ? null : readNumber(object, number.end);
+        if (generation == null || number.value != objectNumber
+                || !startsWith(object, OBJ, skipWhitespace(object, generation.end))) {
+            return null;
+        }
+        final int end = indexOf(object, END_OBJ, generation.end);
+        if (end < 0) {
+            return null;
+        }
+        final byte[] content = new byte[end];
+        System.arraycopy(object, 0, content, 0, end);
+        return content;
+    }
+
+    /**
+     * Reads a non-negative number after optional whitespace.
+     *
+     * @param block
+     *            bytes containing the number
+     * @param from
+     *            position from which to search the number
+     * @return number and the position after it or null, if there is no number
+     */
+    private static Token readNumber(final byte[] block, final int from) {
+        int i = skipWhitespace(block, from);
+        final int start = i;
+        long value = 0;
+        while (i < block.length && block[i] >= '0' && block[i] <= '9' && i - start < 18) {
+            value = value * 10 + (block[i] - '0');
+            i++;
+        }
+        return i == start ? null : new Token(value, i);
+    }
+
+    /**
+     * Skips all whitespace and comments starting at a given position.
+     *
+     * @param block
+     *            bytes to be skipped
+     * @param from
+     *            position of the first byte
+     * @return position of the first byte that is neither whitespace nor comment
+     */
+    private static int skipWhitespace(final byte[] block, final int from) {
+        int i = from;
+        while (i < block.length) {
+            final byte b = block[i];
+            if (b == '%') {
+                while (i < block.length && block[i] != '\r' && block[i] != '\n') {
+                    i++;
+                }
+            } else if (b == ' ' || b == '\r' || b == '\n' || b == '\t' || b == '\f' || b == 0) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean startsWith(final byte[] block, final byte[] pattern, final int from) {
+        if (from + pattern.length > block.length) {
+            return false;
+        }
+        for (int i = 0; i < pattern.length; i++) {
+            if (block[from + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(final byte[] block, final byte[] pattern, final int from) {
+        for (int i = from; i + pattern.length <= block.length; i++) {
+            if (startsWith(block, pattern, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(final byte[] block, final byte[] pattern) {
+        for (int i = block.length - pattern.length; i >= 0; i--) {
+            if (startsWith(block, pattern, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] ascii(final String string) {
+        return string.getBytes(StandardCharsets.US_ASCII);
+    }
+}
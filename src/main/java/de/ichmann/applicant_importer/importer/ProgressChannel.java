@@ -0,0 +1,327 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the files of an import and reports the progress to all ImportProgressListeners. The
+ * parser threads only update atomic counters. The progress is delivered through an executor at most
+ * once per interval and only if no other delivery is still pending, so that a slow listener like a
+ * Swing component never blocks the parser threads. If progress is not delivered for one of these
+ * reasons, a delivery is scheduled for the end of the interval, so that the listeners never keep
+ * an old progress while the next file takes long.
+ * <p>
+ * All deliveries are serialized and the end of the import is always delivered last. Progress that
+ * is delivered after the end of the import has been signaled is dropped.
+ * <p>
+ * Files are counted for the directory they have been found in as well. DirectoryProgressListeners
+ * receive the progress of all directories that have changed since the last delivery.
+ *
+ * @author Christian Wichmann
+ */
+final class ProgressChannel {
+
+    /**
+     * Executor that runs all deliveries directly in the thread reporting the progress.
+     */
+    static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    };
+
+    /**
+     * Minimal delay in nanoseconds before trying again to deliver progress, while another delivery
+     * is still pending.
+     */
+    private static final long MINIMAL_RETRY_DELAY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final PdfFormImporter importer;
+    private final List<ImportProgressListener> listeners;
+    private final List<DirectoryProgressListener> directoryListeners;
+    private final Executor executor;
+    private final ScheduledExecutorService scheduler;
+    private final long intervalNanos;
+
+    private final AtomicInteger numberOfFiles = new AtomicInteger(0);
+    private final AtomicInteger numberOfFinishedFiles = new AtomicInteger(0);
+    private final AtomicLong lastDelivery;
+    private final AtomicBoolean deliveryPending = new AtomicBoolean(false);
+    private final AtomicBoolean trailingDeliveryScheduled = new AtomicBoolean(false);
+
+    /**
+     * Contains the counters of all directories sorted by their relative paths.
+     */
+    private final ConcurrentMap<String, DirectoryCounter> directories =
+            new ConcurrentSkipListMap<>();
+
+    // guards the deliveries and the done flag
+    private final Object deliveryLock = new Object();
+    private boolean done = false;
+
+    private final Runnable progressDelivery = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                synchronized (deliveryLock) {
+                    if (!done) {
+                        final int total = numberOfFiles.get();
+                        final int finished = numberOfFinishedFiles.get();
+                        for (final ImportProgressListener listener : listeners) {
+                            listener.progressChanged(total, finished);
+                        }
+                        deliverDirectoryProgress();
+                    }
+                }
+            } finally {
+                deliveryPending.set(false);
+            }
+        }
+    };
+
+    private final Runnable trailingDelivery = new Runnable() {
+        @Override
+        public void run() {
+            trailingDeliveryScheduled.set(false);
+            publishProgress();
+        }
+    };
+
+    /**
+     * Counts the files of a single directory.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class DirectoryCounter {
+
+        private final AtomicInteger numberOfFiles = new AtomicInteger(0);
+        private final AtomicInteger numberOfFinishedFiles = new AtomicInteger(0);
+
+        // guarded by deliveryLock
+        private int deliveredFiles = 0;
+        private int deliveredFinishedFiles = 0;
+    }
+
+    /**
+     * Initializes a new progress channel.
+     *
+     * @param importer
+     *            importer whose progress is reported
+     * @param listeners
+     *            all listeners to be informed
+     * @param executor
+     *            executor that delivers the progress to the listeners
+     * @param scheduler
+     *            scheduler for deliveries at the end of an interval
+     * @param interval
+     *            minimal time between two progress deliveries in milliseconds
+     */
+    ProgressChannel(final PdfFormImporter importer, final List<ImportProgressListener> listeners,
+            final Executor executor, final ScheduledExecutorService scheduler,
+            final long interval) {
+        this.importer = importer;
+        this.listeners = Collections.unmodifiableList(new ArrayList<>(listeners));
+        final List<DirectoryProgressListener> directoryListenerList = new ArrayList<>();
+        for (final ImportProgressListener listener : listeners) {
+            if (listener instanceof DirectoryProgressListener) {
+                directoryListenerList.add((DirectoryProgressListener) listener);
+            }
+        }
+        this.directoryListeners = Collections.unmodifiableList(directoryListenerList);
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        // allow the first delivery immediately
+        this.lastDelivery = new AtomicLong(System.nanoTime() - intervalNanos);
+    }
+
+    /**
+     * Counts a new file that will be parsed.
+     *
+     * @param directory
+     *            relative path of the directory containing the file
+     */
+    void fileSubmitted(final String directory) {
+        numberOfFiles.incrementAndGet();
+        getDirectoryCounter(directory).numberOfFiles.incrementAndGet();
+    }
+
+    /**
+     * Removes a file from the count, because it could not be handed to the parser.
+     *
+     * @param directory
+     *            relative path of the directory containing the file
+     */
+    void fileWithdrawn(final String directory) {
+        numberOfFiles.decrementAndGet();
+        getDirectoryCounter(directory).numberOfFiles.decrementAndGet();
+    }
+
+    /**
+     * Counts a file that has been parsed. The progress is not delivered by this method, so that it
+     * can be called while holding a lock.
+     *
+     * @param directory
+     *            relative path of the directory containing the file
+     */
+    void fileFinished(final String directory) {
+        numberOfFinishedFiles.incrementAndGet();
+        getDirectoryCounter(directory).numberOfFinishedFiles.incrementAndGet();
+    }
+
+    /**
+     * Returns the counter for a given directory and creates it if necessary.
+     *
+     * @param directory
+     *            relative path of the directory
+     * @return counter of the directory
+     */
+    private DirectoryCounter getDirectoryCounter(final String directory) {
+        DirectoryCounter counter = directories.get(directory);
+        if (counter == null) {
+            final DirectoryCounter newCounter = new DirectoryCounter();
+            counter = directories.putIfAbsent(directory, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Delivers the progress of all directories that have changed since the last delivery. Must
+     * only be called while holding deliveryLock.
+     */
+    private void deliverDirectoryProgress() {
+        if (directoryListeners.isEmpty()) {
+            return;
+        }
+        for (final Map.Entry<String, DirectoryCounter> entry : directories.entrySet()) {
+            final DirectoryCounter counter = entry.getValue();
+            final int total = counter.numberOfFiles.get();
+            final int finished = counter.numberOfFinishedFiles.get();
+            if (total != counter.deliveredFiles || finished != counter.deliveredFinishedFiles) {
+                counter.deliveredFiles = total;
+                counter.deliveredFinishedFiles = finished;
+                for (final DirectoryProgressListener listener : directoryListeners) {
+                    listener.directoryProgressChanged(entry.getKey(), total, finished);
+                }
+            }
+        }
+    }
+
+    /**
+     * Delivers the current progress to all listeners, unless the last delivery has been less than
+     * an interval ago or is still pending. In that case the progress is delivered at the end of
+     * the interval.
+     */
+    void publishProgress() {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        final long remainingInterval = intervalNanos - (now - lastDelivery.get());
+        if (remainingInterval > 0) {
+            scheduleTrailingDelivery(remainingInterval);
+            return;
+        }
+        if (!deliveryPending.compareAndSet(false, true)) {
+            scheduleTrailingDelivery(Math.max(intervalNanos, MINIMAL_RETRY_DELAY));
+            return;
+        }
+        lastDelivery.set(now);
+        executor.execute(progressDelivery);
+    }
+
+    /**
+     * Schedules a single delivery of the progress, if none is scheduled yet.
+     *
+     * @param delay
+     *            delay in nanoseconds
+     */
+    private void scheduleTrailingDelivery(final long delay) {
+        if (!trailingDeliveryScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            scheduler.schedule(trailingDelivery, delay, TimeUnit.NANOSECONDS);
+        } catch (final RejectedExecutionException e) {
+            // the import has ended, so its end is delivered instead
+            trailingDeliveryScheduled.set(false);
+        }
+    }
+
+    /**
+     * Signals all listeners that the import has been finished or cancelled.
+     */
+    void finished() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (deliveryLock) {
+                    if (done) {
+                        return;
+                    }
+                    deliverDirectoryProgress();
+                    done = true;
+                    for (final ImportProgressListener listener : listeners) {
+                        listener.importFinished(importer);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Signals all listeners that the import has failed.
+     *
+     * @param cause
+     *            error that stopped the import
+     */
+    void failed(final Exception cause) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (deliveryLock) {
+                    if (done) {
+                        return;
+                    }
+                    done = true;
+                    for (final ImportProgressListener listener : listeners) {
+                        listener.importFailed(importer, cause);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the number of files found so far.
+     *
+     * @return number of files
+     */
+    int getNumberOfFiles() {
+        return numberOfFiles.get();
+    }
+
+    /**
+     * Returns the number of files that have already been parsed.
+     *
+     * @return number of parsed files
+     */
+    int getNumberOfFinishedFiles() {
+        return numberOfFinishedFiles.get();
+    }
+}
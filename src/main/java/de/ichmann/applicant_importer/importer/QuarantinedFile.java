@@ -0,0 +1,51 @@
+package de.ichmann.applicant_importer.importer;
+
+/**
+ * Describes a file that could not be imported because parsing it took too long or failed with an
+ * error. Such files are put into quarantine, so that the rest of the import can go on. The reason
+ * is meant to be shown to the user.
+ *
+ * @author Christian Wichmann
+ */
+public final class QuarantinedFile {
+
+    private final String fileName;
+    private final String reason;
+
+    /**
+     * Initializes a new quarantined file.
+     *
+     * @param fileName
+     *            name of the file that could not be imported
+     * @param reason
+     *            description why the file could not be imported
+     */
+    public QuarantinedFile(final String fileName, final String reason) {
+        this.fileName = fileName;
+        this.reason = reason;
+    }
+
+    /**
+     * Returns the name of the file that could not be imported. Files inside an archive are named
+     * like "archive.zip!/entry.pdf".
+     *
+     * @return name of the file
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Returns a description why the file could not be imported.
+     *
+     * @return reason for the quarantine
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return fileName + " (" + reason + ")";
+    }
+}
@@ -0,0 +1,332 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads files into memory ahead of the parser threads, so that reading the next files from disk or
+ * from a network share overlaps with parsing the files that have already been read.
+ * <p>
+ * Files are read by a single reader thread in the same order in which the parser threads take
+ * them, as defined by the scheduling policy. At most a given number of files are held in memory
+ * without being taken by a parser thread. Before a file is read, its size is reserved from the
+ * memory budget of the import. The reader thread never waits for memory: if the budget is
+ * exhausted, the file is not read ahead and the parser thread reads it itself. When a parser
+ * thread takes the content, the reservation is given back, because the memory the parser thread
+ * reserves for parsing the file includes its content.
+ * <p>
+ * Parser threads reserve their memory through acquireMemory(). If the budget is exhausted, all
+ * files in the buffer are dropped before the parser thread waits, and no further files are read
+ * ahead while it waits. So a parser thread never waits for memory that is held by files queued
+ * behind it.
+ * <p>
+ * A parser thread only waits for a file that is currently being read. If the reader thread has not
+ * started reading the file yet, the parser thread reads it itself. Therefore parser threads never
+ * wait for files that are blocked by other files in the buffer.
+ *
+ * @author Christian Wichmann
+ */
+final class ReadAheadStage {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadAheadStage.class);
+
+    private final ThreadPoolExecutor readerPool;
+    private final SchedulingPolicy schedulingPolicy;
+    private final Semaphore freeSlots;
+    private final MemoryBudget memoryBudget;
+
+    /**
+     * Contains all files whose content is held in the buffer or is being read into it.
+     */
+    private final Set<PrefetchedFile> bufferedFiles = Collections
+            .newSetFromMap(new ConcurrentHashMap<PrefetchedFile, Boolean>());
+
+    // guarded by this
+    private int waitingParsers = 0;
+
+    /**
+     * Contains a single file that is read ahead. The parser thread takes the content of the file
+     * as soon as it has been read and has to release the file after parsing.
+     *
+     * @author Christian Wichmann
+     */
+    final class PrefetchedFile implements Runnable, Comparable<PrefetchedFile> {
+
+        private final Path path;
+        private final long size;
+        private final long sequence;
+        private final CountDownLatch ready = new CountDownLatch(1);
+
+        // all fields are guarded by this
+        private byte[] data;
+        private boolean reading = false;
+        private boolean stolen = false;
+        private boolean taken = false;
+        private boolean released = false;
+        private boolean completed = false;
+        private boolean dropped = false;
+        private int reservedMemory = 0;
+
+        /**
+         * Initializes a new file to be read ahead.
+         *
+         * @param path
+         *            file to be read
+         * @param size
+         *            size of the file in bytes
+         * @param sequence
+         *            position of the file in the directory listing
+         */
+        private PrefetchedFile(final Path path, final long size, final long sequence) {
+            this.path = path;
+            this.size = size;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final PrefetchedFile other) {
+            return schedulingPolicy.compare(size, sequence, other.size, other.sequence);
+        }
+
+        @Override
+        public void run() {
+            try {
+                freeSlots.acquire();
+            } catch (final InterruptedException e) {
+                complete(null, false);
+                return;
+            }
+            synchronized (ReadAheadStage.this) {
+                synchronized (this) {
+                    if (stolen || released) {
+                        // the parser thread has already read the file itself
+                        freeSlots.release();
+                        return;
+                    }
+                    if (waitingParsers == 0) {
+                        reservedMemory = memoryBudget.tryAcquire(size);
+                    }
+                    if (reservedMemory == 0) {
+                        logger.debug("Not enough memory to read file ahead: " + path);
+                        freeSlots.release();
+                        complete(null, false);
+                        return;
+                    }
+                    reading = true;
+                    bufferedFiles.add(this);
+                }
+            }
+            try {
+                complete(Files.readAllBytes(path), true);
+            } catch (final IOException | OutOfMemoryError e) {
+                logger.debug("Could not read file ahead: " + path);
+                synchronized (this) {
+                    freeBuffer();
+                }
+                complete(null, false);
+            }
+        }
+
+        /**
+         * Gives back the slot and the memory reserved for the content of the file. Must be called
+         * while holding the lock of this file.
+         */
+        private void freeBuffer() {
+            bufferedFiles.remove(this);
+            freeSlots.release();
+            memoryBudget.release(reservedMemory);
+            reservedMemory = 0;
+        }
+
+        /**
+         * Drops the content of the file from the buffer, so that a parser thread reads the file
+         * itself. If the file is still being read, the reader thread gives back the buffer when it
+         * has finished reading.
+         */
+        private void drop() {
+            synchronized (this) {
+                if (taken || released || dropped || reservedMemory == 0) {
+                    return;
+                }
+                dropped = true;
+                if (completed) {
+                    data = null;
+                    freeBuffer();
+                }
+            }
+        }
+
+        /**
+         * Stores the result of reading the file. If the file has already been released or dropped,
+         * the slot and the reserved memory are given back immediately.
+         *
+         * @param content
+         *            content of the file or null, if it has not been read
+         * @param holdsSlot
+         *            whether a slot and memory have been taken for the file
+         */
+        private void complete(final byte[] content, final boolean holdsSlot) {
+            synchronized (this) {
+                completed = true;
+                if (released || dropped) {
+                    if (holdsSlot) {
+                        freeBuffer();
+                    }
+                } else {
+                    data = content;
+                }
+            }
+            ready.countDown();
+        }
+
+        /**
+         * Takes the content of the file. If the file is currently being read, this waits until it
+         * has been read. If the reader thread has not started reading it yet, the file is not read
+         * ahead any more. The memory reserved for the content is given back, so the caller has to
+         * reserve memory for the content itself.
+         *
+         * @return content of the file or null, if it could not be read ahead and has to be read
+         *         from disk
+         * @throws InterruptedException
+         *             if the thread was interrupted while waiting
+         */
+        byte[] take() throws InterruptedException {
+            synchronized (this) {
+                if (!reading) {
+                    stolen = true;
+                    return null;
+                }
+            }
+            ready.await();
+            synchronized (this) {
+                if (data != null && !taken) {
+                    taken = true;
+                    // the content has left the buffer, so the next file can be read
+                    freeBuffer();
+                }
+                return data;
+            }
+        }
+
+        /**
+         * Releases the content of the file. This must be called after parsing the file or if the
+         * parser gives up, even if the content has not been taken.
+         */
+        void release() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                if (data != null && !taken) {
+                    freeBuffer();
+                }
+                data = null;
+            }
+        }
+    }
+
+    /**
+     * Initializes a new read ahead stage.
+     *
+     * @param numberOfFiles
+     *            maximum number of files that are read but not yet taken by a parser thread
+     * @param schedulingPolicy
+     *            order in which the files are read
+     * @param memoryBudget
+     *            memory budget of the import from which the content of all files is reserved
+     * @param threadFactory
+     *            factory for the reader thread
+     */
+    ReadAheadStage(final int numberOfFiles, final SchedulingPolicy schedulingPolicy,
+            final MemoryBudget memoryBudget, final ThreadFactory threadFactory) {
+        this.freeSlots = new Semaphore(numberOfFiles, true);
+        this.schedulingPolicy = schedulingPolicy;
+        this.memoryBudget = memoryBudget;
+        this.readerPool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), threadFactory);
+    }
+
+    /**
+     * Reserves memory for parsing a file from the memory budget and waits until enough memory is
+     * available. If the memory is not available at once, all files in the buffer are dropped and no
+     * files are read ahead until the memory has been reserved.
+     *
+     * @param bytes
+     *            estimated number of bytes needed for parsing the file
+     * @return number of reserved permits, which has to be given back to the memory budget
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting for memory
+     */
+    int acquireMemory(final long bytes) throws InterruptedException {
+        synchronized (this) {
+            final int reservedMemory = memoryBudget.tryAcquire(bytes);
+            if (reservedMemory > 0) {
+                return reservedMemory;
+            }
+            waitingParsers++;
+            for (final PrefetchedFile file : bufferedFiles) {
+                file.drop();
+            }
+        }
+        try {
+            return memoryBudget.acquire(bytes);
+        } finally {
+            synchronized (this) {
+                waitingParsers--;
+            }
+        }
+    }
+
+    /**
+     * Schedules a file to be read ahead.
+     *
+     * @param path
+     *            file to be read
+     * @param size
+     *            size of the file in bytes
+     * @param sequence
+     *            position of the file in the directory listing
+     * @return file that is read ahead or null, if the stage has already been shut down
+     */
+    PrefetchedFile readAhead(final Path path, final long size, final long sequence) {
+        final PrefetchedFile file = new PrefetchedFile(path, size, sequence);
+        try {
+            readerPool.execute(file);
+        } catch (final RejectedExecutionException e) {
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Shuts down the reader thread after all scheduled files have been read.
+     */
+    void shutdown() {
+        readerPool.shutdown();
+    }
+
+    /**
+     * Shuts down the reader thread immediately. Files that have not been read yet are never read,
+     * so that parser threads waiting for them have to read them from disk.
+     */
+    void shutdownNow() {
+        for (final Runnable file : readerPool.shutdownNow()) {
+            ((PrefetchedFile) file).complete(null, false);
+        }
+    }
+}
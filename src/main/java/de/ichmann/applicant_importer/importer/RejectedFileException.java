@@ -0,0 +1,22 @@
+package de.ichmann.applicant_importer.importer;
+
+/**
+ * Signals that a file has been rejected without parsing it, because it can not contain a PDF form.
+ * The message describes the reason and is meant to be shown to the user.
+ *
+ * @author Christian Wichmann
+ */
+final class RejectedFileException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Initializes a new exception for a rejected file.
+     *
+     * @param reason
+     *            description why the file has been rejected
+     */
+    RejectedFileException(final String reason) {
+        super(reason);
+    }
+}
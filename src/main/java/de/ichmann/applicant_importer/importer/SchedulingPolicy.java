@@ -0,0 +1,31 @@
+package de.ichmann.applicant_importer.importer;
+
+/**
+ * Defines the order in which the parser threads take the files of an import. Files are ordered
+ * when they wait for a free parser thread, so the first files of a directory are always started
+ * in the order of the directory listing until all parser threads are busy.
+ * <p>
+ * The policies provided by this application are defined in BuiltInSchedulingPolicy. Other
+ * policies can be given to the ImporterBuilder by implementing this interface. Implementations
+ * must define a consistent total order and are called concurrently by the parser threads.
+ *
+ * @author Christian Wichmann
+ */
+public interface SchedulingPolicy {
+
+    /**
+     * Compares two files by the order in which they should be parsed.
+     *
+     * @param size1
+     *            size of the first file in bytes
+     * @param sequence1
+     *            position of the first file in the directory listing
+     * @param size2
+     *            size of the second file in bytes
+     * @param sequence2
+     *            position of the second file in the directory listing
+     * @return a negative number, if the first file should be parsed first, a positive number, if
+     *         the second file should be parsed first
+     */
+    int compare(long size1, long sequence1, long size2, long sequence2);
+}
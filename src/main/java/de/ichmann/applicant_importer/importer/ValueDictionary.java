@@ -0,0 +1,159 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import de.ichmann.applicant_importer.model.DataField;
+
+/**
+ * Deduplicates the string values of data fields during an import. Values like the city or the name
+ * of a company repeat in many PDF files, but every PDF file produces its own string objects. All
+ * values are passed through a dictionary for their data field, so that identical values of all
+ * applicants share a single instance.
+ * <p>
+ * Every dictionary is bounded. When it is full, new values are no longer added but returned as
+ * they are, so that fields with mostly unique values (e.g. email addresses) can not fill the heap.
+ * For every data field the number of lookups and hits is counted to report the hit ratio.
+ * <p>
+ * This class is thread-safe, so that all parser threads of an import can use the same dictionary.
+ *
+ * @author Christian Wichmann
+ */
+public final class ValueDictionary {
+
+    /**
+     * Default maximum number of distinct values stored for every data field.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private final int maximumSize;
+    private final List<ConcurrentMap<String, String>> dictionaries;
+    private final AtomicIntegerArray sizes;
+    private final AtomicLongArray lookups;
+    private final AtomicLongArray hits;
+
+    /**
+     * Initializes a new dictionary with the default maximum size.
+     */
+    public ValueDictionary() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Initializes a new dictionary.
+     *
+     * @param maximumSize
+     *            maximum number of distinct values stored for every data field
+     * @throws IllegalArgumentException
+     *             if parameter maximumSize is not positive
+     */
+    public ValueDictionary(final int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Parameter maximumSize must be positive");
+        }
+        final int numberOfFields = DataField.values().length;
+        this.maximumSize = maximumSize;
+        this.dictionaries = new ArrayList<>(numberOfFields);
+        for (int i = 0; i < numberOfFields; i++) {
+            dictionaries.add(new ConcurrentHashMap<String, String>());
+        }
+        this.sizes = new AtomicIntegerArray(numberOfFields);
+        this.lookups = new AtomicLongArray(numberOfFields);
+        this.hits = new AtomicLongArray(numberOfFields);
+    }
+
+    /**
+     * Returns the shared instance of a value of a given data field. If the value is not yet known
+     * and the dictionary for the data field is not full, the value itself is stored as shared
+     * instance.
+     *
+     * @param dataField
+     *            data field of the value
+     * @param value
+     *            value to be deduplicated
+     * @return shared instance equal to the given value
+     */
+    public String deduplicate(final DataField dataField, final String value) {
+        final int index = dataField.ordinal();
+        lookups.incrementAndGet(index);
+        final ConcurrentMap<String, String> dictionary = dictionaries.get(index);
+        final String sharedValue = dictionary.get(value);
+        if (sharedValue != null) {
+            hits.incrementAndGet(index);
+            return sharedValue;
+        }
+        // the bound may be exceeded by a few values when threads add values at the same time
+        if (sizes.get(index) >= maximumSize) {
+            return value;
+        }
+        final String previousValue = dictionary.putIfAbsent(value, value);
+        if (previousValue != null) {
+            hits.incrementAndGet(index);
+            return previousValue;
+        }
+        sizes.incrementAndGet(index);
+        return value;
+    }
+
+    /**
+     * Returns the number of distinct values stored for a given data field.
+     *
+     * @param dataField
+     *            data field
+     * @return number of stored values
+     */
+    public int getSize(final DataField dataField) {
+        return sizes.get(dataField.ordinal());
+    }
+
+    /**
+     * Returns the ratio of lookups of a given data field that found a shared instance.
+     *
+     * @param dataField
+     *            data field
+     * @return hit ratio between 0 and 1 or 0, if no value has been looked up
+     */
+    public double getHitRatio(final DataField dataField) {
+        final long numberOfLookups = lookups.get(dataField.ordinal());
+        if (numberOfLookups == 0) {
+            return 0.0;
+        }
+        return (double) hits.get(dataField.ordinal()) / numberOfLookups;
+    }
+
+    /**
+     * Returns the hit ratios of all data fields whose values have been looked up.
+     *
+     * @return hit ratio between 0 and 1 by data field
+     */
+    public Map<DataField, Double> getHitRatios() {
+        final Map<DataField, Double> hitRatios = new EnumMap<>(DataField.class);
+        for (final DataField dataField : DataField.values()) {
+            if (lookups.get(dataField.ordinal()) > 0) {
+                hitRatios.put(dataField, getHitRatio(dataField));
+            }
+        }
+        return hitRatios;
+    }
+
+    /**
+     * Returns the ratio of all lookups that found a shared instance.
+     *
+     * @return hit ratio between 0 and 1 or 0, if no value has been looked up
+     */
+    public double getTotalHitRatio() {
+        long numberOfLookups = 0;
+        long numberOfHits = 0;
+        for (int i = 0; i < lookups.length(); i++) {
+            numberOfLookups += lookups.get(i);
+            numberOfHits += hits.get(i);
+        }
+        return numberOfLookups == 0 ? 0.0 : (double) numberOfHits / numberOfLookups;
+    }
+}
@@ -0,0 +1,396 @@
+package de.ichmann.applicant_importer.importer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Parses PDF files in a pool of separate Java processes, so that a bug in PDFBox or a runaway
+ * document can not exhaust the heap of the application itself. Every worker process has its own
+ * heap limit and parses one file at a time. The parser threads send the path of a file to a worker
+ * through its standard input and read the form field values from its standard output.
+ * <p>
+ * If a worker process crashes or is aborted because it takes too long, only the file it was
+ * parsing fails. The process is replaced by a new one when the next file is parsed.
+ * <p>
+ * Protocol: A request is the absolute path of a file written by DataOutputStream.writeUTF(). The
+ * response starts with a single result byte. For RESULT_FORM_FIELDS the number of fields follows
+ * and for every field its name and value, where every value is preceded by a boolean telling
+ * whether it is present. For RESULT_REJECTED, RESULT_ERROR, RESULT_FATAL_ERROR and
+ * RESULT_READ_ERROR a message follows. After RESULT_FATAL_ERROR the worker process exits.
+ *
+ * @author Christian Wichmann
+ */
+final class WorkerProcessPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerProcessPool.class);
+
+    /**
+     * Result of a file with a form. The values of all form fields follow.
+     */
+    static final int RESULT_FORM_FIELDS = 0;
+
+    /**
+     * Result of a file that could not be parsed or contains no form.
+     */
+    static final int RESULT_NO_FORM = 1;
+
+    /**
+     * Result of a file rejected by the preflight check. The reason follows.
+     */
+    static final int RESULT_REJECTED = 2;
+
+    /**
+     * Result of a file that could not be parsed because of an error. The error message follows.
+     */
+    static final int RESULT_ERROR = 3;
+
+    /**
+     * Result of a file after which the worker process can not go on (e.g. because its heap is
+     * exhausted). The error message follows and the process exits.
+     */
+    static final int RESULT_FATAL_ERROR = 4;
+
+    /**
+     * Result of a file that could not be read at all (e.g. because it has been deleted). The error
+     * message follows.
+     */
+    static final int RESULT_READ_ERROR = 5;
+
+    /**
+     * Configuration of log4j for worker processes. It writes only to the standard error stream,
+     * because the standard output is used for the results.
+     */
+    private static final String WORKER_LOG_CONFIGURATION = "log4j-worker.xml";
+
+    private final List<String> command;
+    private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+    private final List<Worker> workers = new ArrayList<>();
+    private final ConcurrentMap<Thread, Worker> busyWorkers = new ConcurrentHashMap<>();
+    private volatile boolean shutdown = false;
+
+    /**
+     * Signals that a file could not be parsed by a worker process. The message describes the
+     * reason and is meant to be shown to the user.
+     *
+     * @author Christian Wichmann
+     */
+    static final class WorkerFailedException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Initializes a new exception for a failed file.
+         *
+         * @param reason
+         *            description why the file could not be parsed
+         */
+        WorkerFailedException(final String reason) {
+            super(reason);
+        }
+    }
+
+    /**
+     * Signals that a worker process could not read a file. Unlike a WorkerFailedException this is
+     * no failure of the worker process, so the file is neither quarantined nor regarded as
+     * invalid by the import cache.
+     *
+     * @author Christian Wichmann
+     */
+    static final class FileReadException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Initializes a new exception for a file that could not be read.
+         *
+         * @param reason
+         *            description why the file could not be read
+         */
+        FileReadException(final String reason) {
+            super(reason);
+        }
+    }
+
+    /**
+     * Controls a single worker process. The process is started when the first file is parsed and
+     * restarted after it has crashed. A worker is only used by one parser thread at a time.
+     *
+     * @author Christian Wichmann
+     */
+    private final class Worker {
+
+        // all fields are guarded by this
+        private Process process;
+        private DataOutputStream out;
+        private DataInputStream in;
+        private Thread owner;
+
+        /**
+         * Starts the worker process, if it is not running.
+         *
+         * @throws WorkerFailedException
+         *             if the process could not be started
+         */
+        private synchronized void ensureStarted() {
+            if (shutdown) {
+                throw new WorkerFailedException("Import wurde beendet");
+            }
+            if (process == null) {
+                logger.debug("Starting worker process: " + command);
+                try {
+                    process = new ProcessBuilder(command).redirectError(
+                            ProcessBuilder.Redirect.INHERIT).start();
+                } catch (final IOException e) {
+                    logger.error("Could not start worker process: " + e.getMessage());
+                    throw new WorkerFailedException("Parser-Prozess konnte nicht gestartet werden: "
+                            + e.getMessage());
+                }
+                out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+                in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+            }
+        }
+
+        /**
+         * Parses a single file in the worker process.
+         *
+         * @param path
+         *            PDF file to be parsed
+         * @return map with all form field values or null, if the file contains no form
+         * @throws RejectedFileException
+         *             if the file has been rejected by the preflight check
+         * @throws FileReadException
+         *             if the worker process could not read the file
+         * @throws InterruptedException
+         *             if the thread was interrupted while the file was parsed
+         */
+        private Map<String, String> readFormFields(final Path path)
+                throws RejectedFileException, FileReadException, InterruptedException {
+            boolean restart = true;
+            try {
+                final DataOutputStream requestOut;
+                final DataInputStream responseIn;
+                synchronized (this) {
+                    ensureStarted();
+                    requestOut = out;
+                    responseIn = in;
+                }
+                requestOut.writeUTF(path.toAbsolutePath().toString());
+                requestOut.flush();
+                final int result = responseIn.readUnsignedByte();
+                switch (result) {
+                case RESULT_FORM_FIELDS:
+                    final int numberOfFields = responseIn.readInt();
+                    final Map<String, String> formFields = new LinkedHashMap<>();
+                    for (int i = 0; i < numberOfFields; i++) {
+                        final String name = responseIn.readUTF();
+                        formFields.put(name, responseIn.readBoolean() ? responseIn.readUTF()
+                                : null);
+                    }
+                    restart = false;
+                    return formFields;
+                case RESULT_NO_FORM:
+                    restart = false;
+                    return null;
+                case RESULT_REJECTED:
+                    restart = false;
+                    throw new RejectedFileException(responseIn.readUTF());
+                case RESULT_READ_ERROR:
+                    restart = false;
+                    throw new FileReadException(responseIn.readUTF());
+                case RESULT_ERROR:
+                    restart = false;
+                    throw new WorkerFailedException("Fehler beim Lesen: " + responseIn.readUTF());
+                case RESULT_FATAL_ERROR:
+                    throw new WorkerFailedException("Fehler beim Lesen: " + responseIn.readUTF());
+                default:
+                    throw new WorkerFailedException("Ungültige Antwort vom Parser-Prozess");
+                }
+            } catch (final FileReadException e) {
+                throw e;
+            } catch (final IOException e) {
+                final Process crashedProcess = stopProcess();
+                // an aborted process has been stopped on purpose by a timeout or a cancellation
+                if (Thread.interrupted()) {
+                    throw new InterruptedException("Parsing has been interrupted");
+                }
+                throw new WorkerFailedException(String.format(
+                        "Parser-Prozess abgestürzt (Exit-Code %d)",
+                        crashedProcess != null ? crashedProcess.waitFor() : -1));
+            } finally {
+                if (restart) {
+                    stopProcess();
+                }
+            }
+        }
+
+        /**
+         * Stops the worker process, so that it is restarted for the next file.
+         *
+         * @return stopped process or null, if no process was running
+         */
+        private Process stopProcess() {
+            final Process stoppedProcess;
+            synchronized (this) {
+                stoppedProcess = process;
+                process = null;
+                out = null;
+                in = null;
+            }
+            if (stoppedProcess != null) {
+                stoppedProcess.destroy();
+            }
+            return stoppedProcess;
+        }
+    }
+
+    /**
+     * Initializes a new pool of worker processes. The processes are started when they are needed.
+     *
+     * @param numberOfProcesses
+     *            number of worker processes
+     * @param heapSize
+     *            maximum heap size of every worker process in bytes
+     * @param scratchFileThreshold
+     *            size in bytes above which a worker process uses a scratch file
+     */
+    WorkerProcessPool(final int numberOfProcesses, final long heapSize,
+            final long scratchFileThreshold) {
+        this(buildCommand(heapSize, scratchFileThreshold), numberOfProcesses);
+    }
+
+    /**
+     * Initializes a new pool of processes that are started with a given command.
+     *
+     * @param command
+     *            command line starting a single worker process
+     * @param numberOfProcesses
+     *            number of worker processes
+     */
+    WorkerProcessPool(final List<String> command, final int numberOfProcesses) {
+        this.command = command;
+        for (int i = 0; i < numberOfProcesses; i++) {
+            final Worker worker = new Worker();
+            workers.add(worker);
+            idleWorkers.add(worker);
+        }
+    }
+
+    /**
+     * Builds the command line that starts a worker process with the same class path as the
+     * application.
+     *
+     * @param heapSize
+     *            maximum heap size of every worker process in bytes
+     * @param scratchFileThreshold
+     *            size in bytes above which a worker process uses a scratch file
+     * @return command line of a worker process
+     */
+    private static List<String> buildCommand(final long heapSize,
+            final long scratchFileThreshold) {
+        final String javaExecutable = Paths.get(System.getProperty("java.home"), "bin", "java")
+                .toString();
+        return Arrays.asList(javaExecutable, "-Xmx" + heapSize / 1024 + "k",
+                "-Djava.awt.headless=true", "-Dlog4j.configuration=" + WORKER_LOG_CONFIGURATION,
+                "-cp", System.getProperty("java.class.path", "." + File.pathSeparator),
+                ParserWorker.class.getName(), String.valueOf(scratchFileThreshold));
+    }
+
+    /**
+     * Parses a single file in the next free worker process. If all processes are busy, this waits
+     * until one of them is free.
+     *
+     * @param path
+     *            PDF file to be parsed
+     * @param started
+     *            called as soon as a worker process has been assigned to the file or null
+     * @return map with all form field values or null, if the file contains no form
+     * @throws RejectedFileException
+     *             if the file has been rejected by the preflight check
+     * @throws FileReadException
+     *             if the worker process could not read the file
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting for a free worker process or while
+     *             the file was parsed
+     * @throws WorkerFailedException
+     *             if the worker process could not be started or failed or crashed while parsing
+     *             the file
+     */
+    Map<String, String> readFormFields(final Path path, final Runnable started)
+            throws RejectedFileException, FileReadException, InterruptedException {
+        final Worker worker = idleWorkers.take();
+        final Thread currentThread = Thread.currentThread();
+        synchronized (worker) {
+            worker.owner = currentThread;
+        }
+        busyWorkers.put(currentThread, worker);
+        try {
+            if (started != null) {
+                started.run();
+            }
+            return worker.readFormFields(path);
+        } finally {
+            busyWorkers.remove(currentThread);
+            synchronized (worker) {
+                worker.owner = null;
+            }
+            idleWorkers.add(worker);
+        }
+    }
+
+    /**
+     * Stops the worker process that is currently used by a given parser thread. The parser thread
+     * then fails with a WorkerFailedException and the process is restarted for the next file.
+     *
+     * @param parserThread
+     *            thread whose worker process should be stopped
+     */
+    void abort(final Thread parserThread) {
+        final Worker worker = busyWorkers.get(parserThread);
+        if (worker == null) {
+            return;
+        }
+        final Process process;
+        synchronized (worker) {
+            // the worker may have been handed to another thread in the meantime
+            process = worker.owner == parserThread ? worker.process : null;
+        }
+        if (process != null) {
+            logger.warn("Stopping worker process of thread " + parserThread.getName());
+            process.destroy();
+        }
+    }
+
+    /**
+     * Stops all worker processes. Files that are still being parsed fail.
+     */
+    void shutdown() {
+        shutdown = true;
+        for (final Worker worker : workers) {
+            final Process process;
+            synchronized (worker) {
+                process = worker.process;
+            }
+            if (process != null) {
+                process.destroy();
+            }
+        }
+    }
+}
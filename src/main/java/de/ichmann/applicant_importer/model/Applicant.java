@@ -1,9 +1,6 @@
 package de.ichmann.applicant_importer.model;
 
 import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +8,21 @@ import org.slf4j.LoggerFactory;
 /**
  * Contains all data field information for a given applicant that has been imported. This class is
  * immutable and new objects can only be created by use of the contained ApplicantBuilder.
+ * <p>
+ * The values are stored in an array indexed by the ordinal of their data field. Values of data
+ * fields with a type of Integer, Boolean or Character are stored as primitive int in a second,
+ * smaller array, so that they are not kept as boxed objects. Which data fields have been set is
+ * stored as a bit mask. Values of data fields that have not been imported are shared immutable
+ * objects.
+ * <p>
+ * Because an applicant can not be changed, it is validated only once when it is created. The
+ * invalid data fields are stored as a bit mask, so that checking the plausibility (e.g. for every
+ * cell of a table) does not validate the data again. Dates are parsed at the same time and stored
+ * as int values packed like yyyymmdd, while their original text is kept as value of the data
+ * field. Dates that can not be parsed are invalid.
+ * <p>
+ * Applicants stored in an ApplicantStore are row views that hold no data themselves but read
+ * their values from the columns of the store.
  *
  * @author Christian Wichmann
  */
@@ -18,8 +30,64 @@ public final class Applicant {
 
     private static final Logger logger = LoggerFactory.getLogger(Applicant.class);
 
-    private final Map<DataField, Object> applicantData = new HashMap<>();
-    private String filename;
+    private static final DataField[] DATA_FIELDS = DataField.values();
+
+    /**
+     * Index of the primitive slot for every data field by its ordinal or -1, if the values of a
+     * data field are stored as objects.
+     */
+    private static final int[] PRIMITIVE_SLOTS = new int[DATA_FIELDS.length];
+
+    /**
+     * Number of data fields whose values are stored as primitive int.
+     */
+    private static final int NUMBER_OF_PRIMITIVE_SLOTS;
+
+    /**
+     * Value of every data field by its ordinal that is returned if no value has been imported.
+     */
+    private static final Object[] EMPTY_VALUES = new Object[DATA_FIELDS.length];
+
+    /**
+     * Index of the date slot for every data field by its ordinal or -1, if a data field contains
+     * no dates.
+     */
+    private static final int[] DATE_SLOTS = new int[DATA_FIELDS.length];
+
+    /**
+     * Number of data fields containing dates.
+     */
+    static final int NUMBER_OF_DATE_SLOTS;
+
+    static {
+        assert DATA_FIELDS.length <= Long.SIZE : "Too many data fields for bit mask!";
+        int slot = 0;
+        int dateSlot = 0;
+        for (final DataField dataField : DATA_FIELDS) {
+            DATE_SLOTS[dataField.ordinal()] = dataField.isDate() ? dateSlot++ : -1;
+            final Class<?> type = dataField.getTypeOfDataField();
+            if (type == Integer.class || type == Boolean.class || type == Character.class) {
+                PRIMITIVE_SLOTS[dataField.ordinal()] = slot++;
+            } else {
+                PRIMITIVE_SLOTS[dataField.ordinal()] = -1;
+            }
+            EMPTY_VALUES[dataField.ordinal()] = createEmptyValue(dataField);
+        }
+        NUMBER_OF_PRIMITIVE_SLOTS = slot;
+        NUMBER_OF_DATE_SLOTS = dateSlot;
+    }
+
+    // values of data fields stored in primitive slots are null in this array
+    private final Object[] values;
+    private final int[] primitiveValues;
+    private final long importedFields;
+    private final long invalidFields;
+    private final int[] dateValues;
+    private final String filename;
+
+    // only set for row views of an applicant store
+    private final ApplicantStore store;
+    private final int row;
 
     /**
      * Collects all data field information and builds Applicant object with this data.
@@ -28,7 +96,9 @@ public final class Applicant {
      */
     public static class ApplicantBuilder {
 
-        private final Map<DataField, Object> applicantData = new HashMap<>();
+        private final Object[] values = new Object[DATA_FIELDS.length];
+        private final int[] primitiveValues = new int[NUMBER_OF_PRIMITIVE_SLOTS];
+        private long importedFields = 0L;
         private String filename;
 
         /**
@@ -46,14 +116,27 @@ public final class Applicant {
          *            data object for given data field
          * @return this builder itself
          * @throws IllegalArgumentException
-         *             if parameter string is {@code null}
+         *             if parameter string is {@code null} or data does not match the type of the
+         *             data field
          */
         public final ApplicantBuilder setValue(final DataField dataField, final Object data) {
             if (dataField == null || data == null) {
                 logger.error("" + dataField);
                 throw new IllegalArgumentException("Parameters dataField and data must not be null");
             }
-            applicantData.put(dataField, data);
+            if (!dataField.getTypeOfDataField().isInstance(data)) {
+                throw new IllegalArgumentException("Value of type " + data.getClass().getName()
+                        + " does not match type of data field " + dataField);
+            }
+            final int index = dataField.ordinal();
+            final int slot = PRIMITIVE_SLOTS[index];
+            if (slot >= 0) {
+                values[index] = null;
+                primitiveValues[slot] = toPrimitive(data);
+            } else {
+                values[index] = data;
+            }
+            importedFields |= 1L << index;
             return this;
         }
 
@@ -93,14 +176,228 @@ public final class Applicant {
     private Applicant(final ApplicantBuilder builder) {
         assert builder != null : "Builder instance should not be null!";
 
-        this.applicantData.putAll(builder.applicantData);
+        this.values = builder.values.clone();
+        this.primitiveValues = builder.primitiveValues.clone();
+        this.importedFields = builder.importedFields;
+        this.dateValues = parseDates(values);
+        this.invalidFields = validate(values, dateValues);
         this.filename = builder.filename;
+        this.store = null;
+        this.row = -1;
+    }
+
+    /**
+     * Creates a new applicant that reads its data from a row of an applicant store.
+     *
+     * @param store
+     *            store containing the applicants data
+     * @param row
+     *            index of the row in the store
+     */
+    Applicant(final ApplicantStore store, final int row) {
+        assert store != null : "Store instance should not be null!";
+
+        this.values = null;
+        this.primitiveValues = null;
+        this.importedFields = 0L;
+        this.invalidFields = store.getInvalidFieldMask(row);
+        this.dateValues = null;
+        this.filename = null;
+        this.store = store;
+        this.row = row;
+    }
+
+    /**
+     * Converts a value of type Integer, Boolean or Character into a primitive int.
+     *
+     * @param data
+     *            value to be converted
+     * @return value as primitive int
+     */
+    private static int toPrimitive(final Object data) {
+        if (data instanceof Boolean) {
+            return (Boolean) data ? 1 : 0;
+        } else if (data instanceof Character) {
+            return (Character) data;
+        } else {
+            return (Integer) data;
+        }
+    }
+
+    /**
+     * Converts a primitive int back into a value of the type of a given data field.
+     *
+     * @param dataField
+     *            data field whose value is converted
+     * @param value
+     *            value as primitive int
+     * @return value as object of the type of the data field
+     */
+    private static Object fromPrimitive(final DataField dataField, final int value) {
+        final Class<?> type = dataField.getTypeOfDataField();
+        if (type == Boolean.class) {
+            return Boolean.valueOf(value != 0);
+        } else if (type == Character.class) {
+            return Character.valueOf((char) value);
+        } else {
+            return Integer.valueOf(value);
+        }
+    }
+
+    /**
+     * Creates the value that is returned for a data field that has not been imported.
+     *
+     * @param dataField
+     *            data field to create value for
+     * @return "empty" value of the type of the data field
+     */
+    private static Object createEmptyValue(final DataField dataField) {
+        final Class<?> type = dataField.getTypeOfDataField();
+        if (type == Boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == Integer.class) {
+            return Integer.valueOf(0);
+        } else if (type == Religion.class) {
+            return Religion.OHNE_ANGABE;
+        } else if (type == Degree.class) {
+            return Degree.SONSTIGER_ABSCHLUSS;
+        } else if (type == School.class) {
+            return School.SONSTIGES;
+        } else if (type == String.class) {
+            return "";
+        } else if (type == Character.class) {
+            return Character.valueOf('m');
+        } else {
+            logger.error("Could not create value for \"empty\" data field: " + dataField);
+            assert false : "Could not create value for \"empty\" data field: " + dataField;
+            return null;
+        }
+    }
+
+    /**
+     * Parses the values of all data fields containing dates.
+     *
+     * @param values
+     *            values of the applicant by the ordinal of their data field
+     * @return dates packed as yyyymmdd by their date slot
+     */
+    private static int[] parseDates(final Object[] values) {
+        final int[] dates = new int[NUMBER_OF_DATE_SLOTS];
+        for (final DataField dataField : DATA_FIELDS) {
+            final int dateSlot = DATE_SLOTS[dataField.ordinal()];
+            if (dateSlot >= 0 && values[dataField.ordinal()] instanceof String) {
+                dates[dateSlot] = DateHelper.parseDate((String) values[dataField.ordinal()]);
+            }
+        }
+        return dates;
+    }
+
+    /**
+     * Validates the values of an applicant. Required data fields with an empty value and dates
+     * that could not be parsed are invalid. Values in primitive slots and values that have not
+     * been imported are never empty strings.
+     *
+     * @param values
+     *            values of the applicant by the ordinal of their data field
+     * @param dates
+     *            parsed dates of the applicant by their date slot
+     * @return bit mask of all invalid data fields by their ordinal
+     */
+    private static long validate(final Object[] values, final int[] dates) {
+        long invalidFields = 0L;
+        for (final DataField dataField : DATA_FIELDS) {
+            final Object value = values[dataField.ordinal()];
+            final int dateSlot = DATE_SLOTS[dataField.ordinal()];
+            if (dataField.isRequired() && "".equals(value)) {
+                invalidFields |= 1L << dataField.ordinal();
+            } else if (dateSlot >= 0 && value instanceof String && !"".equals(value)
+                    && dates[dateSlot] == DateHelper.NO_DATE) {
+                invalidFields |= 1L << dataField.ordinal();
+            }
+        }
+        return invalidFields;
+    }
+
+    /**
+     * Returns the index of the date slot of a data field containing dates.
+     *
+     * @param dataField
+     *            data field containing dates
+     * @return index of the date slot
+     * @throws IllegalArgumentException
+     *             if parameter dataField is {@code null} or contains no dates
+     */
+    static int getDateSlot(final DataField dataField) {
+        if (dataField == null || !dataField.isDate()) {
+            throw new IllegalArgumentException("Parameter dataField must contain dates");
+        }
+        return DATE_SLOTS[dataField.ordinal()];
+    }
+
+    /**
+     * Gets the parsed date of a data field containing dates. The date has been parsed once when
+     * this applicant was created.
+     *
+     * @param dataField
+     *            data field containing dates (e.g. BIRTHDAY)
+     * @return date packed as yyyymmdd or DateHelper.NO_DATE, if no valid date has been imported
+     * @throws IllegalArgumentException
+     *             if parameter dataField is {@code null} or contains no dates
+     */
+    public int getDateValue(final DataField dataField) {
+        final int dateSlot = getDateSlot(dataField);
+        if (store != null) {
+            return store.getDateValue(row, dateSlot);
+        }
+        return dateValues[dateSlot];
+    }
+
+    /**
+     * Returns the invalid data fields of this applicant as bit mask.
+     *
+     * @return bit mask of all invalid data fields by their ordinal
+     */
+    long getInvalidFieldMask() {
+        return invalidFields;
+    }
+
+    /**
+     * Gets the value that is returned for a data field that has not been imported.
+     *
+     * @param dataField
+     *            data field to get value for
+     * @return shared "empty" value of the type of the data field
+     */
+    static Object getEmptyValue(final DataField dataField) {
+        return EMPTY_VALUES[dataField.ordinal()];
+    }
+
+    /**
+     * Gets the value that has been imported for a given data field.
+     *
+     * @param dataField
+     *            data field to get value for
+     * @return imported value or null, if no value was imported
+     */
+    Object getImportedValue(final DataField dataField) {
+        if (store != null) {
+            return store.getImportedValue(row, dataField);
+        }
+        final int index = dataField.ordinal();
+        if ((importedFields & 1L << index) == 0) {
+            return null;
+        }
+        final Object o = values[index];
+        if (o != null) {
+            return o;
+        }
+        return fromPrimitive(dataField, primitiveValues[PRIMITIVE_SLOTS[index]]);
     }
 
     @Override
     public String toString() {
-        return applicantData.get(DataField.FIRST_NAME) + " "
-                + applicantData.get(DataField.LAST_NAME);
+        return getImportedValue(DataField.FIRST_NAME) + " "
+                + getImportedValue(DataField.LAST_NAME);
     }
 
     /**
@@ -120,26 +417,9 @@ public final class Applicant {
         if (dataField == null) {
             throw new IllegalArgumentException("Parameter dataField must not be null");
         }
-        Object o = applicantData.get(dataField);
+        final Object o = getImportedValue(dataField);
         if (o == null) {
-            if (dataField.getTypeOfDataField() == Boolean.class) {
-                o = new Boolean(false);
-            } else if (dataField.getTypeOfDataField() == Integer.class) {
-                o = new Integer(0);
-            } else if (dataField.getTypeOfDataField() == Religion.class) {
-                o = Religion.OHNE_ANGABE;
-            } else if (dataField.getTypeOfDataField() == Degree.class) {
-                o = Degree.SONSTIGER_ABSCHLUSS;
-            } else if (dataField.getTypeOfDataField() == School.class) {
-                o = School.SONSTIGES;
-            } else if (dataField.getTypeOfDataField() == String.class) {
-                o = new String();
-            } else if (dataField.getTypeOfDataField() == Character.class) {
-                o = new Character('m');
-            } else {
-                logger.error("Could not create value for \"empty\" data field: " + dataField);
-                assert false : "Could not create value for \"empty\" data field: " + dataField;
-            }
+            return EMPTY_VALUES[dataField.ordinal()];
         }
         return o;
     }
@@ -153,8 +433,10 @@ public final class Applicant {
      * @return true, if a value was imported and stored for a given data field
      */
     public boolean wasImported(final DataField dataField) {
-        Object o = applicantData.get(dataField);
-        return !(o == null);
+        if (store != null) {
+            return store.wasImported(row, dataField);
+        }
+        return (importedFields & 1L << dataField.ordinal()) != 0;
     }
 
     /**
@@ -163,34 +445,20 @@ public final class Applicant {
      * @return name of the PDF file for this applicant
      */
     public String getFileName() {
+        if (store != null) {
+            return store.getFileName(row);
+        }
         return filename;
     }
 
     /**
      * Checks all data for plausibility. It checks whether all necessary data is present and if all
-     * data has the expected format.
+     * data has the expected format. The result has been computed when the applicant was created.
      *
      * @return true, only if all data is OK
      */
     public boolean checkPlausibility() {
-        for (Object o : applicantData.values()) {
-            if (o == null) {
-                logger.warn("Null value in applicant " + toString());
-                return false;
-            }
-        }
-
-        for (Entry<DataField, Object> entry : applicantData.entrySet()) {
-            DataField dataField = entry.getKey();
-            Object value = entry.getValue();
-            if (dataField.isRequired() && (value == null || "".equals(value))) {
-                logger.warn("Required value " + dataField + " in applicant " + toString()
-                        + " is missing!");
-                return false;
-            }
-        }
-
-        return true;
+        return invalidFields == 0L;
     }
 
     /**
@@ -200,15 +468,13 @@ public final class Applicant {
      * @return set containing all invalid data fields
      */
     public EnumSet<DataField> getInvalidDataFields() {
-        EnumSet<DataField> invalidFields = EnumSet.noneOf(DataField.class);
-        for (Entry<DataField, Object> entry : applicantData.entrySet()) {
-            DataField dataField = entry.getKey();
-            Object value = entry.getValue();
-            if (dataField.isRequired() && (value == null || "".equals(value))) {
-                invalidFields.add(dataField);
-            }
+        EnumSet<DataField> invalidDataFields = EnumSet.noneOf(DataField.class);
+        long remainingFields = invalidFields;
+        while (remainingFields != 0L) {
+            invalidDataFields.add(DATA_FIELDS[Long.numberOfTrailingZeros(remainingFields)]);
+            remainingFields &= remainingFields - 1;
         }
-        return invalidFields;
+        return invalidDataFields;
     }
 
     /**
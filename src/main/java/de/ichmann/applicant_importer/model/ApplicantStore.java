@@ -0,0 +1,642 @@
+package de.ichmann.applicant_importer.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Stores the data of a large number of applicants column by column. Every data field is stored in
+ * its own column: strings are encoded by a dictionary per column, so that every distinct value is
+ * only stored once, integers and characters are stored as primitive arrays, booleans as bits and
+ * enumeration values by their ordinal. For every column a bit map tells which rows contain a
+ * value.
+ * <p>
+ * Applicants are appended to the store and can not be changed afterwards. For every row an
+ * Applicant object is returned that holds no data itself but reads its values from the columns of
+ * this store. These row views are cheap to create and behave like every other applicant. Single
+ * columns can be scanned by scanColumn() and the validation results of all rows by
+ * findInvalidApplicants() without creating row views at all.
+ * <p>
+ * This class is not thread-safe. It may be filled by several threads one at a time (e.g. while
+ * holding a common lock) and may only be read by other threads after it has been handed over
+ * safely (e.g. as result of a Future).
+ *
+ * @author Christian Wichmann
+ */
+public final class ApplicantStore implements Iterable<Applicant> {
+
+    private static final DataField[] DATA_FIELDS = DataField.values();
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Column[] columns = new Column[DATA_FIELDS.length];
+    private String[] fileNames = new String[INITIAL_CAPACITY];
+    private long[] invalidFieldMasks = new long[INITIAL_CAPACITY];
+    private final int[][] dateColumns = new int[Applicant.NUMBER_OF_DATE_SLOTS][INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Stores the values of a single data field for all rows.
+     *
+     * @author Christian Wichmann
+     */
+    private abstract static class Column {
+
+        private long[] present = new long[bitMapLength(INITIAL_CAPACITY)];
+
+        /**
+         * Stores a value for a row.
+         *
+         * @param row
+         *            index of the row
+         * @param value
+         *            value to be stored, which matches the type of this column
+         */
+        final void set(final int row, final Object value) {
+            present[row >>> 6] |= 1L << row;
+            store(row, value);
+        }
+
+        /**
+         * Checks whether a value has been stored for a row.
+         *
+         * @param row
+         *            index of the row
+         * @return true, if a value has been stored
+         */
+        final boolean isPresent(final int row) {
+            return (present[row >>> 6] & 1L << row) != 0;
+        }
+
+        /**
+         * Gets the value of a row.
+         *
+         * @param row
+         *            index of the row
+         * @return stored value or null, if no value has been stored
+         */
+        final Object get(final int row) {
+            if (!isPresent(row)) {
+                return null;
+            }
+            return load(row);
+        }
+
+        /**
+         * Enlarges all arrays of this column to a given number of rows.
+         *
+         * @param capacity
+         *            new number of rows
+         */
+        void grow(final int capacity) {
+            present = Arrays.copyOf(present, bitMapLength(capacity));
+        }
+
+        /**
+         * Stores a value in the array of this column.
+         *
+         * @param row
+         *            index of the row
+         * @param value
+         *            value to be stored, which matches the type of this column
+         */
+        abstract void store(int row, Object value);
+
+        /**
+         * Gets a stored value from the array of this column.
+         *
+         * @param row
+         *            index of the row
+         * @return stored value
+         */
+        abstract Object load(int row);
+    }
+
+    /**
+     * Stores strings by an int code. Every distinct value of the column is only stored once in a
+     * dictionary owned by this column.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class StringColumn extends Column {
+
+        private int[] codes = new int[INITIAL_CAPACITY];
+        private final Map<String, Integer> codesByValue = new HashMap<>();
+        private final List<String> valuesByCode = new ArrayList<>();
+
+        @Override
+        void grow(final int capacity) {
+            super.grow(capacity);
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        void store(final int row, final Object value) {
+            Integer code = codesByValue.get(value);
+            if (code == null) {
+                code = valuesByCode.size();
+                codesByValue.put((String) value, code);
+                valuesByCode.add((String) value);
+            }
+            codes[row] = code;
+        }
+
+        @Override
+        Object load(final int row) {
+            return valuesByCode.get(codes[row]);
+        }
+    }
+
+    /**
+     * Stores integers as primitive ints.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class IntColumn extends Column {
+
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        @Override
+        void grow(final int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void store(final int row, final Object value) {
+            values[row] = (Integer) value;
+        }
+
+        @Override
+        Object load(final int row) {
+            return Integer.valueOf(values[row]);
+        }
+    }
+
+    /**
+     * Stores characters as primitive chars.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class CharColumn extends Column {
+
+        private char[] values = new char[INITIAL_CAPACITY];
+
+        @Override
+        void grow(final int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void store(final int row, final Object value) {
+            values[row] = (Character) value;
+        }
+
+        @Override
+        Object load(final int row) {
+            return Character.valueOf(values[row]);
+        }
+    }
+
+    /**
+     * Stores booleans as single bits.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class BitColumn extends Column {
+
+        private long[] bits = new long[bitMapLength(INITIAL_CAPACITY)];
+
+        @Override
+        void grow(final int capacity) {
+            super.grow(capacity);
+            bits = Arrays.copyOf(bits, bitMapLength(capacity));
+        }
+
+        @Override
+        void store(final int row, final Object value) {
+            if ((Boolean) value) {
+                bits[row >>> 6] |= 1L << row;
+            }
+        }
+
+        @Override
+        Object load(final int row) {
+            return Boolean.valueOf((bits[row >>> 6] & 1L << row) != 0);
+        }
+    }
+
+    /**
+     * Stores values of an enumeration by their ordinal.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class EnumColumn extends Column {
+
+        private final Object[] constants;
+        private byte[] ordinals = new byte[INITIAL_CAPACITY];
+
+        /**
+         * Initializes a new column for a given enumeration.
+         *
+         * @param enumType
+         *            type of the enumeration
+         */
+        EnumColumn(final Class<?> enumType) {
+            assert enumType.getEnumConstants().length <= Byte.MAX_VALUE : "Too many constants!";
+            this.constants = enumType.getEnumConstants();
+        }
+
+        @Override
+        void grow(final int capacity) {
+            super.grow(capacity);
+            ordinals = Arrays.copyOf(ordinals, capacity);
+        }
+
+        @Override
+        void store(final int row, final Object value) {
+            ordinals[row] = (byte) ((Enum<?>) value).ordinal();
+        }
+
+        @Override
+        Object load(final int row) {
+            return constants[ordinals[row]];
+        }
+    }
+
+    /**
+     * Stores values of any other type as objects.
+     *
+     * @author Christian Wichmann
+     */
+    private static final class ObjectColumn extends Column {
+
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        @Override
+        void grow(final int capacity) {
+            super.grow(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void store(final int row, final Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        Object load(final int row) {
+            return values[row];
+        }
+    }
+
+    /**
+     * Iterates over row views of all applicants in this store.
+     *
+     * @author Christian Wichmann
+     */
+    private final class RowIterator implements Iterator<Applicant> {
+
+        private int row = 0;
+
+        @Override
+        public boolean hasNext() {
+            return row < size;
+        }
+
+        @Override
+        public Applicant next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return new Applicant(ApplicantStore.this, row++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Applicants can not be removed");
+        }
+    }
+
+    /**
+     * Initializes a new empty store.
+     */
+    public ApplicantStore() {
+        for (final DataField dataField : DATA_FIELDS) {
+            columns[dataField.ordinal()] = createColumn(dataField.getTypeOfDataField());
+        }
+    }
+
+    /**
+     * Creates a column for values of a given type.
+     *
+     * @param type
+     *            type of the values
+     * @return new column
+     */
+    private static Column createColumn(final Class<?> type) {
+        if (type == String.class) {
+            return new StringColumn();
+        } else if (type == Integer.class) {
+            return new IntColumn();
+        } else if (type == Character.class) {
+            return new CharColumn();
+        } else if (type == Boolean.class) {
+            return new BitColumn();
+        } else if (type.isEnum()) {
+            return new EnumColumn(type);
+        } else {
+            return new ObjectColumn();
+        }
+    }
+
+    /**
+     * Returns the number of longs needed for a bit map with a given number of rows.
+     *
+     * @param capacity
+     *            number of rows
+     * @return length of bit map
+     */
+    private static int bitMapLength(final int capacity) {
+        return (capacity + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    /**
+     * Appends the data of an applicant to this store. The returned applicant reads its data from
+     * this store and can be used instead of the given applicant.
+     *
+     * @param applicant
+     *            applicant to be stored
+     * @return applicant reading its data from this store
+     * @throws IllegalArgumentException
+     *             if parameter applicant is {@code null} or contains a value that does not match
+     *             the type of its data field
+     */
+    public Applicant add(final Applicant applicant) {
+        if (applicant == null) {
+            throw new IllegalArgumentException("Parameter applicant must not be null");
+        }
+        if (size == fileNames.length) {
+            final int capacity = fileNames.length * 2;
+            fileNames = Arrays.copyOf(fileNames, capacity);
+            invalidFieldMasks = Arrays.copyOf(invalidFieldMasks, capacity);
+            for (int i = 0; i < dateColumns.length; i++) {
+                dateColumns[i] = Arrays.copyOf(dateColumns[i], capacity);
+            }
+            for (final Column column : columns) {
+                column.grow(capacity);
+            }
+        }
+        final int row = size;
+        fileNames[row] = applicant.getFileName();
+        invalidFieldMasks[row] = applicant.getInvalidFieldMask();
+        for (final DataField dataField : DATA_FIELDS) {
+            if (dataField.isDate()) {
+                dateColumns[Applicant.getDateSlot(dataField)][row] = applicant
+                        .getDateValue(dataField);
+            }
+        }
+        final Object[] values = new Object[DATA_FIELDS.length];
+        for (final DataField dataField : DATA_FIELDS) {
+            final Object value = applicant.getImportedValue(dataField);
+            if (value != null && !dataField.getTypeOfDataField().isInstance(value)) {
+                throw new IllegalArgumentException("Value of type " + value.getClass().getName()
+                        + " does not match type of data field " + dataField);
+            }
+            values[dataField.ordinal()] = value;
+        }
+        for (final DataField dataField : DATA_FIELDS) {
+            if (values[dataField.ordinal()] != null) {
+                columns[dataField.ordinal()].set(row, values[dataField.ordinal()]);
+            }
+        }
+        size++;
+        return new Applicant(this, row);
+    }
+
+    /**
+     * Returns the number of applicants in this store.
+     *
+     * @return number of applicants
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an applicant that reads its data from a given row of this store.
+     *
+     * @param row
+     *            index of the row
+     * @return applicant for the row
+     * @throws IllegalArgumentException
+     *             if parameter row is out of range
+     */
+    public Applicant get(final int row) {
+        checkRow(row);
+        return new Applicant(this, row);
+    }
+
+    @Override
+    public Iterator<Applicant> iterator() {
+        return new RowIterator();
+    }
+
+    /**
+     * Gets the value of a data field for a given row. Like Applicant.getValue() this method never
+     * returns {@code null} but an "empty" value, if no value has been imported.
+     *
+     * @param row
+     *            index of the row
+     * @param dataField
+     *            data field to get value for
+     * @return value for data field
+     * @throws IllegalArgumentException
+     *             if parameter row is out of range or dataField is {@code null}
+     */
+    public Object getValue(final int row, final DataField dataField) {
+        checkRow(row);
+        if (dataField == null) {
+            throw new IllegalArgumentException("Parameter dataField must not be null");
+        }
+        final Object o = columns[dataField.ordinal()].get(row);
+        return o != null ? o : Applicant.getEmptyValue(dataField);
+    }
+
+    /**
+     * Checks whether a value has been imported for a data field in a given row.
+     *
+     * @param row
+     *            index of the row
+     * @param dataField
+     *            data field to check
+     * @return true, if a value has been imported
+     * @throws IllegalArgumentException
+     *             if parameter row is out of range
+     */
+    public boolean wasImported(final int row, final DataField dataField) {
+        checkRow(row);
+        return columns[dataField.ordinal()].isPresent(row);
+    }
+
+    /**
+     * Gets the name of the PDF file from which the data of a given row has been read.
+     *
+     * @param row
+     *            index of the row
+     * @return name of the PDF file
+     * @throws IllegalArgumentException
+     *             if parameter row is out of range
+     */
+    public String getFileName(final int row) {
+        checkRow(row);
+        return fileNames[row];
+    }
+
+    /**
+     * Returns all rows in which a data field has been found invalid by the validation, e.g.
+     * because a required value is empty or a date could not be parsed. Only the validation
+     * results stored for every row are read.
+     *
+     * @param dataField
+     *            data field to be checked
+     * @return indices of all rows with an invalid value in ascending order
+     */
+    public int[] findInvalidValues(final DataField dataField) {
+        final long fieldMask = 1L << dataField.ordinal();
+        int[] rows = new int[0];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if ((invalidFieldMasks[row] & fieldMask) != 0) {
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, Math.max(8, count * 2));
+                }
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Returns all rows whose applicant is not plausible. Only the validation results stored for
+     * every row are read.
+     *
+     * @return set of the indices of all rows with at least one invalid data field
+     */
+    public BitSet findInvalidApplicants() {
+        final BitSet rows = new BitSet(size);
+        for (int row = 0; row < size; row++) {
+            if (invalidFieldMasks[row] != 0L) {
+                rows.set(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Returns the number of rows whose applicant is not plausible.
+     *
+     * @return number of rows with at least one invalid data field
+     */
+    public int countInvalidApplicants() {
+        return findInvalidApplicants().cardinality();
+    }
+
+    /**
+     * Scans a single column of this store without creating row views. The scanner is called for
+     * every row in ascending order. Like getValue() it is passed an "empty" value for rows in
+     * which no value has been imported. Identical strings of a column are decoded from the
+     * dictionary of the column, so they are passed as the same instance.
+     *
+     * @param dataField
+     *            data field whose column is scanned
+     * @param scanner
+     *            scanner receiving the value of every row
+     * @throws IllegalArgumentException
+     *             if parameter dataField or scanner is {@code null}
+     */
+    public void scanColumn(final DataField dataField, final ColumnScanner scanner) {
+        if (dataField == null || scanner == null) {
+            throw new IllegalArgumentException("Parameters dataField and scanner must not be null");
+        }
+        final Column column = columns[dataField.ordinal()];
+        final Object emptyValue = Applicant.getEmptyValue(dataField);
+        for (int row = 0; row < size; row++) {
+            scanner.scan(row, column.isPresent(row) ? column.load(row) : emptyValue);
+        }
+    }
+
+    /**
+     * Gets the parsed date of a data field containing dates for a given row.
+     *
+     * @param row
+     *            index of the row
+     * @param dataField
+     *            data field containing dates (e.g. BIRTHDAY)
+     * @return date packed as yyyymmdd or DateHelper.NO_DATE, if no valid date has been imported
+     * @throws IllegalArgumentException
+     *             if parameter row is out of range or dataField contains no dates
+     */
+    public int getDateValue(final int row, final DataField dataField) {
+        checkRow(row);
+        return getDateValue(row, Applicant.getDateSlot(dataField));
+    }
+
+    /**
+     * Gets the parsed date of a given date slot and row.
+     *
+     * @param row
+     *            index of the row
+     * @param dateSlot
+     *            index of the date slot
+     * @return date packed as yyyymmdd or DateHelper.NO_DATE, if no valid date has been imported
+     */
+    int getDateValue(final int row, final int dateSlot) {
+        return dateColumns[dateSlot][row];
+    }
+
+    /**
+     * Returns the invalid data fields of a given row as bit mask. The applicant of every row is
+     * validated once when it is added to this store.
+     *
+     * @param row
+     *            index of the row
+     * @return bit mask of all invalid data fields by their ordinal
+     */
+    long getInvalidFieldMask(final int row) {
+        return invalidFieldMasks[row];
+    }
+
+    /**
+     * Gets the value that has been imported for a data field in a given row.
+     *
+     * @param row
+     *            index of the row
+     * @param dataField
+     *            data field to get value for
+     * @return imported value or null, if no value has been imported
+     */
+    Object getImportedValue(final int row, final DataField dataField) {
+        return columns[dataField.ordinal()].get(row);
+    }
+
+    /**
+     * Checks whether a row exists in this store.
+     *
+     * @param row
+     *            index of the row
+     * @throws IllegalArgumentException
+     *             if parameter row is out of range
+     */
+    private void checkRow(final int row) {
+        if (row < 0 || row >= size) {
+            throw new IllegalArgumentException("Parameter row is out of range: " + row);
+        }
+    }
+}
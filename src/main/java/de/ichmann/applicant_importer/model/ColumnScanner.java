@@ -0,0 +1,21 @@
+package de.ichmann.applicant_importer.model;
+
+/**
+ * Receives the values of a single column of an ApplicantStore. The column is scanned row by row
+ * without creating row views for the applicants.
+ *
+ * @author Christian Wichmann
+ */
+public interface ColumnScanner {
+
+    /**
+     * Is called for every row of the scanned column in ascending order.
+     *
+     * @param row
+     *            index of the row
+     * @param value
+     *            value of the data field in this row or an "empty" value, if no value has been
+     *            imported
+     */
+    void scan(int row, Object value);
+}
@@ -45,17 +45,18 @@ public enum DataField {
      * Ausbildungsbeginn. Stored as String object containing a valid date in the format
      * "dd.mm.yyyy".
      */
-    START_OF_TRAINING(String.class, "Ausbildungsbeginn", true),
+    START_OF_TRAINING(String.class, "Ausbildungsbeginn", true, true),
 
     /**
      * Duration of vocational training (Ausbildungsdauer) in months.
      */
-    DURATION_OF_TRAINING(Double.class, "Ausbildungsdauer", true),
+    DURATION_OF_TRAINING(Integer.class, "Ausbildungsdauer", true),
 
     /**
-     *
+     * Birthday of the applicant. Stored as String object containing a valid date in the format
+     * "dd.mm.yyyy".
      */
-    BIRTHDAY(String.class, "Geburtstag", true),
+    BIRTHDAY(String.class, "Geburtstag", true, true),
 
     /**
      *
@@ -223,6 +224,7 @@ public enum DataField {
     private final Class<?> dataFieldType;
     private boolean isRequired;
     private String description;
+    private final boolean isDate;
 
     /**
      * Instantiates a new enumeration value of a data field.
@@ -235,9 +237,27 @@ public enum DataField {
      *            whether this data field is required
      */
     private DataField(final Class<?> classType, final String description, final boolean isRequired) {
+        this(classType, description, isRequired, false);
+    }
+
+    /**
+     * Instantiates a new enumeration value of a data field.
+     *
+     * @param classType
+     *            type of the value that this data field contains
+     * @param description
+     *            descriptive text of the data field (in German)
+     * @param isRequired
+     *            whether this data field is required
+     * @param isDate
+     *            whether the values of this data field are dates
+     */
+    private DataField(final Class<?> classType, final String description,
+            final boolean isRequired, final boolean isDate) {
         this.dataFieldType = classType;
         this.description = description;
         this.isRequired = isRequired;
+        this.isDate = isDate;
     }
 
     /**
@@ -264,6 +284,17 @@ public enum DataField {
         return isRequired;
     }
 
+    /**
+     * Returns whether the values of this data field are dates in the format "dd.mm.yyyy". Dates
+     * are parsed once when an Applicant is created and can be read by its getDateValue() method,
+     * while the original text is kept as value of the data field.
+     *
+     * @return true, if data field contains dates
+     */
+    public boolean isDate() {
+        return isDate;
+    }
+
     /**
      * Gets the value from given Applicant for this Enum element. The returned element is cast to
      * the type that the compiler decides by type inference from the left-hand value at the calling
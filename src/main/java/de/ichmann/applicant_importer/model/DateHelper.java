@@ -1,15 +1,15 @@
 package de.ichmann.applicant_importer.model;
 
-import java.text.DateFormat;
-import java.text.ParseException;
 import java.util.Calendar;
-import java.util.Date;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Contains some helper methods for handling date calculations and checks.
+ * <p>
+ * Dates are represented as int values packed like yyyymmdd (e.g. 20150801 for the 1st of August
+ * 2015), so that they can be compared directly and stored without any objects. The dates of an
+ * applicant are parsed once when it is created, so all calculations of this class are simple
+ * arithmetic. Dates are always parsed and formatted as "dd.mm.yyyy" regardless of the default
+ * locale.
  *
  * @author Christian Wichmann
  */
@@ -17,7 +17,12 @@ public final class DateHelper {
 
     private static final int FULL_AGE = 18;
 
-    private static final Logger logger = LoggerFactory.getLogger(DateHelper.class);
+    private static final int MONTHS_IN_YEAR = 12;
+
+    /**
+     * Value of a date that has not been given or could not be parsed.
+     */
+    public static final int NO_DATE = 0;
 
     private static DateHelper sInstance = null;
 
@@ -41,39 +46,20 @@ public final class DateHelper {
     }
 
     /**
-     * Returns whether an applicant is older than 18 years. If the given date string can not be
-     * correctly parsed a false value is returned to the called.
+     * Returns whether an applicant is older than 18 years. If the birthday of the applicant could
+     * not be parsed a false value is returned to the called.
      *
      * @param applicant
      *            applicant which age should be checked
      * @return whether an applicant is older than 18 years
      */
     public boolean isOlderThan18(final Applicant applicant) {
-        String birthdayString = DataField.BIRTHDAY.getFrom(applicant);
-        if (birthdayString == null) {
+        final int birthday = applicant.getDateValue(DataField.BIRTHDAY);
+        if (birthday == NO_DATE) {
             return false;
         }
-        Calendar cal = Calendar.getInstance();
-        DateFormat dateFormat = DateFormat.getDateInstance();
-        boolean isOlderThan18 = false;
-        try {
-            Date birthday, birthdayPlus18Years, today;
-            birthday = dateFormat.parse(birthdayString);
-            // add 18 years to original birthday
-            cal.setTime(birthday);
-            cal.add(Calendar.YEAR, FULL_AGE);
-            birthdayPlus18Years = cal.getTime();
-            today = new Date();
-            // check whether the birthday plus 18 years has happened before today
-            if (birthdayPlus18Years.before(today)) {
-                isOlderThan18 = true;
-            } else {
-                isOlderThan18 = false;
-            }
-        } catch (ParseException e) {
-            logger.warn("Could not parse birthday from applicant " + applicant.toString() + ".");
-        }
-        return isOlderThan18;
+        // check whether the birthday plus 18 years has happened before today
+        return addMonths(birthday, FULL_AGE * MONTHS_IN_YEAR) <= today();
     }
 
     /**
@@ -85,29 +71,193 @@ public final class DateHelper {
      * @return end date of the training
      */
     public String getEndDateOfTraining(final Applicant applicant) {
-        // TODO check parameter for null etc.
-        String startDateString = DataField.START_OF_TRAINING.getFrom(applicant);
-        // return empty string when no start date is given
-        if (startDateString == null || "".equals(startDateString)) {
+        final int startDate = applicant.getDateValue(DataField.START_OF_TRAINING);
+        // return empty string when no valid start date is given
+        if (startDate == NO_DATE) {
+            return "";
+        }
+        final Integer months = DataField.DURATION_OF_TRAINING.getFrom(applicant);
+        if (months == null || months == 0) {
             return "";
         }
-        String endDateString = "";
-        Calendar cal = Calendar.getInstance();
-        DateFormat dateFormat = DateFormat.getDateInstance();
-        Date startDate;
-        try {
-            startDate = dateFormat.parse(startDateString);
-            cal.setTime(startDate);
-            Integer months = DataField.DURATION_OF_TRAINING.getFrom(applicant);
-            if (months == null || months == 0) {
-                return "";
+        return formatDate(minusOneDay(addMonths(startDate, months)));
+    }
+
+    /**
+     * Parses a date in the format "d.m.yyyy". Day and month may have one or two digits.
+     *
+     * @param text
+     *            text containing the date
+     * @return date packed as yyyymmdd or NO_DATE, if the text is no valid date
+     */
+    static int parseDate(final String text) {
+        if (text == null) {
+            return NO_DATE;
+        }
+        final String[] parts = text.trim().split("\\.", -1);
+        if (parts.length != 3) {
+            return NO_DATE;
+        }
+        final int day = parseNumber(parts[0], 2);
+        final int month = parseNumber(parts[1], 2);
+        final int year = parseNumber(parts[2], 4);
+        if (year <= 0 || month < 1 || month > MONTHS_IN_YEAR || day < 1
+                || day > getLengthOfMonth(year, month)) {
+            return NO_DATE;
+        }
+        return pack(year, month, day);
+    }
+
+    /**
+     * Parses a positive number with a limited number of digits.
+     *
+     * @param text
+     *            text containing only digits
+     * @param maximumDigits
+     *            maximum number of digits
+     * @return parsed number or -1, if the text is no valid number
+     */
+    private static int parseNumber(final String text, final int maximumDigits) {
+        if (text.isEmpty() || text.length() > maximumDigits) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
             }
-            cal.add(Calendar.MONTH, months);
-            cal.add(Calendar.DAY_OF_MONTH, -1);
-            endDateString = dateFormat.format(cal.getTime());
-        } catch (ParseException e) {
-            logger.warn("Could not parse start date from applicant " + applicant.toString() + ".");
+            number = number * 10 + c - '0';
+        }
+        return number;
+    }
+
+    /**
+     * Formats a date as "dd.mm.yyyy".
+     *
+     * @param date
+     *            date packed as yyyymmdd
+     * @return formatted date
+     */
+    static String formatDate(final int date) {
+        return String.format("%02d.%02d.%04d", getDay(date), getMonth(date), getYear(date));
+    }
+
+    /**
+     * Adds a number of months to a date. If the day does not exist in the resulting month, the
+     * last day of that month is used.
+     *
+     * @param date
+     *            date packed as yyyymmdd
+     * @param months
+     *            number of months to be added
+     * @return resulting date packed as yyyymmdd
+     */
+    static int addMonths(final int date, final int months) {
+        final int totalMonths = getYear(date) * MONTHS_IN_YEAR + getMonth(date) - 1 + months;
+        final int year = totalMonths / MONTHS_IN_YEAR;
+        final int month = totalMonths % MONTHS_IN_YEAR + 1;
+        return pack(year, month, Math.min(getDay(date), getLengthOfMonth(year, month)));
+    }
+
+    /**
+     * Subtracts a single day from a date.
+     *
+     * @param date
+     *            date packed as yyyymmdd
+     * @return previous day packed as yyyymmdd
+     */
+    static int minusOneDay(final int date) {
+        if (getDay(date) > 1) {
+            return date - 1;
+        }
+        if (getMonth(date) > 1) {
+            final int month = getMonth(date) - 1;
+            return pack(getYear(date), month, getLengthOfMonth(getYear(date), month));
+        }
+        return pack(getYear(date) - 1, MONTHS_IN_YEAR, 31);
+    }
+
+    /**
+     * Returns the current date.
+     *
+     * @return today packed as yyyymmdd
+     */
+    static int today() {
+        final Calendar calendar = Calendar.getInstance();
+        return pack(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1,
+                calendar.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /**
+     * Returns the number of days of a month.
+     *
+     * @param year
+     *            year of the month
+     * @param month
+     *            month from 1 to 12
+     * @return number of days
+     */
+    private static int getLengthOfMonth(final int year, final int month) {
+        switch (month) {
+        case 2:
+            final boolean isLeapYear = year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+            return isLeapYear ? 29 : 28;
+        case 4:
+        case 6:
+        case 9:
+        case 11:
+            return 30;
+        default:
+            return 31;
         }
-        return endDateString;
+    }
+
+    /**
+     * Packs a date into a single int value.
+     *
+     * @param year
+     *            year of the date
+     * @param month
+     *            month from 1 to 12
+     * @param day
+     *            day of month
+     * @return date packed as yyyymmdd
+     */
+    private static int pack(final int year, final int month, final int day) {
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * Returns the year of a date.
+     *
+     * @param date
+     *            date packed as yyyymmdd
+     * @return year
+     */
+    private static int getYear(final int date) {
+        return date / 10000;
+    }
+
+    /**
+     * Returns the month of a date.
+     *
+     * @param date
+     *            date packed as yyyymmdd
+     * @return month from 1 to 12
+     */
+    private static int getMonth(final int date) {
+        return date / 100 % 100;
+    }
+
+    /**
+     * Returns the day of a date.
+     *
+     * @param date
+     *            date packed as yyyymmdd
+     * @return day of month
+     */
+    private static int getDay(final int date) {
+        return date % 100;
     }
 }
@@ -13,8 +13,14 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.prefs.Preferences;
 
 import javax.swing.AbstractAction;
@@ -35,11 +41,13 @@ import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.KeyStroke;
 import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.UIManager.LookAndFeelInfo;
 import javax.swing.UnsupportedLookAndFeelException;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.TableCellRenderer;
 
 import org.slf4j.Logger;
@@ -47,8 +55,11 @@ import org.slf4j.LoggerFactory;
 
 import de.ichmann.applicant_importer.exporter.BbsPlanungExporter;
 import de.ichmann.applicant_importer.exporter.BbsPlanungExporter.ExportError;
+import de.ichmann.applicant_importer.importer.ApplicantListener;
+import de.ichmann.applicant_importer.importer.ImportProgressListener;
+import de.ichmann.applicant_importer.importer.InvalidFileListener;
+import de.ichmann.applicant_importer.importer.PdfFolderWatcher;
 import de.ichmann.applicant_importer.importer.PdfFormImporter;
-import de.ichmann.applicant_importer.importer.PdfFormImporter.PdfFormImporterEvent;
 import de.ichmann.applicant_importer.model.Applicant;
 
 /**
@@ -67,19 +78,38 @@ public final class ApplicantImporterMain extends JFrame {
 
     private static final Color ALARM_COLOR = new Color(255, 155, 155);
 
+    // delivers the progress of imports on the Event Dispatch Thread
+    private static final Executor EVENT_DISPATCH_EXECUTOR = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            SwingUtilities.invokeLater(command);
+        }
+    };
+
+    // directory in which the import cache is stored for all imported directories
+    private static final Path CACHE_DIRECTORY = Paths.get(System.getProperty("user.home"),
+            ".BewerberImport", "cache");
+
     // create an instance of Preferences to hold last opened directory and last saved file path
     private final Preferences prefs = Preferences.userNodeForPackage(ApplicantImporterMain.class);
 
     private JButton importDirectoryButton = null;
     private JButton exportCsvButton = null;
     private JButton clearTableButton = null;
+    private JButton cancelImportButton = null;
     private JTable applicantInformationTable = null;
     private JCheckBoxMenuItem exportInvalidApplicantsMenuItem = null;
     private JCheckBoxMenuItem highlightInvalidApplicantsMenuItem = null;
+    private JCheckBoxMenuItem watchDirectoryMenuItem = null;
+    private JCheckBoxMenuItem workerProcessesMenuItem = null;
     private ProgressStatusBar statusBar = null;
 
     private List<Applicant> listOfApplicants = new ArrayList<>();
 
+    private PdfFolderWatcher folderWatcher = null;
+
+    private PdfFormImporter currentImporter = null;
+
     /**
      * Instantiate a instance of the main window.
      */
@@ -264,6 +294,19 @@ public final class ApplicantImporterMain extends JFrame {
         c.fill = GridBagConstraints.NONE;
         add(clearTableButton, c);
 
+        // create and add button to cancel a running import
+        cancelImportButton = new JButton("Import abbrechen");
+        cancelImportButton.setEnabled(false);
+        c.gridx = 0;
+        c.gridy = 2;
+        c.gridheight = 1;
+        c.gridwidth = 1;
+        c.weightx = 0;
+        c.weighty = 0;
+        c.anchor = GridBagConstraints.SOUTHWEST;
+        c.fill = GridBagConstraints.NONE;
+        add(cancelImportButton, c);
+
         statusBar = new ProgressStatusBar();
         c.gridx = 0;
         c.gridy = 3;
@@ -309,6 +352,25 @@ public final class ApplicantImporterMain extends JFrame {
             }
         });
         fileMenu.add(highlightInvalidApplicantsMenuItem);
+        watchDirectoryMenuItem = new JCheckBoxMenuItem("Verzeichnis überwachen");
+        watchDirectoryMenuItem.setMnemonic(KeyEvent.VK_V);
+        watchDirectoryMenuItem.setSelected(false);
+        watchDirectoryMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(final ActionEvent e) {
+                if (watchDirectoryMenuItem.isSelected()) {
+                    startWatchingDirectory();
+                } else {
+                    stopWatchingDirectory();
+                }
+            }
+        });
+        fileMenu.add(watchDirectoryMenuItem);
+        workerProcessesMenuItem = new JCheckBoxMenuItem(
+                "PDF-Dateien in eigenen Prozessen einlesen");
+        workerProcessesMenuItem.setMnemonic(KeyEvent.VK_P);
+        workerProcessesMenuItem.setSelected(false);
+        fileMenu.add(workerProcessesMenuItem);
         fileMenu.addSeparator();
         quitMenuItem = new JMenuItem("Beenden", KeyEvent.VK_B);
         quitMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Q, ActionEvent.CTRL_MASK));
@@ -409,6 +471,16 @@ public final class ApplicantImporterMain extends JFrame {
             }
         });
 
+        cancelImportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(final ActionEvent e) {
+                if (currentImporter != null) {
+                    cancelImportButton.setEnabled(false);
+                    currentImporter.getImportHandle().cancel(true);
+                }
+            }
+        });
+
         applicantInformationTable.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(final MouseEvent me) {
@@ -502,14 +574,15 @@ public final class ApplicantImporterMain extends JFrame {
     }
 
     /**
-     * Shows a file selection dialog to chose a directory. Imports all PDF file in that given
-     * directory and shows a message box informing the user about it.
+     * Shows a file selection dialog to chose a directory or ZIP archive. Imports all PDF file in
+     * that given directory or archive and shows a message box informing the user about it.
      */
     private void doImportFromDirectory() {
         final JFileChooser chooser = new JFileChooser();
-        chooser.setDialogTitle("Verzeichnis mit PDF-Dateien auswählen...");
-        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle("Verzeichnis mit PDF-Dateien oder ZIP-Archiv auswählen...");
+        chooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
         chooser.setAcceptAllFileFilterUsed(false);
+        chooser.setFileFilter(new FileNameExtensionFilter("ZIP-Archive", "zip"));
         // get last opened directory from Preferences store and set FileChooser to it
         final String lastOpenedDirectory = prefs.get(LAST_OPENED_DIRECTORY_IMPORT, "");
         chooser.setSelectedFile(new File(lastOpenedDirectory));
@@ -526,13 +599,21 @@ public final class ApplicantImporterMain extends JFrame {
      *
      * @param listOfInvalidPdfFiles
      *            list of all PDF files that could not be imported
+     * @param reasonsForInvalidPdfFiles
+     *            reasons why files could not be imported by their file names
      * @param selectedImportDirectory
      *            directory from which files were imported
+     * @param cancelled
+     *            whether the import has been cancelled by the user
      */
     private void showImportFinishedDialog(final List<String> listOfInvalidPdfFiles,
-            final String selectedImportDirectory) {
+            final Map<String, String> reasonsForInvalidPdfFiles,
+            final String selectedImportDirectory, final boolean cancelled) {
         final StringBuilder builder = new StringBuilder();
         builder.append("<html>");
+        if (cancelled) {
+            builder.append("Der Import wurde abgebrochen.<br><br>");
+        }
         builder.append("Aus dem Verzeichnis ");
         builder.append("<strong>" + selectedImportDirectory + "</strong>");
         builder.append(" wurden " + listOfApplicants.size());
@@ -541,12 +622,18 @@ public final class ApplicantImporterMain extends JFrame {
         if (listOfInvalidPdfFiles.size() != 0) {
             builder.append("Folgende Dateien konnten nicht eingelesen werden:<br><br>");
             for (final String s : listOfInvalidPdfFiles) {
-                builder.append(s + "<br>");
+                builder.append(s);
+                // add reason for files that have been rejected or put into quarantine
+                final String reason = reasonsForInvalidPdfFiles.get(s);
+                if (reason != null) {
+                    builder.append(" (" + reason + ")");
+                }
+                builder.append("<br>");
             }
         }
         builder.append("</html>");
-        JOptionPane.showMessageDialog(this, builder.toString(), "Import erfolgreich",
-                JOptionPane.INFORMATION_MESSAGE);
+        JOptionPane.showMessageDialog(this, builder.toString(), cancelled ? "Import abgebrochen"
+                : "Import erfolgreich", JOptionPane.INFORMATION_MESSAGE);
     }
 
     /**
@@ -557,44 +644,137 @@ public final class ApplicantImporterMain extends JFrame {
      *            directory to be imported
      */
     private void importFromDirectory(final File selectedFile) {
-        new PdfFormImporter(selectedFile.toPath(), new ActionListener() {
-            @Override
-            public void actionPerformed(final ActionEvent e) {
-                final PdfFormImporterEvent event = (PdfFormImporterEvent) e;
-                final int numberOfPdfFiles = event.getNumberOfPdfFiles();
-                final int currentPdfFiles = event.getCurrentPdfFile();
-                if (numberOfPdfFiles == -1 && currentPdfFiles == -1) {
-                    statusBar.clearProgressBar();
-                    final StringBuilder informationText = new StringBuilder();
-                    informationText.append("<html>");
-                    informationText.append(
-                            "Während des Imports der PDF-Dateien ist ein Fehler aufgetreten.");
-                    informationText.append("<br>");
-                    informationText.append("Bitte den Entwickler des Programms informieren.");
-                    informationText.append("</html>");
-                    JOptionPane.showMessageDialog(ApplicantImporterMain.this,
-                            informationText.toString(), "Fehler während Import",
-                            JOptionPane.INFORMATION_MESSAGE);
-                } else {
-                    statusBar.prepareProgressBar(0, numberOfPdfFiles);
-                    statusBar.fillProgressBar(currentPdfFiles);
-                    if (numberOfPdfFiles == currentPdfFiles) {
+        cancelImportButton.setEnabled(true);
+        final int workerProcesses = workerProcessesMenuItem.isSelected() ? Runtime.getRuntime()
+                .availableProcessors() : 0;
+        currentImporter = new PdfFormImporter.ImporterBuilder(selectedFile.toPath())
+                .setCacheDirectory(CACHE_DIRECTORY).setProgressExecutor(EVENT_DISPATCH_EXECUTOR)
+                .setWorkerProcesses(workerProcesses)
+                .setProgressListener(new ImportProgressListener() {
+                    @Override
+                    public void progressChanged(final int numberOfFiles,
+                            final int numberOfFinishedFiles) {
+                        statusBar.prepareProgressBar(0, numberOfFiles);
+                        statusBar.fillProgressBar(numberOfFinishedFiles);
+                    }
+
+                    @Override
+                    public void importFinished(final PdfFormImporter importer) {
                         // show dialog and fill table only when all files have been imported
-                        final PdfFormImporter importer = (PdfFormImporter) e.getSource();
+                        cancelImportButton.setEnabled(false);
+                        statusBar.prepareProgressBar(0, importer.getNumberOfPdfFiles());
+                        statusBar.fillProgressBar(importer.getCurrentPdfFiles());
                         listOfApplicants = importer.getListOfStudents();
-                        applicantInformationTable
-                                .setModel(new ApplicantInformationTableModel(listOfApplicants));
+                        applicantInformationTable.setModel(new ApplicantInformationTableModel(
+                                listOfApplicants));
                         final List<String> listOfInvalidPdfFiles = importer
                                 .getListOfInvalidPdfFiles();
                         final String selectedImportDirectory = selectedFile.getName();
-                        showImportFinishedDialog(listOfInvalidPdfFiles, selectedImportDirectory);
-                        // explicitly dispose the importer (shuts down the executer service) to exit
-                        // VM correctly
+                        showImportFinishedDialog(listOfInvalidPdfFiles,
+                                importer.getReasonsForInvalidPdfFiles(), selectedImportDirectory,
+                                importer.getImportHandle().isCancelled());
+                        // explicitly dispose the importer (shuts down the executer service) to
+                        // exit VM correctly
+                        importer.disposeImporter();
+                    }
+
+                    @Override
+                    public void importFailed(final PdfFormImporter importer,
+                            final Exception cause) {
+                        cancelImportButton.setEnabled(false);
+                        statusBar.clearProgressBar();
+                        final StringBuilder informationText = new StringBuilder();
+                        informationText.append("<html>");
+                        informationText.append(
+                                "Während des Imports der PDF-Dateien ist ein Fehler aufgetreten.");
+                        informationText.append("<br>");
+                        informationText.append("Bitte den Entwickler des Programms informieren.");
+                        informationText.append("</html>");
+                        JOptionPane.showMessageDialog(ApplicantImporterMain.this,
+                                informationText.toString(), "Fehler während Import",
+                                JOptionPane.INFORMATION_MESSAGE);
                         importer.disposeImporter();
                     }
+                }).build();
+    }
+
+    /**
+     * Starts watching the last imported directory for new or modified PDF files. All applicants
+     * imported from these files are added to the table or replace the applicant from the same file.
+     * Files that could not be imported are shown in the status bar together with the reason.
+     */
+    private void startWatchingDirectory() {
+        final Path directory = Paths.get(prefs.get(LAST_OPENED_DIRECTORY_IMPORT, ""));
+        if (!Files.isDirectory(directory)) {
+            JOptionPane.showMessageDialog(this,
+                    "Bitte zuerst ein Verzeichnis mit PDF-Dateien importieren.",
+                    "Kein Verzeichnis ausgewählt", JOptionPane.INFORMATION_MESSAGE);
+            watchDirectoryMenuItem.setSelected(false);
+            return;
+        }
+        try {
+            folderWatcher = new PdfFolderWatcher(directory, new ApplicantListener() {
+                @Override
+                public void applicantImported(final Applicant applicant) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (!(applicantInformationTable
+                                    .getModel() instanceof ApplicantInformationTableModel)) {
+                                // table shows no applicants until first import
+                                applicantInformationTable.setModel(
+                                        new ApplicantInformationTableModel(listOfApplicants));
+                            }
+                            final ApplicantInformationTableModel model = (ApplicantInformationTableModel) (applicantInformationTable
+                                    .getModel());
+                            model.addOrReplaceApplicant(applicant);
+                        }
+                    });
                 }
-            }
-        });
+
+                @Override
+                public void importFinished() {
+                }
+            }, new InvalidFileListener() {
+                @Override
+                public void fileRejected(final String fileName, final String reason) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            statusBar.setString("Datei " + fileName
+                                    + " konnte nicht eingelesen werden"
+                                    + (reason != null ? " (" + reason + ")" : ""));
+                        }
+                    });
+                }
+            }, CACHE_DIRECTORY, PdfFolderWatcher.DEFAULT_SETTLE_TIME);
+            statusBar.setString("Verzeichnis " + directory.getFileName() + " wird überwacht...");
+        } catch (final IOException e) {
+            logger.error("Could not watch directory: " + e.getMessage());
+            JOptionPane.showMessageDialog(this, "Das Verzeichnis konnte nicht überwacht werden.",
+                    "Fehler", JOptionPane.ERROR_MESSAGE);
+            watchDirectoryMenuItem.setSelected(false);
+        }
+    }
+
+    /**
+     * Stops watching the directory for new PDF files, if it is watched.
+     */
+    private void stopWatchingDirectory() {
+        if (folderWatcher != null) {
+            folderWatcher.close();
+            folderWatcher = null;
+            statusBar.clearProgressBar();
+        }
+    }
+
+    /**
+     * Stops watching the directory before disposing the main window, so that the VM can exit.
+     */
+    @Override
+    public void dispose() {
+        stopWatchingDirectory();
+        super.dispose();
     }
 
     /**
@@ -642,7 +822,12 @@ public final class ApplicantImporterMain extends JFrame {
                     chooser.getSelectedFile().toPath(), listOfApplicants,
                     exportInvalidApplicantsMenuItem.isSelected());
             final List<ExportError> listOfErrors = exporter.getListOfExportErrors();
-            if (listOfErrors.isEmpty()) {
+            if (!exporter.isFileWritten()) {
+                final String s = String.format("<html>Die Datei <strong>%s</strong> konnte "
+                        + "nicht geschrieben werden.</html>", chooser.getSelectedFile().getName());
+                JOptionPane.showMessageDialog(this, s, "Fehler beim Export aufgetreten",
+                        JOptionPane.ERROR_MESSAGE);
+            } else if (listOfErrors.isEmpty()) {
                 // show all-clear message when no errors occured
                 final String s = String.format(
                         "<html>%d Bewerber in die Datei <strong>%s</strong> exportiert.</html>",
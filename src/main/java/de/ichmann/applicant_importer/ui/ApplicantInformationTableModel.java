@@ -22,6 +22,11 @@ public final class ApplicantInformationTableModel extends AbstractTableModel {
 
     private Map<Integer, DataField> columns;
 
+    /**
+     * Contains the row index of every applicant by the name of the file it was imported from.
+     */
+    private final Map<String, Integer> rowsByFileName = new HashMap<>();
+
     /**
      * Initializes an instance of the model for a applicants table.
      * 
@@ -40,6 +45,20 @@ public final class ApplicantInformationTableModel extends AbstractTableModel {
         columns.put(count++, DataField.SPECIALIZATION);
         columns.put(count++, DataField.COMPANY_NAME);
         columns.put(count++, DataField.RETRAINING);
+        indexRows();
+    }
+
+    /**
+     * Rebuilds the index of row indices by file name from the list of applicants.
+     */
+    private void indexRows() {
+        rowsByFileName.clear();
+        for (int i = 0; i < listOfApplicants.size(); i++) {
+            final String fileName = listOfApplicants.get(i).getFileName();
+            if (fileName != null) {
+                rowsByFileName.put(fileName, i);
+            }
+        }
     }
 
     /**
@@ -95,6 +114,33 @@ public final class ApplicantInformationTableModel extends AbstractTableModel {
      */
     public void removeRow(final int row) {
         listOfApplicants.remove(row);
+        // all following rows have been moved up by one
+        indexRows();
         fireTableDataChanged();
     }
+
+    /**
+     * Adds an applicant to the applicants data table. If the table already contains an applicant
+     * imported from the same file, it is replaced by the given applicant and a rows updated event
+     * is fired for its row. Otherwise the applicant is appended and a rows inserted event is fired
+     * for the new row. The row of the same file is found by an index of file names.
+     *
+     * @param applicant
+     *            applicant to be added to the table
+     */
+    public void addOrReplaceApplicant(final Applicant applicant) {
+        final String fileName = applicant.getFileName();
+        final Integer row = fileName != null ? rowsByFileName.get(fileName) : null;
+        if (row != null) {
+            listOfApplicants.set(row, applicant);
+            fireTableRowsUpdated(row, row);
+            return;
+        }
+        listOfApplicants.add(applicant);
+        final int newRow = listOfApplicants.size() - 1;
+        if (fileName != null) {
+            rowsByFileName.put(fileName, newRow);
+        }
+        fireTableRowsInserted(newRow, newRow);
+    }
 }
@@ -0,0 +1,118 @@
+package de.ichmann.applicant_importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RunApplicantImporterCLITest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    private int run(final String... args) {
+        return RunApplicantImporterCLI.run(args, new PrintStream(out), new PrintStream(err));
+    }
+
+    @Test
+    public final void testImportAndExport() throws Exception {
+        final String directory = Paths.get(ClassLoader.getSystemResource("data/").toURI())
+                .toString();
+        final File outputFile = new File(folder.getRoot(), "export.txt");
+        final File summaryFile = new File(folder.getRoot(), "summary.json");
+        assertEquals(RunApplicantImporterCLI.EXIT_SUCCESS, run("--invalid", "-t", "2", "-o",
+                outputFile.getPath(), "--summary", summaryFile.getPath(), directory));
+
+        final File testDataFile = new File(ClassLoader.getSystemResource(
+                "export_of_test_data.txt").toURI());
+        assertTrue(FileUtils.contentEquals(outputFile, testDataFile));
+
+        final String summary = new String(Files.readAllBytes(summaryFile.toPath()),
+                StandardCharsets.UTF_8);
+        assertTrue(summary.contains("\"files\": 6"));
+        assertTrue(summary.contains("\"applicants\": 3"));
+        assertTrue(summary.contains("\"not_a_pdf_file.pdf\""));
+        assertTrue(summary.contains("\"exportedApplicants\": 3"));
+        assertTrue(summary.contains("\"invalidApplicants\": 3"));
+        assertTrue(summary.contains("\"ADDRESS_OF_LEGAL_GUARDIAN\": 3"));
+        assertTrue(summary.contains("\"schedulingPolicy\": \"LARGEST_FIRST\""));
+    }
+
+    @Test
+    public final void testImportWithCache() throws Exception {
+        final String directory = Paths.get(ClassLoader.getSystemResource("data/").toURI())
+                .toString();
+        final File cacheDirectory = folder.newFolder("cache");
+        final File outputFile = new File(folder.getRoot(), "export.txt");
+        final File summaryFile = new File(folder.getRoot(), "summary.json");
+        for (int i = 0; i < 2; i++) {
+            assertEquals(RunApplicantImporterCLI.EXIT_SUCCESS, run("--invalid", "-c",
+                    cacheDirectory.getPath(), "-o", outputFile.getPath(), "-s",
+                    summaryFile.getPath(), directory));
+            assertTrue(FileUtils.contentEquals(outputFile, new File(ClassLoader
+                    .getSystemResource("export_of_test_data.txt").toURI())));
+            // rejected files keep their reason when they are taken from the cache
+            final String summary = new String(Files.readAllBytes(summaryFile.toPath()),
+                    StandardCharsets.UTF_8);
+            assertTrue(summary.contains("\"not_a_pdf_file.pdf\": "));
+        }
+        // the journal has been merged into the cache file after the import
+        assertEquals(1, cacheDirectory.list().length);
+    }
+
+    @Test
+    public final void testInvalidArguments() {
+        assertEquals(RunApplicantImporterCLI.EXIT_USAGE, run());
+        assertEquals(RunApplicantImporterCLI.EXIT_USAGE, run("-o", "export.txt"));
+        assertEquals(RunApplicantImporterCLI.EXIT_USAGE, run("-o", "export.txt", "-t", "0", "."));
+        assertEquals(RunApplicantImporterCLI.EXIT_USAGE, run("-o", "export.txt", "-e",
+                "UNKNOWN-ENCODING", "."));
+        assertEquals(RunApplicantImporterCLI.EXIT_USAGE, run("-o", "export.txt", "--scheduling",
+                "RANDOM", "."));
+        assertEquals(RunApplicantImporterCLI.EXIT_USAGE, run("-o", "export.txt", "--include",
+                "[", "."));
+        assertEquals(RunApplicantImporterCLI.EXIT_USAGE, run("--unknown"));
+        assertEquals(RunApplicantImporterCLI.EXIT_SUCCESS, run("--help"));
+    }
+
+    @Test
+    public final void testMissingDirectory() throws Exception {
+        final File outputFile = new File(folder.getRoot(), "export.txt");
+        assertEquals(RunApplicantImporterCLI.EXIT_FAILURE, run("-o", outputFile.getPath(),
+                new File(folder.getRoot(), "missing").getPath()));
+    }
+
+    @Test
+    public final void testMissingOutputDirectory() throws Exception {
+        final String directory = Paths.get(ClassLoader.getSystemResource("data/").toURI())
+                .toString();
+        final File outputFile = new File(new File(folder.getRoot(), "missing"), "export.txt");
+        assertEquals(RunApplicantImporterCLI.EXIT_FAILURE, run("-o", outputFile.getPath(),
+                directory));
+    }
+
+    @Test
+    public final void testExportFailure() throws Exception {
+        final String directory = Paths.get(ClassLoader.getSystemResource("data/").toURI())
+                .toString();
+        // a directory can not be opened as export file
+        final File outputFile = folder.newFolder("export.txt");
+        assertEquals(RunApplicantImporterCLI.EXIT_FAILURE, run("-o", outputFile.getPath(),
+                directory));
+        assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8)
+                .contains("Ausgabedatei konnte nicht geschrieben werden"));
+    }
+}
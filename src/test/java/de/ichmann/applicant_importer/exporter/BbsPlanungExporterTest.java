@@ -20,6 +20,8 @@ import org.junit.Test;
 
 import de.ichmann.applicant_importer.importer.PdfFormImporter;
 import de.ichmann.applicant_importer.importer.PdfFormImporter.PdfFormImporterEvent;
+import de.ichmann.applicant_importer.model.Applicant;
+import de.ichmann.applicant_importer.model.ApplicantStore;
 
 public class BbsPlanungExporterTest {
 
@@ -70,6 +72,24 @@ public class BbsPlanungExporterTest {
         assertEquals(true, areFilesEqual);
     }
 
+    @Test
+    public final void testExportFromStore() throws IOException, URISyntaxException {
+        final ApplicantStore store = new ApplicantStore();
+        for (final Applicant applicant : importer.getListOfStudents()) {
+            store.add(applicant);
+        }
+        final File storeOutputFile = File.createTempFile("test", ".txt");
+        try {
+            final BbsPlanungExporter storeExporter = new BbsPlanungExporter(
+                    storeOutputFile.toPath(), store, true);
+            assertEquals(3, storeExporter.getNumberExportedApplicants());
+            final URL url = ClassLoader.getSystemResource("export_of_test_data.txt");
+            assertEquals(true, FileUtils.contentEquals(storeOutputFile, new File(url.toURI())));
+        } finally {
+            storeOutputFile.delete();
+        }
+    }
+
     @Test
     public final void testGetNumberExportedApplicants() {
         final int numberExporterApplicants = exporter.getNumberExportedApplicants();
@@ -0,0 +1,104 @@
+package de.ichmann.applicant_importer.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ichmann.applicant_importer.model.Applicant;
+import de.ichmann.applicant_importer.model.Applicant.ApplicantBuilder;
+import de.ichmann.applicant_importer.model.DataField;
+import de.ichmann.applicant_importer.model.Religion;
+
+public class FieldMappingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public final void testDefaultMapping() {
+        final FieldMapping mapping = FieldMapping.getDefaultMapping();
+        assertEquals(DataField.BIRTHDAY, mapping.getHandler("geb am").getDataField());
+        assertEquals(FieldConverter.DURATION, mapping.getHandler("DauerAusbildung")
+                .getConverter());
+        assertNull(mapping.getHandler("Formular drucken"));
+
+        final ApplicantBuilder builder = new ApplicantBuilder();
+        mapping.getHandler("DauerAusbildung").apply("3,5", builder);
+        mapping.getHandler("Konfession").apply("-1", builder);
+        mapping.getHandler("Name").apply("þÿ", builder);
+        mapping.getHandler("JahreSchulbesuch").apply("10", builder);
+        final Applicant applicant = builder.build();
+        assertEquals(42, applicant.getValue(DataField.DURATION_OF_TRAINING));
+        assertEquals(Religion.OHNE_ANGABE, applicant.getValue(DataField.RELIGION));
+        assertEquals("", applicant.getValue(DataField.LAST_NAME));
+        assertEquals(10, applicant.getValue(DataField.SCHOOL_ATTENDANCE_YEARS));
+    }
+
+    @Test
+    public final void testMappingFromFile() throws Exception {
+        final Path file = folder.newFile("mapping.csv").toPath();
+        Files.write(file, "Feldname;Datenfeld;Konverter\n# Kommentar\nNachname;LAST_NAME;STRING\n"
+                .getBytes(StandardCharsets.UTF_8));
+        final FieldMapping mapping = FieldMapping.fromFile(file);
+        assertEquals(1, mapping.size());
+        assertEquals(DataField.LAST_NAME, mapping.getHandler("Nachname").getDataField());
+        assertNull(mapping.getHandler("Name"));
+    }
+
+    @Test
+    public final void testExtractionPlan() {
+        final FieldMapping mapping = FieldMapping.getDefaultMapping();
+        final ExtractionPlan plan = mapping.getExtractionPlan(Arrays.asList("Name", "Vorname",
+                "Senden"));
+        assertEquals(3, plan.getNumberOfFields());
+        assertEquals(2, plan.getNumberOfMappedFields());
+        assertEquals(Arrays.asList("Senden"), plan.getUnmappedFieldNames());
+        // same form version with different order of fields
+        assertSame(plan, mapping.getExtractionPlan(Arrays.asList("Senden", "Vorname", "Name")));
+        assertNotSame(plan, mapping.getExtractionPlan(Arrays.asList("Name", "Vorname")));
+        // the form fields of a PDF file are looked up by the key set of their map
+        final Map<String, String> formFields = new LinkedHashMap<>();
+        formFields.put("Vorname", "Maria");
+        formFields.put("Senden", null);
+        formFields.put("Name", "Müller");
+        assertSame(plan, mapping.getExtractionPlan(formFields.keySet()));
+    }
+
+    @Test
+    public final void testManyFormVersions() throws Exception {
+        final Path file = folder.newFile("mapping.csv").toPath();
+        Files.write(file, "Feldname;Datenfeld;Konverter\nNachname;LAST_NAME;STRING\n"
+                .getBytes(StandardCharsets.UTF_8));
+        final FieldMapping mapping = FieldMapping.fromFile(file);
+        // plans of form versions beyond the limit of the cache are still resolved correctly
+        for (int i = 0; i < 100; i++) {
+            final ExtractionPlan plan = mapping.getExtractionPlan(Arrays.asList("Nachname",
+                    "Feld" + i));
+            assertEquals(2, plan.getNumberOfFields());
+            assertEquals(1, plan.getNumberOfMappedFields());
+        }
+        final ExtractionPlan firstPlan = mapping.getExtractionPlan(Arrays.asList("Feld0",
+                "Nachname"));
+        assertSame(firstPlan, mapping.getExtractionPlan(Arrays.asList("Nachname", "Feld0")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public final void testUnknownConverter() throws Exception {
+        final Path file = folder.newFile("mapping.csv").toPath();
+        Files.write(file, "Feldname;Datenfeld;Konverter\nName;LAST_NAME;UNKNOWN\n"
+                .getBytes(StandardCharsets.UTF_8));
+        FieldMapping.fromFile(file);
+    }
+}
@@ -0,0 +1,58 @@
+package de.ichmann.applicant_importer.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class FormDataReaderTest {
+
+    @Test
+    public final void testReadXfdf() throws Exception {
+        final String xfdf = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<xfdf xmlns=\"http://ns.adobe.com/xfdf/\" xml:space=\"preserve\"><fields>"
+                + "<field name=\"Name\"><value>Müller</value></field>"
+                + "<field name=\"Geschlecht\"><value>w</value></field>"
+                + "<field name=\"Betrieb\"><field name=\"Ort\"><value>Osnabrück</value></field>"
+                + "</field><field name=\"Bemerkungen\"/></fields></xfdf>";
+        final Map<String, String> formFields = FormDataReader.readXfdf(new ByteArrayInputStream(
+                xfdf.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, formFields.size());
+        assertEquals("Müller", formFields.get("Name"));
+        assertEquals("w", formFields.get("Geschlecht"));
+        assertEquals("Osnabrück", formFields.get("Betrieb.Ort"));
+        assertTrue(formFields.containsKey("Bemerkungen"));
+        assertNull(formFields.get("Bemerkungen"));
+    }
+
+    @Test(expected = IOException.class)
+    public final void testReadInvalidXfdf() throws Exception {
+        FormDataReader.readXfdf(new ByteArrayInputStream("<xfdf><fields>"
+                .getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public final void testReadFdf() throws Exception {
+        final String fdf = "%FDF-1.2\n1 0 obj\n<< /FDF << /Fields [ << /T (Name) /V (Meyer) >> "
+                + "<< /T (Geschlecht) /V /m >> ] >> >>\nendobj\ntrailer\n<< /Root 1 0 R >>\n%%EOF\n";
+        final Map<String, String> formFields = FormDataReader.readFdf(new ByteArrayInputStream(
+                fdf.getBytes(StandardCharsets.US_ASCII)));
+        assertEquals("Meyer", formFields.get("Name"));
+        assertEquals("m", formFields.get("Geschlecht"));
+    }
+
+    @Test
+    public final void testIsFormDataFile() {
+        assertTrue(FormDataReader.isFormDataFile(Paths.get("form.fdf")));
+        assertTrue(FormDataReader.isFormDataFile(Paths.get("form.xfdf")));
+        assertFalse(FormDataReader.isFormDataFile(Paths.get("form.pdf")));
+    }
+}
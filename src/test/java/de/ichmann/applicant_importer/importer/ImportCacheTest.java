@@ -0,0 +1,164 @@
+package de.ichmann.applicant_importer.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImportCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path importDirectory;
+    private Path cacheDirectory;
+    private Path pdfFile;
+
+    @Before
+    public void setUp() throws Exception {
+        importDirectory = folder.newFolder("import").toPath();
+        cacheDirectory = folder.newFolder("cache").toPath();
+        pdfFile = importDirectory.resolve("form.pdf");
+        Files.write(pdfFile, "%PDF-1.4 content".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private BasicFileAttributes readAttributes() throws Exception {
+        return Files.readAttributes(pdfFile, BasicFileAttributes.class);
+    }
+
+    private ImportCache storeAndReload(final Map<String, String> formFields) throws Exception {
+        final ImportCache cache = new ImportCache(cacheDirectory, importDirectory);
+        cache.load();
+        assertNull(cache.lookup(pdfFile, readAttributes()));
+        cache.store(pdfFile, readAttributes(), formFields, Files.readAllBytes(pdfFile));
+        cache.save(true);
+
+        final ImportCache reloadedCache = new ImportCache(cacheDirectory, importDirectory);
+        reloadedCache.load();
+        return reloadedCache;
+    }
+
+    @Test
+    public final void testUnchangedFile() throws Exception {
+        final Map<String, String> formFields = new HashMap<>();
+        formFields.put("Name", "Müller");
+        final ImportCache cache = storeAndReload(formFields);
+
+        final ImportCache.Entry entry = cache.lookup(pdfFile, readAttributes());
+        assertNotNull(entry);
+        assertEquals("Müller", entry.getFormFields().get("Name"));
+        assertEquals(1, cache.getNumberOfHits());
+    }
+
+    @Test
+    public final void testInvalidFile() throws Exception {
+        final ImportCache cache = storeAndReload(null);
+
+        final ImportCache.Entry entry = cache.lookup(pdfFile, readAttributes());
+        assertNotNull(entry);
+        assertFalse(entry.isValid());
+    }
+
+    @Test
+    public final void testRejectedFile() throws Exception {
+        final ImportCache cache = new ImportCache(cacheDirectory, importDirectory);
+        cache.load();
+        cache.storeRejection(pdfFile, readAttributes(), "Keine PDF-Datei", null);
+        // the rejection is found in the journal without saving the cache
+        final ImportCache resumedCache = new ImportCache(cacheDirectory, importDirectory);
+        resumedCache.load();
+        final ImportCache.Entry entry = resumedCache.lookup(pdfFile, readAttributes());
+        assertNotNull(entry);
+        assertFalse(entry.isValid());
+        assertEquals("Keine PDF-Datei", entry.getRejection());
+    }
+
+    @Test
+    public final void testTouchedFile() throws Exception {
+        final ImportCache cache = storeAndReload(new HashMap<String, String>());
+
+        // same content with different modification time is still found by its hash
+        Files.setLastModifiedTime(pdfFile, FileTime.fromMillis(0));
+        assertNotNull(cache.lookup(pdfFile, readAttributes()));
+    }
+
+    @Test
+    public final void testTouchedFileWithoutHash() throws Exception {
+        final ImportCache cache = new ImportCache(cacheDirectory, importDirectory);
+        cache.load();
+        // files that have not been read into memory are stored without reading them again
+        cache.store(pdfFile, readAttributes(), new HashMap<String, String>());
+        assertNotNull(cache.lookup(pdfFile, readAttributes()));
+        Files.setLastModifiedTime(pdfFile, FileTime.fromMillis(0));
+        assertNull(cache.lookup(pdfFile, readAttributes()));
+    }
+
+    @Test
+    public final void testChangedFile() throws Exception {
+        final ImportCache cache = storeAndReload(new HashMap<String, String>());
+
+        Files.write(pdfFile, "%PDF-1.4 changed".getBytes(StandardCharsets.US_ASCII));
+        Files.setLastModifiedTime(pdfFile, FileTime.fromMillis(0));
+        assertNull(cache.lookup(pdfFile, readAttributes()));
+        assertEquals(1, cache.getNumberOfMisses());
+    }
+
+    @Test
+    public final void testResumeFromJournal() throws Exception {
+        final Map<String, String> formFields = new HashMap<>();
+        formFields.put("Name", "Müller");
+        formFields.put("Vorname", null);
+        final ImportCache cache = new ImportCache(cacheDirectory, importDirectory);
+        cache.load();
+        cache.store(pdfFile, readAttributes(), formFields);
+        // the import dies before the cache is saved and leaves an incomplete record behind
+        final Path journalFile = findJournalFile();
+        Files.write(journalFile, new byte[] { 0, 0, 1 }, StandardOpenOption.APPEND);
+
+        final ImportCache resumedCache = new ImportCache(cacheDirectory, importDirectory);
+        resumedCache.load();
+        final ImportCache.Entry entry = resumedCache.lookup(pdfFile, readAttributes());
+        assertNotNull(entry);
+        assertEquals(formFields, entry.getFormFields());
+
+        // new records are appended after the last complete record
+        final Path otherFile = importDirectory.resolve("other.pdf");
+        Files.write(otherFile, "%PDF-1.4 other".getBytes(StandardCharsets.US_ASCII));
+        resumedCache.store(otherFile, Files.readAttributes(otherFile, BasicFileAttributes.class),
+                null);
+        final ImportCache secondCache = new ImportCache(cacheDirectory, importDirectory);
+        secondCache.load();
+        assertNotNull(secondCache.lookup(pdfFile, readAttributes()));
+        assertFalse(secondCache.lookup(otherFile,
+                Files.readAttributes(otherFile, BasicFileAttributes.class)).isValid());
+
+        // the journal is deleted when the cache is saved
+        secondCache.save(true);
+        assertNull(findJournalFile());
+    }
+
+    private Path findJournalFile() throws Exception {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory,
+                "*.journal")) {
+            for (final Path path : stream) {
+                return path;
+            }
+        }
+        return null;
+    }
+}
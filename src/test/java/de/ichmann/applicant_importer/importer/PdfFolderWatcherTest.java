@@ -0,0 +1,70 @@
+package de.ichmann.applicant_importer.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.ichmann.applicant_importer.model.Applicant;
+
+public class PdfFolderWatcherTest {
+
+    private static final long SETTLE_TIME = 200;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 30000)
+    public final void testNewFileIsImported() throws Exception {
+        final Path directory = folder.newFolder("watched").toPath();
+        final URL url = ClassLoader.getSystemResource("data/correct_pdf_form.pdf");
+
+        final ApplicantQueue queue = new ApplicantQueue();
+        final PdfFolderWatcher watcher = new PdfFolderWatcher(directory, queue, SETTLE_TIME);
+        try {
+            Files.copy(Paths.get(url.toURI()), directory.resolve("new_form.pdf"));
+            final Iterator<Applicant> iterator = queue.iterator();
+            assertTrue(iterator.hasNext());
+            assertEquals("new_form.pdf", iterator.next().getFileName());
+        } finally {
+            watcher.close();
+        }
+        assertFalse(queue.iterator().hasNext());
+    }
+
+    @Test(timeout = 30000)
+    public final void testInvalidFileIsReported() throws Exception {
+        final Path directory = folder.newFolder("watched").toPath();
+        final URL url = ClassLoader.getSystemResource("data/not_a_pdf_file.pdf");
+
+        final BlockingQueue<String> rejectedFiles = new LinkedBlockingQueue<>();
+        final ApplicantQueue queue = new ApplicantQueue();
+        final PdfFolderWatcher watcher = new PdfFolderWatcher(directory, queue,
+                new InvalidFileListener() {
+                    @Override
+                    public void fileRejected(final String fileName, final String reason) {
+                        rejectedFiles.add(fileName + ": " + reason);
+                    }
+                }, folder.newFolder("cache").toPath(), SETTLE_TIME);
+        try {
+            Files.copy(Paths.get(url.toURI()), directory.resolve("broken.pdf"));
+            final String rejectedFile = rejectedFiles.take();
+            assertTrue(rejectedFile.startsWith("broken.pdf: "));
+            assertFalse(rejectedFile.endsWith("null"));
+        } finally {
+            watcher.close();
+        }
+        assertFalse(queue.iterator().hasNext());
+    }
+}
@@ -1,19 +1,39 @@
 package de.ichmann.applicant_importer.importer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.After;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import de.ichmann.applicant_importer.importer.PdfFormImporter.PdfFormImporterEvent;
 import de.ichmann.applicant_importer.model.Applicant;
@@ -22,6 +42,9 @@ import de.ichmann.applicant_importer.model.Religion;
 
 public class PdfFormImporterTest {
 
+    @Rule
+    public TemporaryFolder archiveFolder = new TemporaryFolder();
+
     private static PdfFormImporter importer;
 
     // create lock to wait with tests for the import to be complete
@@ -84,6 +107,336 @@ public class PdfFormImporterTest {
         }
     }
 
+    @Test
+    public final void testOrderOfListOfStudents() {
+        final List<Applicant> listOfStudents = importer.getListOfStudents();
+        assertEquals("correct_pdf_form.pdf", listOfStudents.get(0).getFileName());
+        assertEquals("empty_pdf_form.pdf", listOfStudents.get(1).getFileName());
+        assertEquals("invalid_pdf_form.pdf", listOfStudents.get(2).getFileName());
+    }
+
+    @Test
+    public final void testApplicantQueue() throws Exception {
+        final URL url = ClassLoader.getSystemResource("data/");
+        // room for a single applicant, so that the parser threads have to wait for the consumer
+        final ApplicantQueue queue = new ApplicantQueue(1);
+        final PdfFormImporter streamingImporter = new PdfFormImporter.ImporterBuilder(
+                Paths.get(url.toURI())).setApplicantListener(queue).setCollectApplicants(false)
+                .build();
+        int numberOfApplicants = 0;
+        for (final Applicant a : queue) {
+            assertNotNull(a.getFileName());
+            numberOfApplicants++;
+        }
+        assertEquals(3, numberOfApplicants);
+        assertTrue(streamingImporter.getListOfStudents().isEmpty());
+        streamingImporter.disposeImporter();
+    }
+
+    @Test
+    public final void testScratchFileAndSmallMemoryBudget() throws Exception {
+        final URL url = ClassLoader.getSystemResource("data/");
+        final ApplicantQueue queue = new ApplicantQueue();
+        final PdfFormImporter scratchImporter = new PdfFormImporter.ImporterBuilder(
+                Paths.get(url.toURI())).setApplicantListener(queue).setMemoryBudget(1)
+                .setScratchFileThreshold(0).build();
+        int numberOfApplicants = 0;
+        for (final Applicant a : queue) {
+            if ("correct_pdf_form.pdf".equals(a.getFileName())) {
+                assertEquals("Müller", a.getValue(DataField.LAST_NAME));
+            }
+            numberOfApplicants++;
+        }
+        assertEquals(3, numberOfApplicants);
+        assertEquals(3, scratchImporter.getListOfInvalidPdfFiles().size());
+        scratchImporter.disposeImporter();
+    }
+
+    @Test
+    public final void testReadAheadAndScheduling() throws Exception {
+        final Path folder = Paths.get(ClassLoader.getSystemResource("data/").toURI());
+        // one slot and a tiny memory budget, so that files are read ahead or read from disk
+        final PdfFormImporter[] importers = {
+                new PdfFormImporter.ImporterBuilder(folder).setReadAhead(0).build(),
+                new PdfFormImporter.ImporterBuilder(folder).setReadAhead(1).build(),
+                new PdfFormImporter.ImporterBuilder(folder).setReadAhead(1).setMemoryBudget(1)
+                        .build(),
+                new PdfFormImporter.ImporterBuilder(folder).setNumberOfThreads(1)
+                        .setSchedulingPolicy(BuiltInSchedulingPolicy.LISTING_ORDER).build(),
+                new PdfFormImporter.ImporterBuilder(folder).setNumberOfThreads(1)
+                        .setSchedulingPolicy(new SchedulingPolicy() {
+                            @Override
+                            public int compare(final long size1, final long sequence1,
+                                    final long size2, final long sequence2) {
+                                // reverse order of the directory listing
+                                return Long.compare(sequence2, sequence1);
+                            }
+                        }).build()};
+        for (final PdfFormImporter readAheadImporter : importers) {
+            final List<Applicant> applicants = readAheadImporter.getImportHandle().get();
+            assertEquals(importer.getListOfStudents().toString(), applicants.toString());
+            assertEquals(importer.getListOfInvalidPdfFiles(),
+                    readAheadImporter.getListOfInvalidPdfFiles());
+            assertEquals("Müller", applicants.get(0).getValue(DataField.LAST_NAME));
+            readAheadImporter.disposeImporter();
+        }
+    }
+
+    @Test
+    public final void testImportFromArchive() throws Exception {
+        final Path dataFolder = Paths.get(ClassLoader.getSystemResource("data/").toURI());
+        final Path archive = archiveFolder.getRoot().toPath().resolve("forms.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (final String fileName : new String[] { "correct_pdf_form.pdf",
+                    "not_a_pdf_file.pdf" }) {
+                out.putNextEntry(new ZipEntry(fileName));
+                Files.copy(dataFolder.resolve(fileName), out);
+                out.closeEntry();
+            }
+        }
+
+        final ApplicantQueue queue = new ApplicantQueue();
+        final PdfFormImporter archiveImporter = new PdfFormImporter.ImporterBuilder(archive)
+                .setApplicantListener(queue).build();
+        for (final Applicant a : queue) {
+            assertEquals("forms.zip!/correct_pdf_form.pdf", a.getFileName());
+            assertEquals("Müller", a.getValue(DataField.LAST_NAME));
+        }
+        assertEquals(1, archiveImporter.getListOfStudents().size());
+        assertEquals(Arrays.asList("forms.zip!/not_a_pdf_file.pdf"),
+                archiveImporter.getListOfInvalidPdfFiles());
+        archiveImporter.disposeImporter();
+    }
+
+    @Test(timeout = 30000)
+    public final void testRecursiveImport() throws Exception {
+        final Path source = Paths.get(ClassLoader.getSystemResource("data/correct_pdf_form.pdf")
+                .toURI());
+        final Path root = archiveFolder.newFolder("tree").toPath();
+        final Path week1 = Files.createDirectories(root.resolve("2015/metall/kw01"));
+        final Path week2 = Files.createDirectories(root.resolve("2015/holz/kw02"));
+        final Path excluded = Files.createDirectories(root.resolve("2015/archiv"));
+        Files.copy(source, root.resolve("correct_pdf_form.pdf"));
+        Files.copy(source, week1.resolve("correct_pdf_form.pdf"));
+        Files.copy(source, week2.resolve("correct_pdf_form.pdf"));
+        Files.copy(source, week2.resolve("correct_pdf_form_alt.pdf"));
+        Files.copy(source, excluded.resolve("correct_pdf_form.pdf"));
+
+        final Map<String, String> directoryProgress = new TreeMap<>();
+        final PdfFormImporter recursiveImporter = new PdfFormImporter.ImporterBuilder(root)
+                .setRecursive(true).setExcludePatterns(Arrays.asList("archiv", "*_alt.pdf"))
+                .setProgressListener(new DirectoryProgressListener() {
+                    @Override
+                    public void progressChanged(final int numberOfFiles,
+                            final int numberOfFinishedFiles) {
+                    }
+
+                    @Override
+                    public void directoryProgressChanged(final String directory,
+                            final int numberOfFiles, final int numberOfFinishedFiles) {
+                        directoryProgress.put(directory, numberOfFinishedFiles + "/"
+                                + numberOfFiles);
+                    }
+
+                    @Override
+                    public void importFinished(final PdfFormImporter importer) {
+                    }
+
+                    @Override
+                    public void importFailed(final PdfFormImporter importer,
+                            final Exception cause) {
+                    }
+                }).build();
+        final List<Applicant> applicants = recursiveImporter.getImportHandle().get();
+        assertEquals(3, applicants.size());
+        assertEquals(Paths.get("2015/holz/kw02/correct_pdf_form.pdf").toString(), applicants
+                .get(0).getFileName());
+        assertEquals(Paths.get("2015/metall/kw01/correct_pdf_form.pdf").toString(), applicants
+                .get(1).getFileName());
+        assertEquals("correct_pdf_form.pdf", applicants.get(2).getFileName());
+        assertEquals(3, directoryProgress.size());
+        assertEquals("1/1", directoryProgress.get(""));
+        assertEquals("1/1", directoryProgress.get(Paths.get("2015/metall/kw01").toString()));
+        recursiveImporter.disposeImporter();
+
+        // without recursion only the import directory is imported
+        final PdfFormImporter flatImporter = new PdfFormImporter.ImporterBuilder(root)
+                .setIncludePatterns(Arrays.asList("*.pdf")).build();
+        assertEquals(1, flatImporter.getImportHandle().get().size());
+        flatImporter.disposeImporter();
+    }
+
+    /**
+     * Creates a directory with a valid PDF file and a named pipe that blocks every parser trying to
+     * read it. The test is skipped if named pipes can not be created.
+     */
+    private Path createDirectoryWithStuckFile() throws Exception {
+        final Path directory = archiveFolder.newFolder("stuck").toPath();
+        Files.copy(Paths.get(ClassLoader.getSystemResource("data/correct_pdf_form.pdf").toURI()),
+                directory.resolve("correct_pdf_form.pdf"));
+        final Path stuckFile = directory.resolve("stuck.pdf");
+        try {
+            new ProcessBuilder("mkfifo", stuckFile.toString()).start().waitFor();
+        } catch (final IOException e) {
+            Assume.assumeNoException(e);
+        }
+        Assume.assumeTrue(Files.exists(stuckFile));
+        return directory;
+    }
+
+    @Test(timeout = 30000)
+    public final void testParseTimeout() throws Exception {
+        final PdfFormImporter timeoutImporter = new PdfFormImporter.ImporterBuilder(
+                createDirectoryWithStuckFile()).setParseTimeout(500).build();
+        final List<Applicant> applicants = timeoutImporter.getImportHandle().get();
+        assertEquals(1, applicants.size());
+        assertEquals(1, timeoutImporter.getListOfQuarantinedFiles().size());
+        assertEquals("stuck.pdf", timeoutImporter.getListOfQuarantinedFiles().get(0)
+                .getFileName());
+        assertTrue(timeoutImporter.getListOfInvalidPdfFiles().contains("stuck.pdf"));
+        timeoutImporter.disposeImporter();
+    }
+
+    @Test(timeout = 30000)
+    public final void testParseTimeoutWithBlockedListener() throws Exception {
+        final CountDownLatch listenerReleased = new CountDownLatch(1);
+        final PdfFormImporter timeoutImporter = new PdfFormImporter.ImporterBuilder(
+                createDirectoryWithStuckFile()).setNumberOfThreads(2).setParseTimeout(500)
+                .setApplicantListener(new ApplicantListener() {
+                    @Override
+                    public void applicantImported(final Applicant applicant) {
+                        try {
+                            listenerReleased.await();
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+
+                    @Override
+                    public void importFinished() {
+                    }
+                }).build();
+        // the stuck file times out while the listener still blocks the other parser thread
+        while (timeoutImporter.getListOfQuarantinedFiles().isEmpty()) {
+            Thread.sleep(50);
+        }
+        listenerReleased.countDown();
+        assertEquals(1, timeoutImporter.getImportHandle().get().size());
+        assertEquals("stuck.pdf", timeoutImporter.getListOfQuarantinedFiles().get(0)
+                .getFileName());
+        timeoutImporter.disposeImporter();
+    }
+
+    @Test(timeout = 60000)
+    public final void testWorkerProcesses() throws Exception {
+        final URL url = ClassLoader.getSystemResource("data/");
+        final PdfFormImporter workerImporter = new PdfFormImporter.ImporterBuilder(
+                Paths.get(url.toURI())).setWorkerProcesses(1).build();
+        final List<Applicant> applicants = workerImporter.getImportHandle().get();
+        final List<Applicant> expectedApplicants = importer.getListOfStudents();
+        assertEquals(expectedApplicants.size(), applicants.size());
+        for (int i = 0; i < applicants.size(); i++) {
+            assertEquals(expectedApplicants.get(i).getFileName(), applicants.get(i).getFileName());
+            for (final DataField field : DataField.values()) {
+                assertEquals(expectedApplicants.get(i).getValue(field), applicants.get(i)
+                        .getValue(field));
+            }
+        }
+        assertEquals(importer.getListOfInvalidPdfFiles(),
+                workerImporter.getListOfInvalidPdfFiles());
+        assertEquals(importer.getReasonsForInvalidPdfFiles(),
+                workerImporter.getReasonsForInvalidPdfFiles());
+        workerImporter.disposeImporter();
+    }
+
+    @Test(timeout = 60000)
+    public final void testWorkerProcessTimeout() throws Exception {
+        final PdfFormImporter workerImporter = new PdfFormImporter.ImporterBuilder(
+                createDirectoryWithStuckFile()).setWorkerProcesses(1).setParseTimeout(5000)
+                .build();
+        final List<Applicant> applicants = workerImporter.getImportHandle().get();
+        assertEquals(1, applicants.size());
+        assertEquals(1, workerImporter.getListOfQuarantinedFiles().size());
+        assertEquals("stuck.pdf", workerImporter.getListOfQuarantinedFiles().get(0).getFileName());
+        workerImporter.disposeImporter();
+    }
+
+    @Test(timeout = 30000)
+    public final void testCancelImport() throws Exception {
+        final PdfFormImporter cancelledImporter = new PdfFormImporter.ImporterBuilder(
+                createDirectoryWithStuckFile()).setParseTimeout(0).build();
+        final Future<List<Applicant>> handle = cancelledImporter.getImportHandle();
+        try {
+            handle.get(1, TimeUnit.SECONDS);
+            fail("Import with stuck file should not be finished");
+        } catch (final TimeoutException e) {
+            assertFalse(handle.isDone());
+        }
+        assertTrue(handle.cancel(true));
+        try {
+            handle.get();
+            fail("Cancelled import should not return a result");
+        } catch (final CancellationException e) {
+            assertTrue(handle.isDone());
+            assertTrue(handle.isCancelled());
+        }
+        cancelledImporter.disposeImporter();
+    }
+
+    @Test(timeout = 30000)
+    public final void testProgressListener() throws Exception {
+        final Path folder = Paths.get(ClassLoader.getSystemResource("data/").toURI());
+        final AtomicInteger executedDeliveries = new AtomicInteger(0);
+        final AtomicInteger progressCalls = new AtomicInteger(0);
+        final AtomicInteger finishedCalls = new AtomicInteger(0);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final PdfFormImporter progressImporter = new PdfFormImporter.ImporterBuilder(folder)
+                .setProgressInterval(60000).setProgressExecutor(new Executor() {
+                    @Override
+                    public void execute(final Runnable command) {
+                        executedDeliveries.incrementAndGet();
+                        command.run();
+                    }
+                }).setProgressListener(new ImportProgressListener() {
+                    @Override
+                    public void progressChanged(final int numberOfFiles,
+                            final int numberOfFinishedFiles) {
+                        assertEquals(0, finishedCalls.get());
+                        progressCalls.incrementAndGet();
+                    }
+
+                    @Override
+                    public void importFinished(final PdfFormImporter importer) {
+                        finishedCalls.incrementAndGet();
+                        finished.countDown();
+                    }
+
+                    @Override
+                    public void importFailed(final PdfFormImporter importer,
+                            final Exception cause) {
+                        fail("Import should not fail: " + cause);
+                    }
+                }).build();
+        finished.await();
+        // all progress within the interval has been coalesced into the first delivery
+        assertEquals(1, progressCalls.get());
+        assertEquals(1, finishedCalls.get());
+        assertEquals(2, executedDeliveries.get());
+        assertEquals(6, progressImporter.getNumberOfPdfFiles());
+        assertEquals(6, progressImporter.getCurrentPdfFiles());
+        assertEquals(3, progressImporter.getListOfStudents().size());
+        progressImporter.disposeImporter();
+    }
+
+    @Test
+    public final void testFormVersionStatistics() {
+        int numberOfFiles = 0;
+        for (final int count : importer.getFormVersionStatistics().values()) {
+            numberOfFiles += count;
+        }
+        assertEquals(3, numberOfFiles);
+    }
+
     @Test
     public final void testGetListOfInvalidPdfFiles() {
         final List<String> listOfInvalidPdfFiles = importer.getListOfInvalidPdfFiles();
@@ -91,6 +444,14 @@ public class PdfFormImporterTest {
         assertEquals(3, numberOfInvalidFiles);
     }
 
+    @Test
+    public final void testGetReasonsForInvalidPdfFiles() {
+        final Map<String, String> reasons = importer.getReasonsForInvalidPdfFiles();
+        assertEquals(PdfPreflight.NOT_A_PDF_FILE, reasons.get("not_a_pdf_file.pdf"));
+        assertEquals(PdfPreflight.NO_FORM, reasons.get("pdf_file_without_form.pdf"));
+        assertEquals(PdfPreflight.NO_FORM, reasons.get("printed_pdf_form.pdf"));
+    }
+
     @Test
     public final void testGetNumberOfPdfFiles() {
         final int numberOfFiles = importer.getNumberOfPdfFiles();
@@ -0,0 +1,39 @@
+package de.ichmann.applicant_importer.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+public class PdfPreflightTest {
+
+    private static Path getTestFile(final String fileName) throws Exception {
+        return Paths.get(ClassLoader.getSystemResource("data/" + fileName).toURI());
+    }
+
+    @Test
+    public final void testCheckFile() throws Exception {
+        assertEquals(PdfPreflight.NOT_A_PDF_FILE,
+                PdfPreflight.check(getTestFile("not_a_pdf_file.pdf")));
+        assertEquals(PdfPreflight.NO_FORM,
+                PdfPreflight.check(getTestFile("pdf_file_without_form.pdf")));
+        assertEquals(PdfPreflight.NO_FORM, PdfPreflight.check(getTestFile("printed_pdf_form.pdf")));
+        assertNull(PdfPreflight.check(getTestFile("correct_pdf_form.pdf")));
+        assertNull(PdfPreflight.check(getTestFile("empty_pdf_form.pdf")));
+    }
+
+    @Test
+    public final void testCheckContent() throws Exception {
+        assertEquals(PdfPreflight.NO_FORM, PdfPreflight.check(Files.readAllBytes(
+                getTestFile("printed_pdf_form.pdf"))));
+        assertNull(PdfPreflight.check(Files.readAllBytes(getTestFile("correct_pdf_form.pdf"))));
+        assertEquals(PdfPreflight.NOT_A_PDF_FILE, PdfPreflight.check(new byte[0]));
+        // files whose structure can not be followed are left to the parser
+        assertNull(PdfPreflight.check("%PDF-1.4\nbroken".getBytes(StandardCharsets.US_ASCII)));
+    }
+}
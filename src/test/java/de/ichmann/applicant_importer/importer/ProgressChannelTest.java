@@ -0,0 +1,63 @@
+package de.ichmann.applicant_importer.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ProgressChannelTest {
+
+    private final ScheduledExecutorService scheduler = Executors
+            .newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test(timeout = 10000)
+    public final void testTrailingDelivery() throws Exception {
+        final AtomicInteger deliveredFinishedFiles = new AtomicInteger(-1);
+        final CountDownLatch allFilesDelivered = new CountDownLatch(1);
+        final ProgressChannel channel = new ProgressChannel(null,
+                Arrays.<ImportProgressListener> asList(new ImportProgressListener() {
+                    @Override
+                    public void progressChanged(final int numberOfFiles,
+                            final int numberOfFinishedFiles) {
+                        deliveredFinishedFiles.set(numberOfFinishedFiles);
+                        if (numberOfFinishedFiles == numberOfFiles) {
+                            allFilesDelivered.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void importFinished(final PdfFormImporter importer) {
+                    }
+
+                    @Override
+                    public void importFailed(final PdfFormImporter importer,
+                            final Exception cause) {
+                    }
+                }), ProgressChannel.DIRECT_EXECUTOR, scheduler, 200);
+        for (int i = 0; i < 3; i++) {
+            channel.fileSubmitted("");
+        }
+        // a burst of files is delivered on its leading edge only
+        for (int i = 0; i < 3; i++) {
+            channel.fileFinished("");
+            channel.publishProgress();
+        }
+        assertEquals(1, deliveredFinishedFiles.get());
+        // the last progress is delivered at the end of the interval without another file
+        assertTrue(allFilesDelivered.await(5, TimeUnit.SECONDS));
+        assertEquals(3, deliveredFinishedFiles.get());
+    }
+}
@@ -0,0 +1,24 @@
+package de.ichmann.applicant_importer.importer;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SchedulingPolicyTest {
+
+    @Test
+    public final void testListingOrder() {
+        final SchedulingPolicy policy = BuiltInSchedulingPolicy.LISTING_ORDER;
+        assertTrue(policy.compare(100, 1, 10, 2) < 0);
+        assertTrue(policy.compare(10, 2, 100, 1) > 0);
+    }
+
+    @Test
+    public final void testLargestFirst() {
+        final SchedulingPolicy policy = BuiltInSchedulingPolicy.LARGEST_FIRST;
+        assertTrue(policy.compare(100, 2, 10, 1) < 0);
+        assertTrue(policy.compare(10, 1, 100, 2) > 0);
+        // files of the same size are parsed in the order of the directory listing
+        assertTrue(policy.compare(10, 1, 10, 2) < 0);
+    }
+}
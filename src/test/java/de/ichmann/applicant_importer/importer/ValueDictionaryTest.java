@@ -0,0 +1,56 @@
+package de.ichmann.applicant_importer.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.ichmann.applicant_importer.model.Applicant;
+import de.ichmann.applicant_importer.model.Applicant.ApplicantBuilder;
+import de.ichmann.applicant_importer.model.DataField;
+
+public class ValueDictionaryTest {
+
+    @Test
+    public final void testDeduplicate() {
+        final ValueDictionary dictionary = new ValueDictionary();
+        final String first = new String("Osnabrück");
+        final String second = new String("Osnabrück");
+        assertSame(first, dictionary.deduplicate(DataField.CITY, first));
+        assertSame(first, dictionary.deduplicate(DataField.CITY, second));
+        // every data field has its own dictionary
+        assertSame(second, dictionary.deduplicate(DataField.COMPANY_CITY, second));
+        assertEquals(1, dictionary.getSize(DataField.CITY));
+        assertEquals(0.5, dictionary.getHitRatio(DataField.CITY), 0.001);
+        assertEquals(0.0, dictionary.getHitRatio(DataField.COMPANY_CITY), 0.001);
+        assertEquals(2, dictionary.getHitRatios().size());
+        assertEquals(1.0 / 3, dictionary.getTotalHitRatio(), 0.001);
+    }
+
+    @Test
+    public final void testMaximumSize() {
+        final ValueDictionary dictionary = new ValueDictionary(2);
+        dictionary.deduplicate(DataField.EMAIL, "a@example.com");
+        dictionary.deduplicate(DataField.EMAIL, "b@example.com");
+        final String third = new String("c@example.com");
+        assertSame(third, dictionary.deduplicate(DataField.EMAIL, third));
+        assertNotSame(third, dictionary.deduplicate(DataField.EMAIL, new String(third)));
+        assertEquals(2, dictionary.getSize(DataField.EMAIL));
+    }
+
+    @Test
+    public final void testApplyExtractionPlan() {
+        final ValueDictionary dictionary = new ValueDictionary();
+        final FieldMapping mapping = FieldMapping.getDefaultMapping();
+        final ApplicantBuilder firstBuilder = new ApplicantBuilder();
+        final ApplicantBuilder secondBuilder = new ApplicantBuilder();
+        mapping.getHandler("Ort").apply(new String("Osnabrück"), firstBuilder, dictionary);
+        mapping.getHandler("Ort").apply(new String("Osnabrück"), secondBuilder, dictionary);
+        final Applicant first = firstBuilder.build();
+        final Applicant second = secondBuilder.build();
+        assertTrue(first.wasImported(DataField.CITY));
+        assertSame(first.getValue(DataField.CITY), second.getValue(DataField.CITY));
+    }
+}
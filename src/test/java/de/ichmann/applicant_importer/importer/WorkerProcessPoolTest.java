@@ -0,0 +1,26 @@
+package de.ichmann.applicant_importer.importer;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class WorkerProcessPoolTest {
+
+    @Test
+    public final void testWorkerCanNotBeStarted() throws Exception {
+        final WorkerProcessPool pool = new WorkerProcessPool(Arrays.asList(Paths.get(
+                "missing", "java").toString()), 1);
+        try {
+            pool.readFormFields(Paths.get("form.pdf"), null);
+            fail("Missing worker executable has not been reported.");
+        } catch (final WorkerProcessPool.WorkerFailedException e) {
+            assertTrue(e.getMessage().startsWith("Parser-Prozess konnte nicht gestartet werden"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.ichmann.applicant_importer.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ichmann.applicant_importer.model.Applicant.ApplicantBuilder;
+
+/**
+ * Tests storing applicants column by column in an applicant store.
+ *
+ * @author Christian Wichmann
+ */
+public final class ApplicantStoreTest {
+
+    private static final int NUMBER_OF_APPLICANTS = 1000;
+
+    private ApplicantStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new ApplicantStore();
+        for (int i = 0; i < NUMBER_OF_APPLICANTS; i++) {
+            final ApplicantBuilder builder = new ApplicantBuilder().setFileName("file" + i + ".pdf")
+                    .setValue(DataField.FIRST_NAME, "Vorname" + i % 10)
+                    .setValue(DataField.LAST_NAME, i % 100 == 0 ? "" : "Nachname")
+                    .setValue(DataField.RETRAINING, i % 2 == 0)
+                    .setValue(DataField.NATIONALITY, i * 1000)
+                    .setValue(DataField.RELIGION, Religion.values()[i % Religion.values().length]);
+            if (i % 3 == 0) {
+                builder.setValue(DataField.EMAIL, "bewerber" + i + "@example.com");
+            }
+            store.add(builder.build());
+        }
+    }
+
+    @Test
+    public void testRowViews() {
+        assertEquals(NUMBER_OF_APPLICANTS, store.size());
+        int row = 0;
+        for (final Applicant applicant : store) {
+            assertEquals("file" + row + ".pdf", applicant.getFileName());
+            assertEquals("Vorname" + row % 10, applicant.getValue(DataField.FIRST_NAME));
+            assertEquals(row % 2 == 0, DataField.RETRAINING.getFrom(applicant));
+            assertEquals(row * 1000, DataField.NATIONALITY.getFrom(applicant));
+            assertEquals(Religion.values()[row % Religion.values().length],
+                    applicant.getValue(DataField.RELIGION));
+            assertEquals(row % 3 == 0, applicant.wasImported(DataField.EMAIL));
+            if (row % 3 != 0) {
+                assertEquals("", applicant.getValue(DataField.EMAIL));
+            }
+            assertFalse(applicant.wasImported(DataField.CITY));
+            row++;
+        }
+        assertEquals(NUMBER_OF_APPLICANTS, row);
+    }
+
+    @Test
+    public void testAddAndGet() {
+        final Applicant applicant = new ApplicantBuilder().setFileName("neu.pdf")
+                .setValue(DataField.GENDER, 'w').setValue(DataField.DURATION_OF_TRAINING, 36)
+                .setValue(DataField.START_OF_TRAINING, "01.08.2015").build();
+        final Applicant view = store.add(applicant);
+        assertEquals(NUMBER_OF_APPLICANTS + 1, store.size());
+        assertEquals("neu.pdf", view.getFileName());
+        assertEquals('w', store.get(NUMBER_OF_APPLICANTS).getValue(DataField.GENDER));
+        assertEquals(36, store.getValue(NUMBER_OF_APPLICANTS, DataField.DURATION_OF_TRAINING));
+        assertEquals(Religion.OHNE_ANGABE, view.getValue(DataField.RELIGION));
+        assertEquals(20150801, view.getDateValue(DataField.START_OF_TRAINING));
+        assertEquals(DateHelper.NO_DATE, view.getDateValue(DataField.BIRTHDAY));
+        assertEquals("31.07.2018", DateHelper.getInstance().getEndDateOfTraining(view));
+    }
+
+    @Test
+    public void testInvalidDataFields() {
+        assertEquals(EnumSet.of(DataField.LAST_NAME), store.get(0).getInvalidDataFields());
+        assertFalse(store.get(0).checkPlausibility());
+        assertTrue(store.get(1).getInvalidDataFields().isEmpty());
+        final int[] rows = store.findInvalidValues(DataField.LAST_NAME);
+        assertEquals(NUMBER_OF_APPLICANTS / 100, rows.length);
+        assertEquals(0, rows[0]);
+        assertEquals(100, rows[1]);
+        assertArrayEquals(new int[0], store.findInvalidValues(DataField.EMAIL));
+        assertEquals(NUMBER_OF_APPLICANTS / 100, store.countInvalidApplicants());
+        // dates that could not be parsed are found, too
+        store.add(new ApplicantBuilder().setFileName("datum.pdf")
+                .setValue(DataField.BIRTHDAY, "kein Datum").build());
+        assertArrayEquals(new int[] { NUMBER_OF_APPLICANTS },
+                store.findInvalidValues(DataField.BIRTHDAY));
+    }
+
+    @Test
+    public void testScanColumn() {
+        final Object[] values = new Object[NUMBER_OF_APPLICANTS];
+        store.scanColumn(DataField.FIRST_NAME, new ColumnScanner() {
+            @Override
+            public void scan(final int row, final Object value) {
+                values[row] = value;
+            }
+        });
+        assertEquals("Vorname3", values[3]);
+        // identical strings are decoded from the dictionary of the column
+        assertSame(values[3], values[13]);
+        store.scanColumn(DataField.EMAIL, new ColumnScanner() {
+            @Override
+            public void scan(final int row, final Object value) {
+                values[row] = value;
+            }
+        });
+        assertEquals("bewerber3@example.com", values[3]);
+        assertEquals("", values[4]);
+        final BitSet invalidRows = store.findInvalidApplicants();
+        assertEquals(NUMBER_OF_APPLICANTS / 100, invalidRows.cardinality());
+        assertTrue(invalidRows.get(100));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetOutOfRange() {
+        store.get(NUMBER_OF_APPLICANTS);
+    }
+}
@@ -0,0 +1,104 @@
+package de.ichmann.applicant_importer.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ichmann.applicant_importer.model.Applicant.ApplicantBuilder;
+
+/**
+ * Tests storing and reading the values of data fields of an applicant.
+ *
+ * @author Christian Wichmann
+ */
+public final class ApplicantTest {
+
+    private Applicant applicant;
+    private Applicant emptyApplicant;
+
+    @Before
+    public void setUp() throws Exception {
+        applicant = new ApplicantBuilder().setFileName("test.pdf")
+                .setValue(DataField.FIRST_NAME, "Maria").setValue(DataField.LAST_NAME, "")
+                .setValue(DataField.RETRAINING, true).setValue(DataField.NATIONALITY, 4711)
+                .setValue(DataField.DURATION_OF_TRAINING, 36).setValue(DataField.GENDER, 'w')
+                .setValue(DataField.RELIGION, Religion.KATHOLISCH).build();
+        emptyApplicant = new ApplicantBuilder().build();
+    }
+
+    @Test
+    public void testGetValue() {
+        assertEquals("Maria", applicant.getValue(DataField.FIRST_NAME));
+        assertEquals(Boolean.TRUE, applicant.getValue(DataField.RETRAINING));
+        assertEquals(4711, DataField.NATIONALITY.getFrom(applicant));
+        assertEquals(36, DataField.DURATION_OF_TRAINING.getFrom(applicant));
+        assertEquals('w', applicant.getValue(DataField.GENDER));
+        assertEquals(Religion.KATHOLISCH, DataField.RELIGION.getFrom(applicant));
+        assertEquals("Maria ", applicant.toString());
+    }
+
+    @Test
+    public void testGetEmptyValue() {
+        assertEquals("", emptyApplicant.getValue(DataField.FIRST_NAME));
+        assertEquals(Boolean.FALSE, emptyApplicant.getValue(DataField.RETRAINING));
+        assertEquals(0, DataField.NATIONALITY.getFrom(emptyApplicant));
+        assertEquals('m', DataField.GENDER.getFrom(emptyApplicant));
+        assertEquals(School.SONSTIGES, emptyApplicant.getValue(DataField.SCHOOL));
+        assertSame(emptyApplicant.getValue(DataField.EMAIL),
+                applicant.getValue(DataField.EMAIL));
+    }
+
+    @Test
+    public void testWasImported() {
+        assertTrue(applicant.wasImported(DataField.FIRST_NAME));
+        assertTrue(applicant.wasImported(DataField.RETRAINING));
+        assertFalse(applicant.wasImported(DataField.EMAIL));
+        for (final DataField dataField : DataField.values()) {
+            assertFalse(emptyApplicant.wasImported(dataField));
+        }
+    }
+
+    @Test
+    public void testGetInvalidDataFields() {
+        assertEquals(EnumSet.of(DataField.LAST_NAME), applicant.getInvalidDataFields());
+        assertFalse(applicant.checkPlausibility());
+        assertTrue(emptyApplicant.getInvalidDataFields().isEmpty());
+    }
+
+    @Test
+    public void testGetDateValue() {
+        final Applicant datedApplicant = new ApplicantBuilder()
+                .setValue(DataField.BIRTHDAY, "5.3.1998")
+                .setValue(DataField.START_OF_TRAINING, "1.8.2015").build();
+        assertEquals(19980305, datedApplicant.getDateValue(DataField.BIRTHDAY));
+        assertEquals(20150801, datedApplicant.getDateValue(DataField.START_OF_TRAINING));
+        assertEquals("5.3.1998", datedApplicant.getValue(DataField.BIRTHDAY));
+        assertTrue(datedApplicant.getInvalidDataFields().isEmpty());
+        assertEquals(DateHelper.NO_DATE, emptyApplicant.getDateValue(DataField.BIRTHDAY));
+    }
+
+    @Test
+    public void testInvalidDateValue() {
+        final Applicant datedApplicant = new ApplicantBuilder()
+                .setValue(DataField.BIRTHDAY, "31.02.1998").build();
+        assertEquals(DateHelper.NO_DATE, datedApplicant.getDateValue(DataField.BIRTHDAY));
+        assertEquals("31.02.1998", datedApplicant.getValue(DataField.BIRTHDAY));
+        assertEquals(EnumSet.of(DataField.BIRTHDAY), datedApplicant.getInvalidDataFields());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetDateValueOfNoDate() {
+        applicant.getDateValue(DataField.FIRST_NAME);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetValueOfWrongType() {
+        new ApplicantBuilder().setValue(DataField.SCHOOL_ATTENDANCE_YEARS, "10");
+    }
+}